@@ -0,0 +1,43 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+
+/**
+ * Entrada del cache de precios: el item y el momento (System.nanoTime) en que se obtuvo
+ * de la API, para saber qué tan viejo es el precio que se sirve.
+ *
+ * Con TTL adaptativo lleva también el TTL duro asignado a la entrada según qué tan seguido
+ * cambió su precio (0 = el TTL configurado).
+ */
+public final class CachedItem {
+
+    private final Item item;
+    private final long fetchedAtNanos;
+    private final long ttlNanos;
+
+    public CachedItem(Item item, long fetchedAtNanos) {
+        this(item, fetchedAtNanos, 0);
+    }
+
+    public CachedItem(Item item, long fetchedAtNanos, long ttlNanos) {
+        this.item = item;
+        this.fetchedAtNanos = fetchedAtNanos;
+        this.ttlNanos = ttlNanos;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    public long getFetchedAtNanos() {
+        return fetchedAtNanos;
+    }
+
+    public long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    public long ageNanos() {
+        return System.nanoTime() - fetchedAtNanos;
+    }
+}
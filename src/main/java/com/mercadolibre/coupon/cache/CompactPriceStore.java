@@ -0,0 +1,321 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Almacén compacto de precios con claves y valores primitivos, para guardar muchos precios
+ * con poco heap (se usa para los últimos precios conocidos).
+ *
+ * El id se codifica en un long: el prefijo de sitio (3 letras, 5 bits cada una) en los bits
+ * altos y el número en los 48 bits bajos; el precio se guarda en centavos. Cada entrada
+ * ocupa unos 28 bytes en arrays paralelos (sin objetos por entrada), contra los ~250 bytes
+ * de un String, un BigDecimal, el Item y el nodo de un mapa. Los ids que no entran en ese
+ * formato (o precios con más de dos decimales) no se guardan.
+ *
+ * Es un mapa de direccionamiento abierto con sondeo lineal y borrado por corrimiento (sin
+ * lápidas), partido en segmentos con lock propio. Cada segmento crece hasta su parte del
+ * tope; lleno, descarta una entrada de unos pocos slots recorridos como reloj (vencida por
+ * retención o la más vieja). Las vencidas también se descartan al leerlas.
+ */
+final class CompactPriceStore {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EVICTION_SAMPLE = 8;
+
+    private static final int NUMBER_BITS = 48;
+    private static final long MAX_NUMBER = (1L << NUMBER_BITS) - 1;
+    // 2^48 tiene 15 dígitos: con más ya no entra (y así el parseo nunca desborda el long)
+    private static final int MAX_NUMBER_DIGITS = 15;
+
+    static final long NO_KEY = 0;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long retentionNanos;
+    private final LongSupplier nanoClock;
+
+    CompactPriceStore(long maxSize, long retentionNanos) {
+        this(maxSize, retentionNanos, System::nanoTime);
+    }
+
+    CompactPriceStore(long maxSize, long retentionNanos, LongSupplier nanoClock) {
+        this.retentionNanos = retentionNanos;
+        this.nanoClock = nanoClock;
+        int perSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, (maxSize + SEGMENTS - 1) / SEGMENTS));
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Guarda la entrada. Devuelve false si el id o el precio no se pueden codificar.
+     */
+    boolean put(String itemId, CachedItem entry, long ttlNanos) {
+        long key = encodeId(itemId);
+        Long cents = PriceSnapshotStore.toCents(entry.getItem().getPrice());
+        if (key == NO_KEY || cents == null) {
+            return false;
+        }
+        int ttlMillis = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(Math.max(0, ttlNanos)));
+        long hash = mix(key);
+        segmentFor(hash).put(key, hash, cents, entry.getFetchedAtNanos(), ttlMillis, nanoClock.getAsLong());
+        return true;
+    }
+
+    /**
+     * La entrada guardada, con su TTL, o null si no está o pasó la retención.
+     */
+    CachedItem get(String itemId) {
+        long key = encodeId(itemId);
+        if (key == NO_KEY) {
+            return null;
+        }
+        long hash = mix(key);
+        return segmentFor(hash).get(itemId, key, hash, nanoClock.getAsLong());
+    }
+
+    void remove(String itemId) {
+        long key = encodeId(itemId);
+        if (key != NO_KEY) {
+            long hash = mix(key);
+            segmentFor(hash).remove(key, hash);
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Memoria ocupada por los arrays (incluidos los slots vacíos).
+     */
+    long allocatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.allocatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Codifica un id como "MLA123456789" en un long, o NO_KEY si no tiene ese formato.
+     */
+    static long encodeId(String itemId) {
+        if (itemId == null || itemId.length() < 4 || itemId.length() > 3 + MAX_NUMBER_DIGITS) {
+            return NO_KEY;
+        }
+        long site = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = itemId.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return NO_KEY;
+            }
+            site = (site << 5) | (c - 'A' + 1);
+        }
+        // Un cero a la izquierda se perdería al decodificar
+        if (itemId.charAt(3) == '0' && itemId.length() > 4) {
+            return NO_KEY;
+        }
+        long number = 0;
+        for (int i = 3; i < itemId.length(); i++) {
+            char c = itemId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_KEY;
+            }
+            number = number * 10 + (c - '0');
+        }
+        if (number > MAX_NUMBER) {
+            return NO_KEY;
+        }
+        return (site << NUMBER_BITS) | number;
+    }
+
+    static String decodeId(long key) {
+        long site = key >>> NUMBER_BITS;
+        char[] prefix = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            prefix[i] = (char) ('A' + (site & 0x1F) - 1);
+            site >>>= 5;
+        }
+        return new String(prefix) + (key & MAX_NUMBER);
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    // Finalizador de MurmurHash3: los ids consecutivos quedan repartidos
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private final class Segment {
+        private final int maxSize;
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] cents = new long[INITIAL_CAPACITY];
+        private long[] fetchedAtNanos = new long[INITIAL_CAPACITY];
+        private int[] ttlMillis = new int[INITIAL_CAPACITY];
+        private int size;
+        private int clockHand;
+
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        synchronized void put(long key, long hash, long priceCents, long fetchedAt, int ttl, long nowNanos) {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                if (size >= maxSize) {
+                    evict(nowNanos);
+                } else if ((size + 1) * 4L > keys.length * 3L) {
+                    resize(keys.length * 2);
+                }
+                // El desalojo o el resize pudieron mover los slots
+                slot = -find(key, hash) - 1;
+                keys[slot] = key;
+                size++;
+            }
+            cents[slot] = priceCents;
+            fetchedAtNanos[slot] = fetchedAt;
+            ttlMillis[slot] = ttl;
+        }
+
+        synchronized CachedItem get(String itemId, long key, long hash, long nowNanos) {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            if (isExpired(slot, nowNanos)) {
+                delete(slot);
+                return null;
+            }
+            BigDecimal price = PriceSnapshotStore.fromCents(cents[slot]);
+            return new CachedItem(new Item(itemId, price), fetchedAtNanos[slot],
+                                  TimeUnit.MILLISECONDS.toNanos(ttlMillis[slot]));
+        }
+
+        synchronized void remove(long key, long hash) {
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                delete(slot);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long allocatedBytes() {
+            return keys.length * (8L + 8L + 8L + 4L);
+        }
+
+        /**
+         * Slot de la clave, o -(slot libre) - 1 si no está.
+         */
+        private int find(long key, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (true) {
+                long current = keys[slot];
+                if (current == key) {
+                    return slot;
+                }
+                if (current == NO_KEY) {
+                    return -slot - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private boolean isExpired(int slot, long nowNanos) {
+            long expiredAt = fetchedAtNanos[slot] + TimeUnit.MILLISECONDS.toNanos(ttlMillis[slot]);
+            return nowNanos - expiredAt > retentionNanos;
+        }
+
+        /**
+         * Descarta una entrada de las próximas EVICTION_SAMPLE que pasa el reloj: la primera
+         * vencida por retención o, si no hay, la consultada hace más tiempo.
+         */
+        private void evict(long nowNanos) {
+            int oldest = -1;
+            for (int seen = 0; seen < EVICTION_SAMPLE; ) {
+                clockHand = (clockHand + 1) & (keys.length - 1);
+                if (keys[clockHand] == NO_KEY) {
+                    continue;
+                }
+                if (isExpired(clockHand, nowNanos)) {
+                    oldest = clockHand;
+                    break;
+                }
+                if (oldest < 0 || fetchedAtNanos[clockHand] - fetchedAtNanos[oldest] < 0) {
+                    oldest = clockHand;
+                }
+                seen++;
+            }
+            delete(oldest);
+        }
+
+        /**
+         * Borra el slot corriendo hacia atrás las entradas siguientes del mismo grupo, así
+         * ninguna búsqueda corta antes de tiempo.
+         */
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (slot + 1) & mask;
+            while (keys[next] != NO_KEY) {
+                int home = (int) mix(keys[next]) & mask;
+                // La entrada puede ocupar el hueco si su posición ideal no está entre el hueco y ella
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    cents[hole] = cents[next];
+                    fetchedAtNanos[hole] = fetchedAtNanos[next];
+                    ttlMillis[hole] = ttlMillis[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = NO_KEY;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldCents = cents;
+            long[] oldFetchedAt = fetchedAtNanos;
+            int[] oldTtl = ttlMillis;
+            keys = new long[capacity];
+            cents = new long[capacity];
+            fetchedAtNanos = new long[capacity];
+            ttlMillis = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == NO_KEY) {
+                    continue;
+                }
+                int slot = (int) mix(oldKeys[i]) & mask;
+                while (keys[slot] != NO_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                cents[slot] = oldCents[i];
+                fetchedAtNanos[slot] = oldFetchedAt[i];
+                ttlMillis[slot] = oldTtl[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.mercadolibre.coupon.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Detecta los items más pedidos (heavy hitters) con el algoritmo Space-Saving: se siguen
+ * a lo sumo "capacity" ids con su conteo; un id nuevo con la tabla llena reemplaza al de
+ * menor conteo y hereda ese conteo como error máximo. Memoria fija y O(log capacity) por
+ * id pedido, sin importar cuántos ids distintos lleguen.
+ *
+ * Cada refresh-interval se toman los top-k como items calientes, siempre que tengan al
+ * menos min-count pedidos garantizados (conteo menos error): se fijan en el cache (no se
+ * desalojan por tamaño) y se avisa a los interesados para refrescarlos por adelantado.
+ * Cada decay-interval los conteos se dividen a la mitad, para que lo caliente siga al
+ * tráfico reciente; los ids que llegan a 0 dejan el sketch.
+ *
+ * Los requests no tocan el sketch: anotan sus ids en buffers acotados, uno por grupo de
+ * hilos, sin locks. Los buffers pasan al sketch cuando se llenan a la mitad (solo si nadie
+ * más lo está haciendo) y antes de cada recálculo. Si un buffer se llena igual, los ids
+ * se descartan: perder algunos conteos no cambia cuáles son los más pedidos.
+ */
+@Component
+public class HotItemTracker {
+
+    private static final int BUFFER_SIZE = 256;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    private final boolean enabled;
+    private final int topK;
+    private final long minCount;
+    private final ItemPriceCache itemCache;
+
+    // Space-Saving: slots con id, conteo y error, ordenados en un min-heap por conteo
+    private final String[] ids;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap;        // posición en el heap -> slot
+    private final int[] heapIndex;   // slot -> posición en el heap
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int size;
+    // Protege el sketch; los requests solo lo toman con tryLock
+    private final ReentrantLock sketchLock = new ReentrantLock();
+    private final IdBuffer[] buffers;
+    private final Counter droppedIds;
+
+    private volatile Set<String> hotItems = Set.of();
+    private final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    public HotItemTracker(ItemPriceCache itemCache,
+                          @Value("${meli.cache.hot.enabled:true}") boolean enabled,
+                          @Value("${meli.cache.hot.capacity:1000}") int capacity,
+                          @Value("${meli.cache.hot.top-k:100}") int topK,
+                          @Value("${meli.cache.hot.min-count:10}") long minCount,
+                          @Value("${meli.cache.hot.refresh-interval:10s}") Duration refreshInterval,
+                          @Value("${meli.cache.hot.decay-interval:5m}") Duration decayInterval,
+                          MeterRegistry meterRegistry) {
+        this.itemCache = itemCache;
+        this.enabled = enabled;
+        int slotCount = Math.max(1, capacity);
+        this.topK = Math.max(0, Math.min(topK, slotCount));
+        this.minCount = Math.max(1, minCount);
+        this.ids = new String[slotCount];
+        this.counts = new long[slotCount];
+        this.errors = new long[slotCount];
+        this.heap = new int[slotCount];
+        this.heapIndex = new int[slotCount];
+        int bufferCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.buffers = new IdBuffer[bufferCount];
+        for (int i = 0; i < bufferCount; i++) {
+            buffers[i] = new IdBuffer();
+        }
+
+        Gauge.builder("meli.items.hot", this, tracker -> tracker.hotItems.size())
+                .description("Items calientes fijados en el cache")
+                .register(meterRegistry);
+        this.droppedIds = Counter.builder("meli.items.hot.dropped")
+                .description("Ids pedidos que no se contaron porque su buffer estaba lleno")
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "meli-hot-items");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long refreshMillis = Math.max(1, refreshInterval.toMillis());
+            long decayMillis = Math.max(1, decayInterval.toMillis());
+            scheduler.scheduleWithFixedDelay(this::updateHotItemsQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(this::decay, decayMillis, decayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Registra los ids pedidos en un request. No bloquea: los ids quedan en el buffer del
+     * hilo hasta que alguien los pase al sketch.
+     */
+    public void recordAll(Collection<String> itemIds) {
+        if (!enabled) {
+            return;
+        }
+        IdBuffer buffer = buffers[(int) Thread.currentThread().getId() & (buffers.length - 1)];
+        for (String id : itemIds) {
+            if (!buffer.offer(id) && !(tryDrain() && buffer.offer(id))) {
+                droppedIds.increment();
+            }
+        }
+        if (buffer.pending() >= BUFFER_SIZE / 2) {
+            tryDrain();
+        }
+    }
+
+    public boolean isHot(String itemId) {
+        return hotItems.contains(itemId);
+    }
+
+    public Set<String> getHotItems() {
+        return hotItems;
+    }
+
+    /**
+     * Se llama con los items calientes cada vez que se recalculan.
+     */
+    public void addListener(Consumer<Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Los n ids más pedidos, de mayor a menor conteo.
+     */
+    public List<HotItem> top(int n) {
+        List<HotItem> all = new ArrayList<>();
+        sketchLock.lock();
+        try {
+            drainBuffers();
+            for (int slot = 0; slot < size; slot++) {
+                all.add(new HotItem(ids[slot], counts[slot], errors[slot]));
+            }
+        } finally {
+            sketchLock.unlock();
+        }
+        all.sort(Comparator.comparingLong(HotItem::getCount).reversed());
+        return all.subList(0, Math.min(Math.max(0, n), all.size()));
+    }
+
+    /**
+     * Recalcula los items calientes, los fija en el cache y avisa a los interesados.
+     */
+    public void updateHotItems() {
+        Set<String> hot = new LinkedHashSet<>();
+        for (HotItem item : top(topK)) {
+            // Un id pedido pocas veces ocupa un slot del top si hay pocos ids, pero no es caliente
+            if (item.getCount() - item.getError() >= minCount) {
+                hot.add(item.getId());
+            }
+        }
+        hotItems = Set.copyOf(hot);
+        itemCache.setPinned(hotItems);
+        for (Consumer<Set<String>> listener : listeners) {
+            listener.accept(hotItems);
+        }
+    }
+
+    /**
+     * Divide los conteos a la mitad y saca del sketch los ids que llegan a 0, para que dejen
+     * de estar entre los calientes. Los slots que quedan se compactan y se rearma el heap.
+     */
+    public void decay() {
+        sketchLock.lock();
+        try {
+            drainBuffers();
+            int kept = 0;
+            for (int slot = 0; slot < size; slot++) {
+                long count = counts[slot] / 2;
+                if (count == 0) {
+                    slots.remove(ids[slot]);
+                    ids[slot] = null;
+                    continue;
+                }
+                ids[kept] = ids[slot];
+                counts[kept] = count;
+                errors[kept] = errors[slot] / 2;
+                if (kept != slot) {
+                    ids[slot] = null;
+                    slots.put(ids[kept], kept);
+                }
+                kept++;
+            }
+            size = kept;
+            for (int i = 0; i < size; i++) {
+                heap[i] = i;
+                heapIndex[i] = i;
+            }
+            for (int position = size / 2 - 1; position >= 0; position--) {
+                siftDown(position);
+            }
+        } finally {
+            sketchLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void updateHotItemsQuietly() {
+        try {
+            updateHotItems();
+        } catch (RuntimeException e) {
+            System.err.println("Error actualizando items calientes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pasa los buffers al sketch si nadie más lo está usando. Devuelve false si estaba ocupado.
+     */
+    private boolean tryDrain() {
+        if (!sketchLock.tryLock()) {
+            return false;
+        }
+        try {
+            drainBuffers();
+            return true;
+        } finally {
+            sketchLock.unlock();
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private void drainBuffers() {
+        for (IdBuffer buffer : buffers) {
+            buffer.drainTo(this::record);
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private void record(String id) {
+        Integer slot = slots.get(id);
+        if (slot != null) {
+            counts[slot]++;
+            siftDown(heapIndex[slot]);
+            return;
+        }
+        if (size < ids.length) {
+            int newSlot = size++;
+            ids[newSlot] = id;
+            counts[newSlot] = 1;
+            errors[newSlot] = 0;
+            heap[newSlot] = newSlot;
+            heapIndex[newSlot] = newSlot;
+            slots.put(id, newSlot);
+            siftUp(newSlot);
+            return;
+        }
+        // Tabla llena: el nuevo id reemplaza al de menor conteo
+        int minSlot = heap[0];
+        slots.remove(ids[minSlot]);
+        ids[minSlot] = id;
+        errors[minSlot] = counts[minSlot];
+        counts[minSlot]++;
+        slots.put(id, minSlot);
+        siftDown(0);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[heap[parent]] <= counts[heap[position]]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && counts[heap[right]] < counts[heap[left]]) {
+                smallest = right;
+            }
+            if (counts[heap[position]] <= counts[heap[smallest]]) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int slotA = heap[a];
+        int slotB = heap[b];
+        heap[a] = slotB;
+        heap[b] = slotA;
+        heapIndex[slotB] = a;
+        heapIndex[slotA] = b;
+    }
+
+    /**
+     * Buffer circular de ids con muchos escritores y un solo lector (el que tiene el lock del
+     * sketch). Un escritor reserva una posición con CAS y después escribe el id; el lector se
+     * detiene en la primera posición reservada que todavía no se escribió.
+     */
+    private static final class IdBuffer {
+        private final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        private volatile long readCount;
+
+        boolean offer(String id) {
+            while (true) {
+                long tail = writeCount.get();
+                if (tail - readCount >= BUFFER_SIZE) {
+                    return false;
+                }
+                if (writeCount.compareAndSet(tail, tail + 1)) {
+                    slots.lazySet((int) tail & BUFFER_MASK, id);
+                    return true;
+                }
+            }
+        }
+
+        long pending() {
+            return writeCount.get() - readCount;
+        }
+
+        void drainTo(Consumer<String> consumer) {
+            long head = readCount;
+            long tail = writeCount.get();
+            while (head < tail) {
+                int index = (int) head & BUFFER_MASK;
+                String id = slots.get(index);
+                if (id == null) {
+                    break;
+                }
+                slots.lazySet(index, null);
+                consumer.accept(id);
+                head++;
+            }
+            readCount = head;
+        }
+    }
+
+    /**
+     * Un id con su conteo estimado. El conteo real está entre count - error y count.
+     */
+    public static final class HotItem {
+        private final String id;
+        private final long count;
+        private final long error;
+
+        public HotItem(String id, long count, long error) {
+            this.id = id;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
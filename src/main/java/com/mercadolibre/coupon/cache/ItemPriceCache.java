@@ -0,0 +1,432 @@
+package com.mercadolibre.coupon.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache de precios de items, acotado en memoria y con expiración.
+ *
+ * Usa Caffeine (eviction W-TinyLFU) con peso estimado en bytes por entrada, así el tope
+ * se configura en memoria real y no en cantidad de items. Las estadísticas se publican
+ * en Micrometer bajo el nombre "meli.items".
+ *
+ * Tiene dos TTL: pasado el blando (refresh-after-write) la entrada se sigue sirviendo pero
+ * conviene refrescarla en segundo plano (ver isStale); pasado el duro (expire-after-write)
+ * se descarta y el próximo request la consulta a la API.
+ *
+ * Las entradas descartadas por el TTL duro pasan a un almacén acotado de "últimos precios
+ * conocidos", que solo se usa si la API no está disponible (circuit breaker abierto).
+ *
+ * Con TTL adaptativo (meli.cache.adaptive-ttl) cada entrada tiene su propio TTL duro según
+ * la historia de su precio: cada vez que se vuelve a consultar sin cambios el TTL se
+ * duplica y cada vez que cambió se reduce a la mitad, dentro de [min-ttl, max-ttl]. El TTL
+ * blando mantiene la misma proporción con el duro que en la configuración global. Al vencer,
+ * la entrada pasa a los últimos precios conocidos, así su historia sigue en la próxima consulta.
+ *
+ * Los items fijados (los más pedidos, ver HotItemTracker) pesan 0: Caffeine no los desaloja
+ * por tamaño, solo vencen por TTL y quien los fija se encarga de refrescarlos antes.
+ */
+@Component
+public class ItemPriceCache {
+
+    /**
+     * Resultado de putIfNewer: guardada, descartada porque ya había un precio obtenido
+     * después, o descartada porque ya pasó el TTL que le tocaría.
+     */
+    public enum PutResult { STORED, OUTDATED, EXPIRED }
+
+    // Estimaciones de layout en una JVM de 64 bits con compressed oops y compact strings
+    private static final int STRING_OVERHEAD_BYTES = 40;   // String + byte[] (Latin-1)
+    private static final int BIG_DECIMAL_BYTES = 40;
+    private static final int ITEM_BYTES = 24;
+    private static final int CACHE_NODE_BYTES = 72;        // Nodo de Caffeine + slot de la tabla
+    private static final int CACHED_ITEM_BYTES = 40;       // Envoltorio con el momento de la consulta y el TTL
+    // Con TTL por entrada Caffeine vence en una rueda de timers con buckets de hasta ~1 min:
+    // la entrada se da por vencida a su hora (ver getEntry) y se quita después de este margen,
+    // así sigue disponible como último precio conocido hasta pasar a lastKnown
+    private static final long ADAPTIVE_EXPIRY_GRACE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final Cache<String, CachedItem> cache;
+    // Últimos precios conocidos de entradas vencidas; solo para cuando la API no responde.
+    // Guardados en formato compacto: son muchos y se leen poco
+    private final CompactPriceStore lastKnown;
+    private final long maxWeightBytes;
+    // 0 si el refresh anticipado está deshabilitado
+    private final long refreshAfterWriteNanos;
+    private final long expireAfterWriteNanos;
+    // Reloj de los momentos de consulta (System.nanoTime salvo en tests)
+    private final LongSupplier nanoClock;
+    private volatile Set<String> pinned = Set.of();
+
+    // TTL adaptativo: límites del TTL duro por entrada
+    private final boolean adaptiveTtl;
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+    private final Timer assignedTtl;
+    private final Counter priceChanged;
+    private final Counter priceUnchanged;
+    private final Counter refreshesSaved;
+
+    public ItemPriceCache(long maxWeightBytes, Duration expireAfterWrite, Duration refreshAfterWrite,
+                          long lastKnownMaxSize, Duration lastKnownRetention, MeterRegistry meterRegistry) {
+        this(maxWeightBytes, expireAfterWrite, refreshAfterWrite, lastKnownMaxSize, lastKnownRetention,
+             false, expireAfterWrite, expireAfterWrite, meterRegistry);
+    }
+
+    @Autowired
+    public ItemPriceCache(@Value("${meli.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                          @Value("${meli.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                          @Value("${meli.cache.refresh-after-write:0s}") Duration refreshAfterWrite,
+                          @Value("${meli.cache.last-known.max-size:100000}") long lastKnownMaxSize,
+                          @Value("${meli.cache.last-known.retention:24h}") Duration lastKnownRetention,
+                          @Value("${meli.cache.adaptive-ttl.enabled:false}") boolean adaptiveTtl,
+                          @Value("${meli.cache.adaptive-ttl.min-ttl:1m}") Duration minTtl,
+                          @Value("${meli.cache.adaptive-ttl.max-ttl:1h}") Duration maxTtl,
+                          MeterRegistry meterRegistry) {
+        this(maxWeightBytes, expireAfterWrite, refreshAfterWrite, lastKnownMaxSize, lastKnownRetention,
+             adaptiveTtl, minTtl, maxTtl, meterRegistry, System::nanoTime);
+    }
+
+    public ItemPriceCache(long maxWeightBytes, Duration expireAfterWrite, Duration refreshAfterWrite,
+                          long lastKnownMaxSize, Duration lastKnownRetention, boolean adaptiveTtl,
+                          Duration minTtl, Duration maxTtl, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.maxWeightBytes = maxWeightBytes;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        // Un TTL blando mayor o igual al duro nunca llegaría a usarse
+        this.refreshAfterWriteNanos = refreshAfterWrite.compareTo(expireAfterWrite) < 0
+                ? Math.max(0, refreshAfterWrite.toNanos())
+                : 0;
+        this.adaptiveTtl = adaptiveTtl;
+        this.minTtlNanos = Math.max(1, Math.min(minTtl.toNanos(), expireAfterWriteNanos));
+        this.maxTtlNanos = Math.max(maxTtl.toNanos(), expireAfterWriteNanos);
+        this.assignedTtl = Timer.builder("meli.items.ttl")
+                .description("TTL duro asignado a cada precio guardado (TTL adaptativo)")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.priceChanged = Counter.builder("meli.items.price.checks")
+                .tag("result", "changed")
+                .description("Consultas de un precio ya cacheado: si había cambiado se sirvió un precio viejo")
+                .register(meterRegistry);
+        this.priceUnchanged = Counter.builder("meli.items.price.checks")
+                .tag("result", "unchanged")
+                .description("Consultas de un precio ya cacheado: si había cambiado se sirvió un precio viejo")
+                .register(meterRegistry);
+        this.refreshesSaved = Counter.builder("meli.items.ttl.refreshes.saved")
+                .description("Consultas a la API ahorradas por TTL más largos que el configurado")
+                .register(meterRegistry);
+        this.lastKnown = new CompactPriceStore(lastKnownMaxSize, lastKnownRetention.toNanos(), nanoClock);
+        Caffeine<String, CachedItem> builder = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .ticker(nanoClock::getAsLong)
+                .weigher((String id, CachedItem entry) -> pinned.contains(id) ? 0 : estimateBytes(id, entry.getItem()));
+        if (adaptiveTtl) {
+            builder.expireAfter(new Expiry<String, CachedItem>() {
+                @Override
+                public long expireAfterCreate(String id, CachedItem entry, long currentTime) {
+                    return Math.max(0, entry.getFetchedAtNanos() + ttlNanos(entry) + ADAPTIVE_EXPIRY_GRACE_NANOS - currentTime);
+                }
+
+                @Override
+                public long expireAfterUpdate(String id, CachedItem entry, long currentTime, long currentDuration) {
+                    return expireAfterCreate(id, entry, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String id, CachedItem entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            });
+        } else {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        this.cache = builder
+                // Corre en el mismo paso que la remoción: la entrada nunca queda en ninguno de los dos
+                .evictionListener((String id, CachedItem entry, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED && id != null && entry != null) {
+                        lastKnown.put(id, entry, ttlNanos(entry));
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "meli.items");
+    }
+
+    public Item get(String itemId) {
+        CachedItem entry = getEntry(itemId);
+        return entry != null ? entry.getItem() : null;
+    }
+
+    /**
+     * Igual que get, pero con el momento en que se obtuvo el precio.
+     */
+    public CachedItem getEntry(String itemId) {
+        CachedItem entry = cache.getIfPresent(itemId);
+        if (entry != null && adaptiveTtl && ageNanos(entry) >= ttlNanos(entry)) {
+            // Vencida pero todavía dentro del margen de remoción: es un miss (Caffeine lo cuenta como hit)
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(Item item) {
+        put(new CachedItem(item, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Guarda una entrada obtenida en otro lado (cache compartido), conservando el momento
+     * en que se consultó a la API.
+     */
+    public void put(CachedItem entry) {
+        String id = entry.getItem().getId();
+        if (adaptiveTtl) {
+            cache.asMap().compute(id, (key, previous) -> withAdaptiveTtl(key, previous, entry));
+        } else {
+            cache.put(id, entry);
+        }
+        lastKnown.remove(id);
+    }
+
+    /**
+     * Igual que put(CachedItem), salvo que ya haya un precio del item (vigente o vencido)
+     * obtenido después que esta entrada: una carga masiva no pisa lo que la API devolvió
+     * mientras tanto. Tampoco guarda la entrada si ya pasó el TTL que le tocaría.
+     */
+    public PutResult putIfNewer(CachedItem entry) {
+        String id = entry.getItem().getId();
+        PutResult[] result = new PutResult[1];
+        cache.asMap().compute(id, (key, current) -> {
+            CachedItem previous = current != null ? current : lastKnown.get(key);
+            if (previous != null && previous.getFetchedAtNanos() - entry.getFetchedAtNanos() > 0) {
+                result[0] = PutResult.OUTDATED;
+                return current;
+            }
+            long ttl = adaptiveTtl ? adaptiveTtlNanos(previous, entry, false) : expireAfterWriteNanos;
+            if (ageNanos(entry) >= ttl) {
+                result[0] = PutResult.EXPIRED;
+                return current;
+            }
+            result[0] = PutResult.STORED;
+            return adaptiveTtl ? withAdaptiveTtl(key, current, entry) : entry;
+        });
+        if (result[0] == PutResult.STORED) {
+            lastKnown.remove(id);
+        }
+        return result[0];
+    }
+
+    /**
+     * Último precio conocido del item, aunque haya vencido. Solo para servir de respaldo
+     * cuando la API no está disponible.
+     */
+    public Item getLastKnown(String itemId) {
+        CachedItem entry = cache.getIfPresent(itemId);
+        if (entry == null) {
+            entry = lastKnown.get(itemId);
+        }
+        if (entry == null) {
+            // La entrada pudo haber vencido sin que Caffeine la haya pasado todavía
+            cache.cleanUp();
+            entry = lastKnown.get(itemId);
+        }
+        return entry != null ? entry.getItem() : null;
+    }
+
+    /**
+     * Indica si la entrada pasó el TTL blando y conviene refrescarla.
+     */
+    public boolean isStale(CachedItem entry) {
+        return refreshAfterWriteNanos > 0 && ageNanos(entry) >= softTtlNanos(entry);
+    }
+
+    /**
+     * TTL duro de la entrada: el propio si hay TTL adaptativo, si no el configurado.
+     */
+    public long ttlNanos(CachedItem entry) {
+        return adaptiveTtl && entry.getTtlNanos() > 0 ? entry.getTtlNanos() : expireAfterWriteNanos;
+    }
+
+    /**
+     * TTL blando de la entrada, en la misma proporción con su TTL duro que la configuración
+     * global (0 si el refresh anticipado está deshabilitado).
+     */
+    public long softTtlNanos(CachedItem entry) {
+        long ttl = ttlNanos(entry);
+        if (refreshAfterWriteNanos == 0 || ttl == expireAfterWriteNanos) {
+            return refreshAfterWriteNanos;
+        }
+        return (long) (ttl * ((double) refreshAfterWriteNanos / expireAfterWriteNanos));
+    }
+
+    public long getRefreshAfterWriteNanos() {
+        return refreshAfterWriteNanos;
+    }
+
+    public long getExpireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    /**
+     * El TTL duro más largo que puede tener una entrada.
+     */
+    public long getMaxTtlNanos() {
+        return adaptiveTtl ? maxTtlNanos : expireAfterWriteNanos;
+    }
+
+    /**
+     * Vista de solo lectura de las entradas vigentes; recorrerla no afecta las estadísticas.
+     */
+    public Map<String, CachedItem> entries() {
+        return Collections.unmodifiableMap(cache.asMap());
+    }
+
+    /**
+     * Reemplaza el conjunto de items fijados. Caffeine calcula el peso al escribir, así que
+     * las entradas que entran o salen del conjunto se reescriben para que tomen el peso nuevo
+     * (eso también reinicia su TTL duro; el momento de la consulta se conserva).
+     */
+    public void setPinned(Set<String> itemIds) {
+        Set<String> previous = pinned;
+        Set<String> current = Set.copyOf(itemIds);
+        pinned = current;
+        Set<String> changed = new HashSet<>(current);
+        changed.addAll(previous);
+        changed.removeIf(id -> current.contains(id) && previous.contains(id));
+        for (String id : changed) {
+            cache.asMap().computeIfPresent(id, (key, entry) -> entry);
+        }
+    }
+
+    public boolean isPinned(String itemId) {
+        return pinned.contains(itemId);
+    }
+
+    public void invalidate(String itemId) {
+        cache.invalidate(itemId);
+        lastKnown.remove(itemId);
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Resumen de estadísticas para exponer por HTTP.
+     */
+    public Map<String, Object> statsSnapshot() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("size", cache.estimatedSize());
+        snapshot.put("weightedSizeBytes", cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        snapshot.put("maxWeightBytes", maxWeightBytes);
+        snapshot.put("hitCount", stats.hitCount());
+        snapshot.put("missCount", stats.missCount());
+        snapshot.put("hitRate", stats.hitRate());
+        snapshot.put("evictionCount", stats.evictionCount());
+        snapshot.put("evictionWeightBytes", stats.evictionWeight());
+        snapshot.put("lastKnownSize", lastKnown.size());
+        snapshot.put("lastKnownBytes", lastKnown.allocatedBytes());
+        snapshot.put("pinned", pinned.size());
+        return snapshot;
+    }
+
+    /**
+     * Asigna el TTL de una entrada nueva a partir de la anterior del mismo item (vigente o ya
+     * vencida): si el precio no cambió y la anterior duró al menos la mitad de su intervalo de
+     * refresco, el TTL se duplica; si cambió, se reduce a la mitad. Sin historia se usa el TTL
+     * que trae la entrada (snapshot en disco) o, si no trae, el configurado. Con
+     * refresh-after-write los items pedidos se vuelven a consultar al pasar el TTL blando (o
+     * antes, si son calientes), así que el intervalo es el blando: comparar contra el duro
+     * haría que su TTL nunca creciera.
+     */
+    private CachedItem withAdaptiveTtl(String id, CachedItem previous, CachedItem entry) {
+        long ttl = adaptiveTtlNanos(previous != null ? previous : lastKnown.get(id), entry, true);
+        assignedTtl.record(ttl, TimeUnit.NANOSECONDS);
+        return new CachedItem(entry.getItem(), entry.getFetchedAtNanos(), ttl);
+    }
+
+    /**
+     * TTL que le corresponde a la entrada según la anterior del item; con record en false no
+     * se cuenta en las métricas (solo se quiere saber si ya venció).
+     */
+    private long adaptiveTtlNanos(CachedItem previous, CachedItem entry, boolean record) {
+        long ttl;
+        if (previous == null) {
+            ttl = clampTtl(entry.getTtlNanos() > 0 ? entry.getTtlNanos() : expireAfterWriteNanos);
+        } else {
+            long previousTtl = ttlNanos(previous);
+            long observedNanos = entry.getFetchedAtNanos() - previous.getFetchedAtNanos();
+            long refreshIntervalNanos = refreshAfterWriteNanos > 0 ? softTtlNanos(previous) : previousTtl;
+            if (samePrice(previous.getItem(), entry.getItem())) {
+                if (observedNanos >= refreshIntervalNanos / 2) {
+                    if (record) {
+                        priceUnchanged.increment();
+                    }
+                    if (record && previousTtl > expireAfterWriteNanos) {
+                        // Con el TTL configurado, en el tiempo que duró se la habría consultado más veces
+                        refreshesSaved.increment((double) (previousTtl - expireAfterWriteNanos) / expireAfterWriteNanos);
+                    }
+                    ttl = clampTtl(previousTtl * 2);
+                } else {
+                    // La misma consulta llegando por otro lado (cache compartido, otra instancia)
+                    ttl = previousTtl;
+                }
+            } else {
+                if (record) {
+                    priceChanged.increment();
+                }
+                ttl = clampTtl(previousTtl / 2);
+            }
+        }
+        return ttl;
+    }
+
+    private long ageNanos(CachedItem entry) {
+        return nanoClock.getAsLong() - entry.getFetchedAtNanos();
+    }
+
+    private long clampTtl(long ttlNanos) {
+        return Math.max(minTtlNanos, Math.min(maxTtlNanos, ttlNanos));
+    }
+
+    private static boolean samePrice(Item previous, Item current) {
+        if (previous.getPrice() == null || current.getPrice() == null) {
+            return previous.getPrice() == current.getPrice();
+        }
+        return previous.getPrice().compareTo(current.getPrice()) == 0;
+    }
+
+    /**
+     * Tamaño aproximado que ocupa una entrada en el heap.
+     */
+    static int estimateBytes(String itemId, Item item) {
+        return STRING_OVERHEAD_BYTES + itemId.length() + BIG_DECIMAL_BYTES + ITEM_BYTES
+                + CACHED_ITEM_BYTES + CACHE_NODE_BYTES;
+    }
+}
@@ -0,0 +1,90 @@
+package com.mercadolibre.coupon.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache negativo: ids que la API no devolvió (no existen, están cerrados o sin precio).
+ *
+ * Se guardan con un TTL corto para no consultarlos en cada request (bots, listas de
+ * favoritos viejas). Opcionalmente, un Bloom filter recuerda los ids muertos por más
+ * tiempo que el TTL con muy poca memoria, a cambio de una tasa chica de falsos positivos.
+ * Las estadísticas se publican en Micrometer bajo el nombre "meli.items.negative".
+ */
+@Component
+public class NegativeItemCache {
+
+    private final Cache<String, Boolean> cache;
+    private final BloomFilter deadIds;
+    private final Counter bloomHits;
+
+    public NegativeItemCache(@Value("${meli.cache.negative.ttl:60s}") Duration ttl,
+                             @Value("${meli.cache.negative.max-size:100000}") long maxSize,
+                             @Value("${meli.cache.negative.bloom.enabled:false}") boolean bloomEnabled,
+                             @Value("${meli.cache.negative.bloom.expected-insertions:1000000}") long bloomExpectedInsertions,
+                             @Value("${meli.cache.negative.bloom.false-positive-rate:0.01}") double bloomFalsePositiveRate,
+                             MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.deadIds = bloomEnabled ? new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate) : null;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "meli.items.negative");
+        this.bloomHits = Counter.builder("meli.items.negative.bloom.hits")
+                .description("Ids descartados por el Bloom filter de ids muertos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si el id se sabe inexistente y no vale la pena consultarlo.
+     */
+    public boolean isKnownMissing(String itemId) {
+        if (cache.getIfPresent(itemId) != null) {
+            return true;
+        }
+        if (deadIds != null && deadIds.mightContain(itemId)) {
+            bloomHits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void markMissing(String itemId) {
+        cache.put(itemId, Boolean.TRUE);
+        if (deadIds != null) {
+            deadIds.put(itemId);
+        }
+    }
+
+    /**
+     * Olvida un id del cache negativo (p. ej. porque se volvió a publicar). No se puede
+     * sacar del Bloom filter; se olvida cuando este se renueva.
+     */
+    public void invalidate(String itemId) {
+        cache.invalidate(itemId);
+    }
+
+    public Map<String, Object> statsSnapshot() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("size", cache.estimatedSize());
+        snapshot.put("hitCount", stats.hitCount());
+        snapshot.put("missCount", stats.missCount());
+        snapshot.put("hitRate", stats.hitRate());
+        snapshot.put("bloomEnabled", deadIds != null);
+        snapshot.put("bloomHits", (long) bloomHits.count());
+        snapshot.put("bloomInsertions", deadIds != null ? deadIds.approximateInsertions() : 0L);
+        return snapshot;
+    }
+}
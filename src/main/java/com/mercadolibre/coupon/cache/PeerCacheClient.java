@@ -0,0 +1,243 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.dto.PeerItemPrice;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anillo de caches entre instancias: cada id tiene una instancia dueña (hashing
+ * consistente) y, ante un miss local, se le pregunta a la dueña antes de ir a
+ * MercadoLibre. La dueña resuelve con su propio cache o consultando la API, así cada
+ * item se pide una sola vez por cluster en lugar de una vez por instancia.
+ *
+ * Los peers salen de una lista fija (meli.cache.peers.list) y/o de un archivo con una URL
+ * por línea (meli.cache.peers.file) que se relee si cambia. Las consultas van de a una por
+ * peer y por batch, con timeout corto: si el peer no responde, esos ids se consultan a la
+ * API como si el anillo no existiera.
+ */
+@Component
+public class PeerCacheClient {
+
+    static final String PEER_ITEMS_PATH = "/coupon/cache/peer/items";
+
+    private final boolean enabled;
+    private final String self;
+    private final List<String> staticPeers;
+    private final Path peersFile;
+    private final Duration timeout;
+    private final int virtualNodes;
+    private final WebClient webClient;
+    private final ScheduledExecutorService reloader;
+
+    private volatile PeerRing ring;
+    private long peersFileModified = -1;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+    private final Timer latency;
+
+    public PeerCacheClient(@Value("${meli.cache.peers.enabled:false}") boolean enabled,
+                           @Value("${meli.cache.peers.self:http://localhost:8080}") String self,
+                           @Value("${meli.cache.peers.list:}") List<String> staticPeers,
+                           @Value("${meli.cache.peers.file:}") String peersFile,
+                           @Value("${meli.cache.peers.refresh-interval:30s}") Duration refreshInterval,
+                           @Value("${meli.cache.peers.timeout:200ms}") Duration timeout,
+                           @Value("${meli.cache.peers.virtual-nodes:128}") int virtualNodes,
+                           WebClient.Builder webClientBuilder,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.self = normalize(self);
+        this.staticPeers = staticPeers;
+        this.peersFile = peersFile == null || peersFile.isBlank() ? null : Path.of(peersFile.trim());
+        this.timeout = timeout;
+        this.virtualNodes = virtualNodes;
+        this.webClient = webClientBuilder.clone().build();
+
+        this.hits = Counter.builder("meli.items.peer.hits")
+                .description("Precios resueltos por la instancia dueña del id")
+                .register(meterRegistry);
+        this.misses = Counter.builder("meli.items.peer.misses")
+                .description("Precios pedidos a la instancia dueña que no los resolvió")
+                .register(meterRegistry);
+        this.errors = Counter.builder("meli.items.peer.errors")
+                .description("Consultas fallidas o vencidas a otras instancias")
+                .register(meterRegistry);
+        this.latency = Timer.builder("meli.items.peer.latency")
+                .description("Duración de las consultas a otras instancias")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        reloadPeers();
+        if (enabled && this.peersFile != null) {
+            this.reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "meli-peers-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, refreshInterval.toMillis());
+            reloader.scheduleWithFixedDelay(this::reloadPeers, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.reloader = null;
+        }
+        if (enabled) {
+            System.out.println("Anillo de caches habilitado: " + ring.getPeers().size() + " instancias, esta es " + this.self);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pide a las instancias dueñas los ids que no son de esta instancia. Nunca falla: lo que
+     * no se pudo resolver simplemente no está en el resultado.
+     */
+    public CompletableFuture<Map<String, CachedItem>> getAll(Collection<String> itemIds) {
+        if (!enabled || itemIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        PeerRing currentRing = ring;
+        Map<String, List<String>> byOwner = new HashMap<>();
+        for (String id : itemIds) {
+            String owner = currentRing.ownerOf(id);
+            if (owner != null && !owner.equals(self)) {
+                byOwner.computeIfAbsent(owner, key -> new ArrayList<>()).add(id);
+            }
+        }
+        if (byOwner.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        List<CompletableFuture<Map<String, CachedItem>>> requests = new ArrayList<>();
+        byOwner.forEach((owner, ids) -> requests.add(fetchFromPeer(owner, ids)));
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<String, CachedItem> found = new HashMap<>();
+                    for (CompletableFuture<Map<String, CachedItem>> request : requests) {
+                        found.putAll(request.join());
+                    }
+                    return found;
+                });
+    }
+
+    /**
+     * Dueña del id según el anillo actual (para diagnóstico y tests).
+     */
+    public String ownerOf(String itemId) {
+        return ring.ownerOf(itemId);
+    }
+
+    public Map<String, Object> statsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("self", self);
+        snapshot.put("peers", ring.getPeers());
+        snapshot.put("hits", (long) hits.count());
+        snapshot.put("misses", (long) misses.count());
+        snapshot.put("errors", (long) errors.count());
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Map<String, CachedItem>> fetchFromPeer(String peer, List<String> ids) {
+        long start = System.nanoTime();
+        return webClient.get()
+                .uri(peer + PEER_ITEMS_PATH + "?ids={ids}", String.join(",", ids))
+                .retrieve()
+                .bodyToFlux(PeerItemPrice.class)
+                .collectList()
+                .timeout(timeout)
+                .toFuture()
+                .handle((prices, error) -> {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (error != null) {
+                        errors.increment();
+                        System.err.println("Peer " + peer + " no respondió: " + error.getMessage());
+                        return Map.of();
+                    }
+                    Set<String> requested = new LinkedHashSet<>(ids);
+                    Map<String, CachedItem> found = new HashMap<>();
+                    long nowNanos = System.nanoTime();
+                    for (PeerItemPrice price : prices) {
+                        if (price.getId() != null && price.getPrice() != null && requested.contains(price.getId())) {
+                            long ageNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, price.getAgeMillis()));
+                            found.put(price.getId(),
+                                      new CachedItem(new Item(price.getId(), price.getPrice()), nowNanos - ageNanos));
+                        }
+                    }
+                    hits.increment(found.size());
+                    misses.increment(ids.size() - found.size());
+                    return found;
+                });
+    }
+
+    private synchronized void reloadPeers() {
+        Set<String> peers = new LinkedHashSet<>();
+        peers.add(self);
+        for (String peer : staticPeers) {
+            if (!peer.isBlank()) {
+                peers.add(normalize(peer));
+            }
+        }
+        if (peersFile != null) {
+            try {
+                long modified = Files.getLastModifiedTime(peersFile).toMillis();
+                if (modified == peersFileModified && ring != null) {
+                    return;
+                }
+                for (String line : Files.readAllLines(peersFile)) {
+                    String peer = line.trim();
+                    if (!peer.isEmpty() && !peer.startsWith("#")) {
+                        peers.add(normalize(peer));
+                    }
+                }
+                peersFileModified = modified;
+            } catch (IOException e) {
+                System.err.println("No se pudo leer el archivo de peers " + peersFile + ": " + e.getMessage());
+                if (ring != null) {
+                    // Se sigue con el anillo anterior
+                    return;
+                }
+            }
+        }
+        PeerRing previous = ring;
+        ring = new PeerRing(peers, virtualNodes);
+        if (previous != null && !previous.getPeers().equals(ring.getPeers())) {
+            System.out.println("Anillo de caches actualizado: " + ring.getPeers());
+        }
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mercadolibre.coupon.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Anillo de hashing consistente: asigna cada id a una instancia dueña.
+ *
+ * Cada instancia ocupa varios puntos del anillo (nodos virtuales) para repartir los ids
+ * parejo; al sumar o sacar una instancia solo cambian de dueño los ids de sus tramos.
+ * Inmutable: cuando cambian los peers se arma uno nuevo.
+ */
+final class PeerRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> peers;
+
+    PeerRing(Collection<String> peers, int virtualNodes) {
+        this.peers = List.copyOf(peers);
+        for (String peer : this.peers) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                ring.put(BloomFilter.hash64(peer + "#" + i), peer);
+            }
+        }
+    }
+
+    /**
+     * Instancia dueña del id, o null si el anillo está vacío.
+     */
+    String ownerOf(String itemId) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = ring.ceilingEntry(BloomFilter.hash64(itemId));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    List<String> getPeers() {
+        return peers;
+    }
+}
@@ -0,0 +1,389 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot en disco del cache de precios, para que una instancia nueva (autoscaling o
+ * redeploy) arranque con el cache caliente en lugar de vacío.
+ *
+ * El archivo es binario y de solo agregado: cada id se escribe una vez (registro ID, que
+ * le asigna un índice) y después cada precio es un registro de tamaño fijo con el índice,
+ * el precio en centavos, el momento de la consulta y el TTL duro de la entrada (0 = el
+ * configurado). Cada snapshot periódico agrega solo
+ * lo que cambió desde el anterior (precios nuevos y bajas); cuando los registros superan
+ * compact-ratio veces las entradas vigentes, se reescribe el archivo solo con estas.
+ *
+ * Al arrancar se lee mapeado en memoria y se cargan las entradas que todavía no pasaron su
+ * TTL duro, con su antigüedad real y ese TTL. Los archivos del formato anterior, sin TTL por
+ * entrada, se cargan con el TTL configurado. Un registro final incompleto (corte a mitad de una
+ * escritura) se ignora.
+ */
+@Component
+public class PriceSnapshotStore {
+
+    private static final int MAGIC = 0x43505332; // "CPS2"
+    private static final int MAGIC_WITHOUT_TTL = 0x43505331; // "CPS1"
+    private static final byte ID_RECORD = 1;
+    private static final byte PRICE_RECORD = 2;
+    private static final byte REMOVE_RECORD = 3;
+    // Por debajo de esta cantidad de registros no vale la pena compactar
+    private static final long MIN_RECORDS_TO_COMPACT = 10_000;
+
+    private final ItemPriceCache itemCache;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration interval;
+    private final double compactRatio;
+    private ScheduledExecutorService scheduler;
+
+    // Estado del archivo actual; solo se toca con el lock del objeto tomado
+    private final Map<String, Integer> internedIds = new HashMap<>();
+    private final Map<String, Long> writtenFetchedAt = new HashMap<>();
+    private long recordCount;
+    // Tras una escritura fallida el archivo ya no coincide con internedIds: se reescribe entero
+    private boolean mustRewrite;
+    private volatile long lastLoaded;
+    private volatile long lastSkippedExpired;
+
+    private final Timer writeTimer;
+    private final Counter recordsWritten;
+
+    public PriceSnapshotStore(ItemPriceCache itemCache,
+                              @Value("${meli.cache.snapshot.enabled:false}") boolean enabled,
+                              @Value("${meli.cache.snapshot.path:/tmp/coupon-price-snapshot.bin}") String path,
+                              @Value("${meli.cache.snapshot.interval:30s}") Duration interval,
+                              @Value("${meli.cache.snapshot.compact-ratio:2.0}") double compactRatio,
+                              MeterRegistry meterRegistry) {
+        this.itemCache = itemCache;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.interval = interval;
+        this.compactRatio = Math.max(1.0, compactRatio);
+
+        this.writeTimer = Timer.builder("meli.cache.snapshot.write")
+                .description("Duración de cada snapshot del cache de precios")
+                .register(meterRegistry);
+        this.recordsWritten = Counter.builder("meli.cache.snapshot.records")
+                .description("Registros de precios escritos en el snapshot")
+                .register(meterRegistry);
+        Gauge.builder("meli.cache.snapshot.bytes", this, store -> store.fileBytes())
+                .description("Tamaño del archivo de snapshot")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo cargar el snapshot de precios " + path + ": " + e.getMessage());
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meli-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, interval.toMillis());
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            // Último snapshot para que la próxima instancia arranque con lo más reciente
+            snapshotQuietly();
+        }
+    }
+
+    /**
+     * Carga el snapshot en el cache (sin las entradas vencidas) y lo compacta. Devuelve la
+     * cantidad de precios cargados.
+     */
+    public synchronized int load() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        List<String> ids = new ArrayList<>();
+        Map<String, long[]> latest = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = buffer.remaining() < 4 ? 0 : buffer.getInt();
+            if (magic != MAGIC && magic != MAGIC_WITHOUT_TTL) {
+                System.err.println("Snapshot de precios con formato desconocido, se ignora: " + path);
+                return 0;
+            }
+            readRecords(buffer, magic == MAGIC, ids, latest);
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        int loaded = 0;
+        int expired = 0;
+        for (Map.Entry<String, long[]> entry : latest.entrySet()) {
+            long ageNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, nowMillis - entry.getValue()[1]));
+            Item item = new Item(entry.getKey(), fromCents(entry.getValue()[0]));
+            CachedItem cached = new CachedItem(item, nowNanos - ageNanos,
+                                               TimeUnit.MILLISECONDS.toNanos(entry.getValue()[2]));
+            if (ageNanos >= itemCache.ttlNanos(cached)) {
+                expired++;
+                continue;
+            }
+            itemCache.put(cached);
+            loaded++;
+        }
+        lastLoaded = loaded;
+        lastSkippedExpired = expired;
+        System.out.println("Snapshot de precios cargado: " + loaded + " precios (" + expired + " vencidos descartados)");
+        // Se reescribe sin vencidos ni registros viejos; el próximo snapshot agrega sobre este
+        compact();
+        return loaded;
+    }
+
+    /**
+     * Agrega al archivo los cambios desde el snapshot anterior, o lo reescribe entero si no
+     * existe o si ya acumula demasiados registros viejos.
+     */
+    public synchronized void snapshot() throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (mustRewrite || !Files.exists(path) || recordCount > Math.max(MIN_RECORDS_TO_COMPACT,
+                    (long) (compactRatio * writtenFetchedAt.size()))) {
+                compact();
+            } else {
+                appendChanges();
+            }
+            mustRewrite = false;
+        } catch (IOException | RuntimeException e) {
+            mustRewrite = true;
+            throw e;
+        } finally {
+            writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Map<String, Object> statsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("path", path.toString());
+        snapshot.put("bytes", (long) fileBytes());
+        synchronized (this) {
+            snapshot.put("records", recordCount);
+            snapshot.put("entries", writtenFetchedAt.size());
+        }
+        snapshot.put("loadedAtStartup", lastLoaded);
+        snapshot.put("expiredAtStartup", lastSkippedExpired);
+        return snapshot;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo escribir el snapshot de precios " + path + ": " + e.getMessage());
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private void appendChanges() throws IOException {
+        RecordWriter writer = new RecordWriter();
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        Map<String, CachedItem> entries = itemCache.entries();
+        for (Map.Entry<String, CachedItem> entry : entries.entrySet()) {
+            Long written = writtenFetchedAt.get(entry.getKey());
+            if (written == null || written != entry.getValue().getFetchedAtNanos()) {
+                writer.price(entry.getKey(), entry.getValue(), nowMillis, nowNanos);
+            }
+        }
+        Iterator<String> writtenIds = writtenFetchedAt.keySet().iterator();
+        while (writtenIds.hasNext()) {
+            String id = writtenIds.next();
+            if (!entries.containsKey(id)) {
+                writer.remove(id);
+                writtenIds.remove();
+            }
+        }
+        if (writer.records == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writer.writeTo(channel);
+            channel.force(false);
+        }
+        recordCount += writer.records;
+        recordsWritten.increment(writer.records);
+    }
+
+    // Debe llamarse con el lock tomado
+    private void compact() throws IOException {
+        internedIds.clear();
+        writtenFetchedAt.clear();
+        RecordWriter writer = new RecordWriter();
+        writer.buffer.putInt(MAGIC);
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        for (Map.Entry<String, CachedItem> entry : itemCache.entries().entrySet()) {
+            writer.price(entry.getKey(), entry.getValue(), nowMillis, nowNanos);
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.writeTo(channel);
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordCount = writer.records;
+        recordsWritten.increment(writer.records);
+    }
+
+    private static void readRecords(ByteBuffer buffer, boolean withTtl, List<String> ids, Map<String, long[]> latest) {
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (type == ID_RECORD) {
+                    byte[] id = new byte[buffer.getShort() & 0xffff];
+                    buffer.get(id);
+                    ids.add(new String(id, StandardCharsets.UTF_8));
+                } else if (type == PRICE_RECORD) {
+                    int index = buffer.getInt();
+                    long cents = buffer.getLong();
+                    long fetchedAtMillis = buffer.getLong();
+                    int ttlMillis = withTtl ? buffer.getInt() : 0;
+                    latest.put(ids.get(index), new long[]{cents, fetchedAtMillis, ttlMillis});
+                } else if (type == REMOVE_RECORD) {
+                    latest.remove(ids.get(buffer.getInt()));
+                } else {
+                    System.err.println("Snapshot de precios con un registro desconocido; se carga hasta ahí");
+                    return;
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException truncated) {
+            // Escritura cortada a la mitad: vale lo leído hasta el último registro completo
+        }
+    }
+
+    private long fileBytes() {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Precio en centavos, o null si no se puede representar así (más de dos decimales).
+     */
+    static Long toCents(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        try {
+            return price.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return cents % 100 == 0 ? BigDecimal.valueOf(cents / 100) : BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Arma los registros de un snapshot en memoria para escribirlos de una vez.
+     */
+    private class RecordWriter {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        int records;
+
+        void price(String itemId, CachedItem entry, long nowMillis, long nowNanos) {
+            Long cents = toCents(entry.getItem().getPrice());
+            if (cents == null) {
+                return;
+            }
+            int index = intern(itemId);
+            long fetchedAtMillis = nowMillis - TimeUnit.NANOSECONDS.toMillis(nowNanos - entry.getFetchedAtNanos());
+            int ttlMillis = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(entry.getTtlNanos()));
+            ensureCapacity(25);
+            buffer.put(PRICE_RECORD).putInt(index).putLong(cents).putLong(fetchedAtMillis).putInt(ttlMillis);
+            writtenFetchedAt.put(itemId, entry.getFetchedAtNanos());
+            records++;
+        }
+
+        void remove(String itemId) {
+            Integer index = internedIds.get(itemId);
+            if (index == null) {
+                return;
+            }
+            ensureCapacity(5);
+            buffer.put(REMOVE_RECORD).putInt(index);
+            records++;
+        }
+
+        void writeTo(FileChannel channel) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private int intern(String itemId) {
+            Integer index = internedIds.get(itemId);
+            if (index != null) {
+                return index;
+            }
+            byte[] id = itemId.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(3 + id.length);
+            buffer.put(ID_RECORD).putShort((short) id.length).put(id);
+            index = internedIds.size();
+            internedIds.put(itemId, index);
+            return index;
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+}
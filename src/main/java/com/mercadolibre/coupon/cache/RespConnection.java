@@ -0,0 +1,166 @@
+package com.mercadolibre.coupon.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conexión mínima con el protocolo de Redis (RESP2): solo los comandos que usa el cache
+ * compartido. Los comandos de una operación se escriben juntos y las respuestas se leen
+ * después (pipelining), así un lote cuesta un solo viaje de red.
+ *
+ * No es thread-safe: cada conexión la usa un solo hilo a la vez (ver SharedPriceCache).
+ */
+class RespConnection implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    RespConnection(String host, int port, int timeoutMillis, String password) throws IOException {
+        this.socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+            if (password != null && !password.isEmpty()) {
+                writeCommand(bytes("AUTH"), bytes(password));
+                out.flush();
+                readReply();
+            }
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * MGET de las claves; cada posición del resultado es el valor o null si no existe.
+     */
+    List<byte[]> mget(List<byte[]> keys) throws IOException {
+        byte[][] args = new byte[keys.size() + 1][];
+        args[0] = bytes("MGET");
+        for (int i = 0; i < keys.size(); i++) {
+            args[i + 1] = keys.get(i);
+        }
+        writeCommand(args);
+        out.flush();
+        Object reply = readReply();
+        if (!(reply instanceof List<?> values) || values.size() != keys.size()) {
+            throw new IOException("Respuesta inesperada a MGET");
+        }
+        List<byte[]> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value instanceof byte[] data ? data : null);
+        }
+        return result;
+    }
+
+    /**
+     * Un SET ... PX por entrada, todos en un mismo envío. Redis no tiene MSET con TTL.
+     */
+    void setAll(Map<byte[], byte[]> entries, long ttlMillis) throws IOException {
+        byte[] ttl = bytes(Long.toString(ttlMillis));
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            writeCommand(bytes("SET"), entry.getKey(), entry.getValue(), bytes("PX"), ttl);
+        }
+        out.flush();
+        for (int i = 0; i < entries.size(); i++) {
+            readReply();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Se está descartando la conexión
+        }
+    }
+
+    private void writeCommand(byte[]... args) throws IOException {
+        out.write('*');
+        out.write(bytes(Integer.toString(args.length)));
+        out.write(CRLF);
+        for (byte[] arg : args) {
+            out.write('$');
+            out.write(bytes(Integer.toString(arg.length)));
+            out.write(CRLF);
+            out.write(arg);
+            out.write(CRLF);
+        }
+    }
+
+    private Object readReply() throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException("Conexión cerrada por Redis");
+        }
+        switch (type) {
+            case '+':
+                return readLine();
+            case '-':
+                throw new IOException("Error de Redis: " + readLine());
+            case ':':
+                return Long.parseLong(readLine());
+            case '$': {
+                int length = Integer.parseInt(readLine());
+                if (length < 0) {
+                    return null;
+                }
+                byte[] data = in.readNBytes(length);
+                if (data.length != length || in.read() != '\r' || in.read() != '\n') {
+                    throw new EOFException("Respuesta de Redis truncada");
+                }
+                return data;
+            }
+            case '*': {
+                int count = Integer.parseInt(readLine());
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readReply());
+                }
+                return values;
+            }
+            default:
+                throw new IOException("Tipo de respuesta de Redis desconocido: " + (char) type);
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                throw new EOFException("Respuesta de Redis truncada");
+            }
+            line.append((char) c);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("Respuesta de Redis mal formada");
+        }
+        return line.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
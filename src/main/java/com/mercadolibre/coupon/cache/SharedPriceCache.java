@@ -0,0 +1,301 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache de precios compartido entre instancias (L2), en un servidor con protocolo Redis.
+ *
+ * Se consulta detrás del cache local: un miss local que otra instancia ya consultó se
+ * resuelve con un MGET en lugar de una llamada a MercadoLibre, y lo que se obtiene de la
+ * API se publica con SETs en un mismo envío. Las entradas se guardan en binario compacto
+ * (precio y momento de la consulta) para que el TTL blando siga valiendo entre instancias.
+ *
+ * Es opcional (meli.cache.l2.enabled) y nunca bloquea ni hace fallar un request: si el
+ * servidor no responde, se sigue como si fuera un miss y no se vuelve a intentar hasta
+ * pasado meli.cache.l2.retry-interval.
+ */
+@Component
+public class SharedPriceCache {
+
+    // Formato de las entradas: versión, momento de la consulta (epoch ms), escala y valor sin escala
+    private static final byte FORMAT_VERSION = 1;
+
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int timeoutMillis;
+    private final String keyPrefix;
+    private final long ttlMillis;
+    private final long retryIntervalNanos;
+
+    private final BlockingQueue<RespConnection> idleConnections;
+    private final ThreadPoolExecutor executor;
+    private volatile long unavailableUntilNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+    private final Counter skipped;
+    private final Timer latency;
+
+    public SharedPriceCache(@Value("${meli.cache.l2.enabled:false}") boolean enabled,
+                            @Value("${meli.cache.l2.host:localhost}") String host,
+                            @Value("${meli.cache.l2.port:6379}") int port,
+                            @Value("${meli.cache.l2.password:}") String password,
+                            @Value("${meli.cache.l2.timeout:50ms}") Duration timeout,
+                            @Value("${meli.cache.l2.pool-size:8}") int poolSize,
+                            @Value("${meli.cache.l2.key-prefix:coupon:item:}") String keyPrefix,
+                            @Value("${meli.cache.l2.ttl:10m}") Duration ttl,
+                            @Value("${meli.cache.l2.retry-interval:5s}") Duration retryInterval,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.timeoutMillis = (int) Math.max(1, timeout.toMillis());
+        this.keyPrefix = keyPrefix;
+        this.ttlMillis = Math.max(1, ttl.toMillis());
+        this.retryIntervalNanos = retryInterval.toNanos();
+
+        int threads = Math.max(1, poolSize);
+        this.idleConnections = new ArrayBlockingQueue<>(threads);
+        AtomicInteger threadCount = new AtomicInteger();
+        // Un hilo por conexión; la cola acotada hace que, si el L2 se atrasa, se descarten
+        // lecturas (miss) en lugar de acumular requests esperando
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 64), runnable -> {
+                    Thread thread = new Thread(runnable, "meli-l2-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.hits = Counter.builder("meli.items.l2.hits")
+                .description("Precios encontrados en el cache compartido")
+                .register(meterRegistry);
+        this.misses = Counter.builder("meli.items.l2.misses")
+                .description("Precios buscados en el cache compartido y no encontrados")
+                .register(meterRegistry);
+        this.errors = Counter.builder("meli.items.l2.errors")
+                .description("Operaciones fallidas contra el cache compartido")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("meli.items.l2.skipped")
+                .description("Operaciones no hechas por cache compartido no disponible o saturado")
+                .register(meterRegistry);
+        this.latency = Timer.builder("meli.items.l2.latency")
+                .description("Duración de las operaciones contra el cache compartido")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        if (enabled) {
+            System.out.println("Cache compartido (L2) habilitado en " + host + ":" + port);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Busca los ids en el cache compartido. Nunca falla: ante cualquier problema devuelve
+     * lo que haya encontrado (normalmente nada).
+     */
+    public CompletableFuture<Map<String, CachedItem>> getAll(Collection<String> itemIds) {
+        if (!isAvailable() || itemIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        List<String> ids = new ArrayList<>(itemIds);
+        try {
+            return CompletableFuture.supplyAsync(() -> fetchAll(ids), executor);
+        } catch (RejectedExecutionException e) {
+            skipped.increment();
+            return CompletableFuture.completedFuture(Map.of());
+        }
+    }
+
+    /**
+     * Publica precios recién obtenidos de la API, sin esperar la respuesta.
+     */
+    public void putAll(Collection<Item> items) {
+        if (!isAvailable() || items.isEmpty()) {
+            return;
+        }
+        long fetchedAtMillis = System.currentTimeMillis();
+        Map<byte[], byte[]> entries = new LinkedHashMap<>();
+        for (Item item : items) {
+            if (item.getPrice() == null) {
+                continue;
+            }
+            entries.put(key(item.getId()), encode(item.getPrice(), fetchedAtMillis));
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                RespConnection connection = null;
+                try {
+                    connection = borrow();
+                    connection.setAll(entries, ttlMillis);
+                    release(connection);
+                } catch (IOException | RuntimeException e) {
+                    onFailure(connection, e);
+                } finally {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            skipped.increment();
+        }
+    }
+
+    public Map<String, Object> statsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("available", enabled && isAvailable());
+        snapshot.put("hits", (long) hits.count());
+        snapshot.put("misses", (long) misses.count());
+        snapshot.put("errors", (long) errors.count());
+        snapshot.put("skipped", (long) skipped.count());
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        RespConnection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Map<String, CachedItem> fetchAll(List<String> ids) {
+        long start = System.nanoTime();
+        RespConnection connection = null;
+        try {
+            connection = borrow();
+            List<byte[]> keys = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                keys.add(key(id));
+            }
+            List<byte[]> values = connection.mget(keys);
+            release(connection);
+            connection = null;
+
+            Map<String, CachedItem> found = new HashMap<>();
+            long nowMillis = System.currentTimeMillis();
+            long nowNanos = System.nanoTime();
+            for (int i = 0; i < ids.size(); i++) {
+                byte[] value = values.get(i);
+                CachedItem entry = value != null ? decode(ids.get(i), value, nowMillis, nowNanos) : null;
+                if (entry != null) {
+                    found.put(ids.get(i), entry);
+                }
+            }
+            hits.increment(found.size());
+            misses.increment(ids.size() - found.size());
+            return found;
+        } catch (IOException | RuntimeException e) {
+            onFailure(connection, e);
+            misses.increment(ids.size());
+            return Map.of();
+        } finally {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean isAvailable() {
+        if (!enabled) {
+            return false;
+        }
+        if (unavailableUntilNanos != 0 && System.nanoTime() < unavailableUntilNanos) {
+            skipped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private RespConnection borrow() throws IOException {
+        RespConnection connection = idleConnections.poll();
+        return connection != null ? connection : new RespConnection(host, port, timeoutMillis, password);
+    }
+
+    private void release(RespConnection connection) {
+        unavailableUntilNanos = 0;
+        if (!idleConnections.offer(connection)) {
+            connection.close();
+        }
+    }
+
+    private void onFailure(RespConnection connection, Exception e) {
+        errors.increment();
+        if (connection != null) {
+            // Pudo quedar con respuestas sin leer: no se reutiliza
+            connection.close();
+        }
+        if (unavailableUntilNanos == 0) {
+            System.err.println("Cache compartido (L2) no disponible, se sigue sin él: " + e.getMessage());
+        }
+        unavailableUntilNanos = System.nanoTime() + retryIntervalNanos;
+    }
+
+    private byte[] key(String itemId) {
+        return (keyPrefix + itemId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] encode(BigDecimal price, long fetchedAtMillis) {
+        byte[] unscaled = price.unscaledValue().toByteArray();
+        return ByteBuffer.allocate(1 + 8 + 4 + unscaled.length)
+                .put(FORMAT_VERSION)
+                .putLong(fetchedAtMillis)
+                .putInt(price.scale())
+                .put(unscaled)
+                .array();
+    }
+
+    /**
+     * Decodifica una entrada; null si el formato no es el esperado (se trata como miss).
+     * La antigüedad se traslada al reloj local para que el TTL blando se respete.
+     */
+    static CachedItem decode(String itemId, byte[] value, long nowMillis, long nowNanos) {
+        if (value.length < 14 || value[0] != FORMAT_VERSION) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        buffer.get();
+        long fetchedAtMillis = buffer.getLong();
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.remaining()];
+        buffer.get(unscaled);
+        long ageNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, nowMillis - fetchedAtMillis));
+        Item item = new Item(itemId, new BigDecimal(new BigInteger(unscaled), scale));
+        return new CachedItem(item, nowNanos - ageNanos);
+    }
+}
@@ -0,0 +1,143 @@
+package com.mercadolibre.coupon.config;
+
+import com.mercadolibre.coupon.service.CircuitBreaker;
+import com.mercadolibre.coupon.service.HedgingPolicy;
+import com.mercadolibre.coupon.service.OutboundRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.handler.ssl.SslContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.net.ssl.SSLException;
+import java.time.Duration;
+
+/**
+ * Cliente HTTP hacia la API de MercadoLibre.
+ *
+ * A 100K RPM la cola de latencia la dominan los handshakes (TCP + TLS) de conexiones
+ * nuevas, así que el pool se dimensiona y se mantiene caliente: conexiones reutilizadas,
+ * sesiones TLS reanudables, DNS cacheado y transporte nativo epoll si está disponible
+ * (reactor-netty lo usa automáticamente). Las métricas del pool se publican bajo
+ * reactor.netty.connection.provider.* con name=meli (activas, ociosas, pendientes y
+ * tiempo de adquisición).
+ */
+@Configuration
+public class MeliHttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider meliConnectionProvider(
+            @Value("${meli.http.max-connections:200}") int maxConnections,
+            @Value("${meli.http.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${meli.http.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${meli.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${meli.http.max-life-time:5m}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("meli")
+                .maxConnections(maxConnections)
+                // Tope de requests esperando conexión: más allá de esto se falla rápido
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // Cerrar antes de que el balanceador corte la conexión ociosa del otro lado
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient meliWebClient(
+            WebClient.Builder webClientBuilder,
+            ConnectionProvider meliConnectionProvider,
+            @Value("${meli.http.base-url:https://api.mercadolibre.com}") String baseUrl,
+            @Value("${meli.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${meli.http.response-timeout:10s}") Duration responseTimeout,
+            @Value("${meli.http.dns-cache-ttl:60s}") Duration dnsCacheTtl,
+            @Value("${meli.http.http2:false}") boolean http2,
+            @Value("${meli.http.tls-session-cache-size:1024}") long tlsSessionCacheSize) throws SSLException {
+
+        // Un único SslContext compartido por todas las conexiones, con cache de sesiones
+        // para reanudar el handshake en lugar de repetirlo completo
+        SslContext sslContext = (http2 ? Http2SslContextSpec.forClient() : Http11SslContextSpec.forClient())
+                .configure(builder -> builder
+                        .sessionCacheSize(tlsSessionCacheSize)
+                        .sessionTimeout(Duration.ofHours(1).toSeconds()))
+                .sslContext();
+
+        HttpClient httpClient = HttpClient.create(meliConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                .resolver(spec -> spec.cacheMaxTimeToLive(dnsCacheTtl))
+                .secure(spec -> spec.sslContext(sslContext))
+                .protocol(http2 ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                                : new HttpProtocol[]{HttpProtocol.HTTP11})
+                // Se agrupan los ids en la URI para no crear una métrica por item
+                .metrics(true, MeliHttpClientConfig::uriTag);
+
+        System.out.println("Cliente HTTP de MercadoLibre: transporte "
+                + (Epoll.isAvailable() ? "epoll" : "NIO") + (http2 ? ", HTTP/2" : ", HTTP/1.1"));
+
+        return webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // NO se agrega Authorization header aquí - se agrega dinámicamente
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
+                .build();
+    }
+
+    @Bean
+    public CircuitBreaker meliCircuitBreaker(
+            @Value("${meli.circuit-breaker.window-size:100}") int windowSize,
+            @Value("${meli.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${meli.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+            @Value("${meli.circuit-breaker.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+            @Value("${meli.circuit-breaker.slow-call-duration:2s}") Duration slowCallDuration,
+            @Value("${meli.circuit-breaker.wait-in-open:10s}") Duration waitInOpen,
+            @Value("${meli.circuit-breaker.half-open-calls:5}") int halfOpenCalls,
+            MeterRegistry meterRegistry) {
+        return new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold,
+                slowCallDuration, waitInOpen, halfOpenCalls, meterRegistry);
+    }
+
+    @Bean
+    public HedgingPolicy meliHedgingPolicy(
+            @Value("${meli.items.hedge.enabled:true}") boolean enabled,
+            @Value("${meli.items.hedge.percentile:0.95}") double percentile,
+            @Value("${meli.items.hedge.initial-delay:250ms}") Duration initialDelay,
+            @Value("${meli.items.hedge.min-delay:20ms}") Duration minDelay,
+            @Value("${meli.items.hedge.budget-ratio:0.05}") double budgetRatio,
+            @Value("${meli.items.hedge.max-burst:10}") int maxBurst,
+            MeterRegistry meterRegistry) {
+        return new HedgingPolicy(enabled, percentile, initialDelay, minDelay, budgetRatio, maxBurst, meterRegistry);
+    }
+
+    @Bean
+    public OutboundRateLimiter meliRateLimiter(
+            @Value("${meli.http.rate-limit.permits-per-second:100}") double permitsPerSecond,
+            @Value("${meli.http.rate-limit.burst:200}") int burst,
+            @Value("${meli.http.rate-limit.max-queue:1000}") int maxQueue,
+            @Value("${meli.http.rate-limit.max-wait:2s}") Duration maxWait,
+            @Value("${meli.http.rate-limit.max-retries:2}") int maxRetries,
+            @Value("${meli.http.rate-limit.retry-base-delay:100ms}") Duration retryBaseDelay,
+            @Value("${meli.http.rate-limit.retry-budget-ratio:0.1}") double retryBudgetRatio,
+            MeterRegistry meterRegistry) {
+        return new OutboundRateLimiter(permitsPerSecond, burst, maxQueue, maxWait, maxRetries,
+                retryBaseDelay, retryBudgetRatio, meterRegistry);
+    }
+
+    static String uriTag(String uri) {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        return path.startsWith("/items/") ? "/items/{itemId}" : path;
+    }
+}
@@ -3,6 +3,7 @@ package com.mercadolibre.coupon.controller;
 import com.mercadolibre.coupon.dto.AccessTokenRequest;
 import com.mercadolibre.coupon.dto.AccessTokenResponse;
 import com.mercadolibre.coupon.service.MeliAuthService;
+import com.mercadolibre.coupon.service.MeliTokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,11 +19,13 @@ public class AuthController {
 
     private final MeliAuthService meliAuthService; 
 
-    private static AccessTokenResponse currentAccessToken;
+    // Guarda el token vigente y lo renueva antes de que venza
+    private final MeliTokenManager tokenManager;
 
     @Autowired
-    public AuthController(MeliAuthService meliAuthService) { 
+    public AuthController(MeliAuthService meliAuthService, MeliTokenManager tokenManager) { 
         this.meliAuthService = meliAuthService;
+        this.tokenManager = tokenManager;
     }
 
     @GetMapping("/authorization-url")
@@ -72,8 +75,8 @@ public class AuthController {
             // Intercambia el código por el access token
             AccessTokenResponse tokenResponse = meliAuthService.exchangeCodeForAccessToken(code);
             
-            // Guarda el token globalmente para uso en otros servicios (SOLO DEMOSTRACIÓN)
-            currentAccessToken = tokenResponse;
+            // Guarda el token para los demás servicios y programa su renovación
+            tokenManager.setToken(tokenResponse);
 
             System.out.println("------------------------------------");
             System.out.println("¡Access Token obtenido exitosamente desde callback!");
@@ -107,7 +110,7 @@ public class AuthController {
     public ResponseEntity<AccessTokenResponse> exchangeCodeForAccessToken(@RequestBody AccessTokenRequest request) {
         try {
             AccessTokenResponse tokenResponse = meliAuthService.exchangeCodeForAccessToken(request.getCode());
-            currentAccessToken = tokenResponse;
+            tokenManager.setToken(tokenResponse);
 
             System.out.println("------------------------------------");
             System.out.println("¡Access Token obtenido exitosamente!");
@@ -133,8 +136,8 @@ public class AuthController {
         try {
             AccessTokenResponse newToken = meliAuthService.refreshAccessToken(request.getRefreshToken());
 
-            // Actualiza el token almacenado (para demostración)
-            currentAccessToken = newToken;
+            // Actualiza el token almacenado y reprograma su renovación
+            tokenManager.setToken(newToken);
 
             System.out.println("------------------------------------");
             System.out.println("¡Token de Acceso refrescado exitosamente!");
@@ -153,13 +156,10 @@ public class AuthController {
 
     @GetMapping("/current-token")
     public ResponseEntity<AccessTokenResponse> getCurrentToken() {
+        AccessTokenResponse currentAccessToken = tokenManager.getToken();
         if (currentAccessToken != null) {
             return ResponseEntity.ok(currentAccessToken);
         }
         return ResponseEntity.notFound().build();
     }
-
-    public static AccessTokenResponse getCurrentAccessTokenForService() {
-        return currentAccessToken;
-    }
 }
\ No newline at end of file
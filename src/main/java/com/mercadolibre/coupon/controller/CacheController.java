@@ -0,0 +1,123 @@
+package com.mercadolibre.coupon.controller;
+
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.cache.HotItemTracker;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.cache.NegativeItemCache;
+import com.mercadolibre.coupon.cache.PeerCacheClient;
+import com.mercadolibre.coupon.cache.PriceSnapshotStore;
+import com.mercadolibre.coupon.cache.SharedPriceCache;
+import com.mercadolibre.coupon.dto.PeerItemPrice;
+import com.mercadolibre.coupon.service.MeliItemService;
+import com.mercadolibre.coupon.service.PriceImporter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/coupon/cache")
+public class CacheController {
+
+    private final ItemPriceCache itemCache;
+    private final NegativeItemCache negativeCache;
+    private final SharedPriceCache sharedCache;
+    private final PeerCacheClient peerCache;
+    private final PriceSnapshotStore snapshotStore;
+    private final MeliItemService meliItemService;
+    private final PriceImporter priceImporter;
+    private final HotItemTracker hotItems;
+
+    public CacheController(ItemPriceCache itemCache, NegativeItemCache negativeCache,
+                           SharedPriceCache sharedCache, PeerCacheClient peerCache,
+                           PriceSnapshotStore snapshotStore, MeliItemService meliItemService,
+                           PriceImporter priceImporter, HotItemTracker hotItems) {
+        this.itemCache = itemCache;
+        this.negativeCache = negativeCache;
+        this.sharedCache = sharedCache;
+        this.peerCache = peerCache;
+        this.snapshotStore = snapshotStore;
+        this.meliItemService = meliItemService;
+        this.priceImporter = priceImporter;
+        this.hotItems = hotItems;
+    }
+
+    // Estadísticas del cache de precios (también disponibles en /actuator/metrics/cache.*)
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(itemCache.statsSnapshot());
+        stats.put("negative", negativeCache.statsSnapshot());
+        stats.put("shared", sharedCache.statsSnapshot());
+        stats.put("peers", peerCache.statsSnapshot());
+        stats.put("snapshot", snapshotStore.statsSnapshot());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Consulta de otra instancia del anillo de caches (ver PeerCacheClient). Se resuelve solo
+    // con el caché local y la API, sin reenviarla a otra instancia. Solo se devuelven precios
+    // vigentes; lo que no se pudo resolver queda afuera y la otra instancia va a la API.
+    @GetMapping("/peer/items")
+    public CompletableFuture<List<PeerItemPrice>> peerItems(@RequestParam("ids") List<String> itemIds) {
+        return meliItemService.getItemsPricesLocally(itemIds)
+                .thenApply(items -> items.stream()
+                        .filter(item -> item.getPrice() != null && item.getPrice().signum() > 0 && !item.isStale())
+                        .map(item -> new PeerItemPrice(item.getId(), item.getPrice(), ageMillis(item.getId())))
+                        .collect(Collectors.toList()))
+                .exceptionally(error -> List.of());
+    }
+
+    // Carga masiva de un export de precios (archivo dentro de meli.cache.import.directory).
+    // Responde al terminar; el avance se puede seguir con GET /coupon/cache/import.
+    @PostMapping("/import")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> importPrices(@RequestParam("file") String file) {
+        try {
+            return priceImporter.importFromDirectory(file).thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage())));
+        }
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<Map<String, Object>> importStatus() {
+        return ResponseEntity.ok(priceImporter.statusSnapshot());
+    }
+
+    // Los items más pedidos según el sketch de heavy hitters, con el estado de su entrada.
+    // El conteo es una cota superior; el real está entre count - error y count.
+    @GetMapping("/hot-items")
+    public ResponseEntity<List<Map<String, Object>>> hotItems(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        Map<String, CachedItem> entries = itemCache.entries();
+        List<Map<String, Object>> result = hotItems.top(Math.min(Math.max(limit, 0), 1000)).stream()
+                .map(hot -> {
+                    CachedItem entry = entries.get(hot.getId());
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", hot.getId());
+                    item.put("count", hot.getCount());
+                    item.put("error", hot.getError());
+                    item.put("pinned", itemCache.isPinned(hot.getId()));
+                    item.put("cached", entry != null);
+                    item.put("ageMillis", entry != null ? TimeUnit.NANOSECONDS.toMillis(entry.ageNanos()) : null);
+                    return item;
+                })
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(result);
+    }
+
+    private long ageMillis(String itemId) {
+        CachedItem entry = itemCache.getEntry(itemId);
+        return entry != null ? TimeUnit.NANOSECONDS.toMillis(entry.ageNanos()) : 0;
+    }
+}
@@ -1,11 +1,13 @@
 package com.mercadolibre.coupon.controller;
 
+import com.mercadolibre.coupon.dto.CouponAlternative;
 import com.mercadolibre.coupon.dto.CouponRequest;
 import com.mercadolibre.coupon.dto.CouponResponse;
 import com.mercadolibre.coupon.model.Item;
 import com.mercadolibre.coupon.service.CouponOptimizationService;
 import com.mercadolibre.coupon.service.MeliItemService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,6 +16,7 @@ import jakarta.validation.Valid;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/coupon")
@@ -26,14 +29,15 @@ public class CouponController {
     @Autowired
     private CouponOptimizationService optimizationService;
     
+    // Desde esta cantidad de ids (más de un multiget) se resuelve a medida que llegan los precios
+    @Value("${meli.coupon.pipeline.min-items:21}")
+    private int pipelineMinItems;
+    
     @PostMapping
     public CompletableFuture<ResponseEntity<CouponResponse>> calculateOptimalItems(
             @Valid @RequestBody CouponRequest request) {
         
-        String accessToken = AuthController.getCurrentAccessTokenForService() != null ?
-                             AuthController.getCurrentAccessTokenForService().getAccessToken() : null;
-
-        if (accessToken == null || accessToken.isEmpty()) {
+        if (!meliItemService.hasValidToken()) {
             System.err.println("Error: Access Token no disponible para la solicitud de cupón. Por favor, realiza el flujo de OAuth.");
             return CompletableFuture.completedFuture(
                 ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -43,21 +47,100 @@ public class CouponController {
 
         // Llamamos a MeliItemService.getItemsPrices sin pasar el accessToken,
         // ya que MeliItemService ahora lo obtiene internamente.
+        int alternatives = request.getAlternatives() != null ? request.getAlternatives() : 0;
+
+        if (request.getItemIds().size() >= pipelineMinItems) {
+            return calculatePipelined(request, alternatives);
+        }
         return meliItemService.getItemsPrices(request.getItemIds())
                 .thenApply(items -> {
+                    System.out.println("Items recuperados para optimización: " + items);
+                    if (alternatives > 0) {
+                        return ResponseEntity.ok(markStale(
+                                buildResponseWithAlternatives(items, request.getAmount(), alternatives), items));
+                    }
                     List<String> optimalItemIds = optimizationService
                             .findOptimalItems(items, request.getAmount());
-                    System.out.println("Items recuperados para optimización: " + items);
                     BigDecimal total = calculateTotal(items, optimalItemIds);
                     
                     CouponResponse response = new CouponResponse(optimalItemIds, total);
-                    return ResponseEntity.ok(response);
+                    return ResponseEntity.ok(markStale(response, items));
                 })
-                .exceptionally(throwable -> {
-                    System.err.println("Error en calculateOptimalItems: " + throwable.getMessage());
-                    return ResponseEntity.internalServerError()
-                            .body(new CouponResponse(List.of(), BigDecimal.ZERO));
-                });
+                .exceptionally(this::errorResponse);
+    }
+    
+    /**
+     * Carritos grandes: los precios llegan en varios multigets y el optimizador va sumando
+     * cada item apenas llega, así la latencia se acerca al máximo entre traer los precios y
+     * resolver, en lugar de la suma de ambos.
+     */
+    private CompletableFuture<ResponseEntity<CouponResponse>> calculatePipelined(CouponRequest request, int alternatives) {
+        return optimizationService.findOptimalSolutionsAsArriving(
+                        meliItemService.streamItemsPrices(request.getItemIds()),
+                        request.getItemIds().size(), request.getAmount(), alternatives + 1)
+                .map(solved -> {
+                    List<Item> items = solved.getItems();
+                    System.out.println("Items recuperados para optimización: " + items);
+                    CouponResponse response;
+                    if (alternatives > 0) {
+                        response = buildResponseWithAlternatives(items, solved.getSolutions());
+                    } else {
+                        List<String> optimalItemIds = solved.getSolutions().isEmpty()
+                                ? List.of() : solved.getSolutions().get(0);
+                        response = new CouponResponse(optimalItemIds, calculateTotal(items, optimalItemIds));
+                    }
+                    return ResponseEntity.ok(markStale(response, items));
+                })
+                .toFuture()
+                .exceptionally(this::errorResponse);
+    }
+    
+    private ResponseEntity<CouponResponse> errorResponse(Throwable throwable) {
+        System.err.println("Error en calculateOptimalItems: " + throwable.getMessage());
+        return ResponseEntity.internalServerError()
+                .body(new CouponResponse(List.of(), BigDecimal.ZERO));
+    }
+    
+    /**
+     * Resuelve una sola vez y arma la respuesta con la combinación óptima más
+     * hasta "alternatives" combinaciones alternativas, de mayor a menor total.
+     */
+    private CouponResponse buildResponseWithAlternatives(List<Item> items, BigDecimal amount, int alternatives) {
+        return buildResponseWithAlternatives(items, optimizationService.findOptimalSolutions(items, amount, alternatives + 1));
+    }
+    
+    private CouponResponse buildResponseWithAlternatives(List<Item> items, List<List<String>> solutions) {
+        if (solutions.isEmpty()) {
+            CouponResponse response = new CouponResponse(List.of(), BigDecimal.ZERO);
+            response.setAlternatives(List.of());
+            return response;
+        }
+        
+        List<String> optimalItemIds = solutions.get(0);
+        CouponResponse response = new CouponResponse(optimalItemIds, calculateTotal(items, optimalItemIds));
+        response.setAlternatives(solutions.subList(1, solutions.size()).stream()
+                .map(ids -> new CouponAlternative(ids, calculateTotal(items, ids)))
+                .collect(Collectors.toList()));
+        return response;
+    }
+    
+    /**
+     * Marca la respuesta si se armó con precios viejos (API de MercadoLibre caída) e informa
+     * los ids que no se pudieron resolver.
+     */
+    private CouponResponse markStale(CouponResponse response, List<Item> items) {
+        if (items.stream().anyMatch(Item::isStale)) {
+            response.setStale(true);
+        }
+        List<String> unresolved = items.stream()
+                .filter(Item::isUnresolved)
+                .map(Item::getId)
+                .distinct()
+                .collect(Collectors.toList());
+        if (!unresolved.isEmpty()) {
+            response.setUnresolvedItemIds(unresolved);
+        }
+        return response;
     }
     
     private BigDecimal calculateTotal(List<Item> items, List<String> selectedIds) {
@@ -0,0 +1,29 @@
+package com.mercadolibre.coupon.controller;
+
+import com.mercadolibre.coupon.dto.MeliNotification;
+import com.mercadolibre.coupon.service.ItemNotificationProcessor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/coupon/notifications")
+public class NotificationController {
+
+    private final ItemNotificationProcessor notificationProcessor;
+
+    public NotificationController(ItemNotificationProcessor notificationProcessor) {
+        this.notificationProcessor = notificationProcessor;
+    }
+
+    // Callback de notificaciones de Mercado Libre (tema "items"). Se responde 200 enseguida,
+    // aunque la notificación se descarte: cualquier otra respuesta hace que Mercado Libre
+    // la reintente. El cache se actualiza después, en segundo plano.
+    @PostMapping
+    public ResponseEntity<Void> receive(@RequestBody MeliNotification notification) {
+        notificationProcessor.accept(notification);
+        return ResponseEntity.ok().build();
+    }
+}
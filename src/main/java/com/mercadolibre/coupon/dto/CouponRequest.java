@@ -5,9 +5,11 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 
 public class CouponRequest {
     
@@ -19,6 +21,11 @@ public class CouponRequest {
     @Positive(message = "La cantidad debe ser un numero positivo")
     private BigDecimal amount;
     
+    // Opcional: cantidad de combinaciones alternativas a devolver además de la óptima
+    @PositiveOrZero(message = "La cantidad de alternativas no puede ser negativa")
+    @Max(value = 10, message = "Se pueden pedir hasta 10 alternativas")
+    private Integer alternatives;
+    
     public CouponRequest() {}
     
     public CouponRequest(List<String> itemIds, BigDecimal amount) {
@@ -31,4 +38,7 @@ public class CouponRequest {
     
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
+    
+    public Integer getAlternatives() { return alternatives; }
+    public void setAlternatives(Integer alternatives) { this.alternatives = alternatives; }
 }
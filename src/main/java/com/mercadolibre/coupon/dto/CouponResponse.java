@@ -1,5 +1,6 @@
 package com.mercadolibre.coupon.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
 import java.util.List;
@@ -10,6 +11,20 @@ public class CouponResponse {
     
     private BigDecimal total;
     
+    // Solo presente cuando el request pidió alternativas
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CouponAlternative> alternatives;
+    
+    // true si algún precio es el último conocido porque la API de MercadoLibre no respondió
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
+    
+    // Ids cuyo precio no se pudo obtener (error transitorio de la API y sin precio conocido):
+    // quedaron afuera del cálculo con precio 0, aunque el item exista
+    @JsonProperty("unresolved_item_ids")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> unresolvedItemIds;
+    
     public CouponResponse() {}
     
     public CouponResponse(List<String> itemIds, BigDecimal total) {
@@ -22,4 +37,13 @@ public class CouponResponse {
     
     public BigDecimal getTotal() { return total; }
     public void setTotal(BigDecimal total) { this.total = total; }
+    
+    public List<CouponAlternative> getAlternatives() { return alternatives; }
+    public void setAlternatives(List<CouponAlternative> alternatives) { this.alternatives = alternatives; }
+    
+    public Boolean getStale() { return stale; }
+    public void setStale(Boolean stale) { this.stale = stale; }
+    
+    public List<String> getUnresolvedItemIds() { return unresolvedItemIds; }
+    public void setUnresolvedItemIds(List<String> unresolvedItemIds) { this.unresolvedItemIds = unresolvedItemIds; }
 }
\ No newline at end of file
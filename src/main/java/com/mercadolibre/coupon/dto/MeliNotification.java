@@ -0,0 +1,49 @@
+package com.mercadolibre.coupon.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Notificación de Mercado Libre: avisa que cambió un recurso (p. ej. "/items/MLA123"),
+ * sin traer el cambio en sí.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MeliNotification {
+    @JsonProperty("_id")
+    private String id;
+    @JsonProperty("resource")
+    private String resource;
+    @JsonProperty("topic")
+    private String topic;
+    @JsonProperty("user_id")
+    private Long userId;
+    @JsonProperty("application_id")
+    private Long applicationId;
+    @JsonProperty("attempts")
+    private Integer attempts;
+
+    public MeliNotification() {}
+
+    public MeliNotification(String resource, String topic) {
+        this.resource = resource;
+        this.topic = topic;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getResource() { return resource; }
+    public void setResource(String resource) { this.resource = resource; }
+
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getApplicationId() { return applicationId; }
+    public void setApplicationId(Long applicationId) { this.applicationId = applicationId; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+}
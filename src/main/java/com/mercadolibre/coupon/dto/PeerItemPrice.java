@@ -0,0 +1,30 @@
+package com.mercadolibre.coupon.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Precio que una instancia le devuelve a otra del anillo de caches, con la antigüedad
+ * del precio para que el TTL blando siga valiendo en quien lo recibe.
+ */
+public class PeerItemPrice {
+    private String id;
+    private BigDecimal price;
+    private long ageMillis;
+
+    public PeerItemPrice() {}
+
+    public PeerItemPrice(String id, BigDecimal price, long ageMillis) {
+        this.id = id;
+        this.price = price;
+        this.ageMillis = ageMillis;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public long getAgeMillis() { return ageMillis; }
+    public void setAgeMillis(long ageMillis) { this.ageMillis = ageMillis; }
+}
@@ -5,12 +5,29 @@ import java.math.BigDecimal;
 public class Item {
     private String id;
     private BigDecimal price;
+    // true si el precio es el último conocido porque la API no estaba disponible
+    private boolean stale;
+    // true si no se pudo obtener el precio (error transitorio de la API, sin precio conocido):
+    // el precio 0 no significa que el item no exista
+    private boolean unresolved;
     
     public Item(String id, BigDecimal price) {
         this.id = id;
         this.price = price;
     }
     
+    public Item(String id, BigDecimal price, boolean stale) {
+        this(id, price);
+        this.stale = stale;
+    }
+    
+    public Item(String id, BigDecimal price, boolean stale, boolean unresolved) {
+        this(id, price, stale);
+        this.unresolved = unresolved;
+    }
+    
     public String getId() { return id; }
     public BigDecimal getPrice() { return price; }
+    public boolean isStale() { return stale; }
+    public boolean isUnresolved() { return unresolved; }
 }
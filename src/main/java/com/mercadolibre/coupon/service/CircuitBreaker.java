@@ -0,0 +1,208 @@
+package com.mercadolibre.coupon.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker para las llamadas a la API de MercadoLibre.
+ *
+ * Mira las últimas N llamadas (ventana por cantidad): si la tasa de fallas o la de
+ * llamadas lentas supera su umbral, se abre y rechaza al instante durante un tiempo, en
+ * lugar de dejar que cada request espere el timeout completo. Pasado ese tiempo queda
+ * medio abierto y deja pasar unas pocas llamadas de prueba: si todas salen bien se cierra,
+ * si alguna falla vuelve a abrirse.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // Resultados guardados en la ventana circular
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW_SUCCESS = 2;
+    private static final byte SLOW_FAILURE = 3;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    private final byte[] window;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    private final Counter rejected;
+    private final Counter opened;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, Duration slowCallDuration,
+                          Duration waitInOpen, int halfOpenCalls, MeterRegistry meterRegistry) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallDuration,
+             waitInOpen, halfOpenCalls, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                   double slowCallRateThreshold, Duration slowCallDuration,
+                   Duration waitInOpen, int halfOpenCalls, MeterRegistry meterRegistry,
+                   LongSupplier nanoClock) {
+        this.window = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = waitInOpen.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.nanoClock = nanoClock;
+
+        this.rejected = Counter.builder("meli.circuit.rejected")
+                .description("Llamadas rechazadas sin salir por el circuito abierto")
+                .register(meterRegistry);
+        this.opened = Counter.builder("meli.circuit.opened")
+                .description("Veces que se abrió el circuito")
+                .register(meterRegistry);
+        Gauge.builder("meli.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Estado del circuito: 0 cerrado, 1 abierto, 2 medio abierto")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si la llamada puede salir. Si devuelve true, hay que informar el resultado
+     * con onSuccess u onError.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < openNanos) {
+                rejected.increment();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                rejected.increment();
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            // Una prueba lenta tampoco alcanza para dar por recuperada la API
+            if (slow) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(slow ? SLOW_SUCCESS : SUCCESS);
+    }
+
+    public synchronized void onError(long durationNanos) {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(durationNanos >= slowCallNanos ? SLOW_FAILURE : FAILURE);
+    }
+
+    /**
+     * Devuelve un permiso de una llamada que finalmente no salió (p. ej. frenada por el
+     * rate limiter), sin contarla como éxito ni como falla.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    public synchronized State getState() {
+        // Un circuito abierto cuyo tiempo ya venció se reporta medio abierto
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    // Debe llamarse con el lock tomado
+    private void record(byte outcome) {
+        if (state == State.OPEN) {
+            // Llamadas que salieron antes de abrirse: no cambian nada
+            return;
+        }
+        if (recordedCalls == window.length) {
+            forget(window[windowIndex]);
+        } else {
+            recordedCalls++;
+        }
+        window[windowIndex] = outcome;
+        if (outcome == FAILURE || outcome == SLOW_FAILURE) {
+            failures++;
+        }
+        if (outcome == SLOW_SUCCESS || outcome == SLOW_FAILURE) {
+            slowCalls++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (recordedCalls >= minimumCalls) {
+            double failureRate = 100.0 * failures / recordedCalls;
+            double slowCallRate = 100.0 * slowCalls / recordedCalls;
+            if (failureRate >= failureRateThreshold || slowCallRate >= slowCallRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private void forget(byte outcome) {
+        if (outcome == FAILURE || outcome == SLOW_FAILURE) {
+            failures--;
+        }
+        if (outcome == SLOW_SUCCESS || outcome == SLOW_FAILURE) {
+            slowCalls--;
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        opened.increment();
+        System.err.println("Circuit breaker de MercadoLibre ABIERTO: se sirven precios del caché");
+        resetWindow();
+    }
+
+    // Debe llamarse con el lock tomado
+    private void close() {
+        state = State.CLOSED;
+        System.out.println("Circuit breaker de MercadoLibre cerrado: la API respondió bien");
+        resetWindow();
+    }
+
+    // Debe llamarse con el lock tomado
+    private void resetWindow() {
+        windowIndex = 0;
+        recordedCalls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -2,6 +2,10 @@ package com.mercadolibre.coupon.service;
 
 import com.mercadolibre.coupon.model.Item;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -13,13 +17,34 @@ public class CouponOptimizationService {
     private static final int MAX_BUDGET_FOR_DP = 10_000_000; // 100,000 pesos
     private static final int MAX_ITEMS_FOR_DP = 2000;
     private static final long MAX_DP_OPERATIONS = 500_000_000L; // 500M operaciones
+    // Subset-sum disperso: solo conviene si las sumas alcanzables son muchas menos que el presupuesto
+    private static final int MAX_SPARSE_STATES = 1_000_000;
+    private static final int SPARSE_DENSITY_FACTOR = 16;
+    // Tope de combinaciones alternativas por resolución
+    public static final int MAX_SOLUTIONS = 10;
     
     public List<String> findOptimalItems(List<Item> items, BigDecimal maxAmount) {
+        List<List<String>> solutions = findOptimalSolutions(items, maxAmount, 1);
+        return solutions.isEmpty() ? Collections.emptyList() : solutions.get(0);
+    }
+    
+    /**
+     * Devuelve hasta maxSolutions combinaciones distintas, la óptima primero y luego
+     * las alternativas de mayor a menor total. Todas salen de una única resolución.
+     *
+     * @param items Items con sus precios.
+     * @param maxAmount Monto del cupón.
+     * @param maxSolutions Cantidad máxima de combinaciones a devolver (se acota a MAX_SOLUTIONS).
+     * @return Lista de combinaciones de ids; vacía si ningún item entra en el presupuesto.
+     */
+    public List<List<String>> findOptimalSolutions(List<Item> items, BigDecimal maxAmount, int maxSolutions) {
         if (items == null || items.isEmpty() || maxAmount.compareTo(BigDecimal.ZERO) <= 0) {
             return Collections.emptyList();
         }
+        int k = Math.max(1, Math.min(maxSolutions, MAX_SOLUTIONS));
         
-        int maxAmountCents = maxAmount.multiply(BigDecimal.valueOf(100)).intValue();
+        long budgetCents = maxAmount.multiply(BigDecimal.valueOf(100)).longValue();
+        int maxAmountCents = (int) Math.min(budgetCents, Integer.MAX_VALUE);
         
         // Filtrar y convertir items válidos
         List<ItemWithPrice> validItems = items.stream()
@@ -27,7 +52,7 @@ public class CouponOptimizationService {
                            item.getPrice().compareTo(maxAmount) <= 0)
             .map(item -> new ItemWithPrice(
                 item.getId(), 
-                item.getPrice().multiply(BigDecimal.valueOf(100)).intValue()
+                item.getPrice().multiply(BigDecimal.valueOf(100)).longValue()
             ))
             .collect(Collectors.toList());
         
@@ -35,6 +60,45 @@ public class CouponOptimizationService {
             return Collections.emptyList();
         }
         
+        // Primero el subset-sum disperso: exacto y barato cuando hay pocas sumas alcanzables
+        List<List<String>> sparseSolutions = solveSparseSubsetSum(validItems, budgetCents, k);
+        if (sparseSolutions != null) {
+            return sparseSolutions;
+        }
+        return solveDense(validItems, maxAmountCents, k);
+    }
+    
+    /**
+     * Igual que findOptimalSolutions, pero resolviendo a medida que llegan los precios: cada
+     * item se suma a las sumas alcanzables apenas se recibe, así el solver trabaja mientras
+     * siguen llegando los chunks de la API y al recibir el último la respuesta está casi lista.
+     * Si las sumas alcanzables superan el límite del subset-sum disperso, al final se resuelve
+     * con los mismos algoritmos que findOptimalSolutions.
+     *
+     * El trabajo de cada item corre en el scheduler parallel (no en los hilos de red); los
+     * items llegan de a uno, así que el estado no necesita sincronización.
+     *
+     * @param items Items con sus precios, en el orden en que van llegando.
+     * @param expectedItems Cantidad de items que se esperan (acota las sumas alcanzables).
+     * @param maxAmount Monto del cupón.
+     * @param maxSolutions Cantidad máxima de combinaciones a devolver (se acota a MAX_SOLUTIONS).
+     * @return Los items recibidos y sus combinaciones, como en findOptimalSolutions.
+     */
+    public Mono<PipelinedSolution> findOptimalSolutionsAsArriving(Flux<Item> items, int expectedItems,
+                                                                  BigDecimal maxAmount, int maxSolutions) {
+        return Mono.defer(() -> {
+            IncrementalSolve solve = new IncrementalSolve(expectedItems, maxAmount,
+                                                          Math.max(1, Math.min(maxSolutions, MAX_SOLUTIONS)));
+            return items.publishOn(Schedulers.parallel())
+                    .doOnNext(solve::add)
+                    .then(Mono.fromCallable(solve::finish));
+        });
+    }
+    
+    /**
+     * Elige entre el DP denso y el greedy híbrido según el tamaño del problema.
+     */
+    private List<List<String>> solveDense(List<ItemWithPrice> validItems, int maxAmountCents, int k) {
         // Decisión de algoritmo más sofisticada
         long estimatedOperations = (long) validItems.size() * maxAmountCents;
         
@@ -43,17 +107,61 @@ public class CouponOptimizationService {
             estimatedOperations <= MAX_DP_OPERATIONS) {
             
             System.out.println("Usando DP optimizado para " + validItems.size() + " items");
-            return solveOptimizedKnapsack(validItems, maxAmountCents);
+            return solveOptimizedKnapsack(validItems, maxAmountCents, k);
         } else {
             System.out.println("Usando algoritmo híbrido greedy para " + validItems.size() + " items");
-            return solveHybridGreedy(validItems, maxAmountCents);
+            return solveHybridGreedy(validItems, maxAmountCents, k);
+        }
+    }
+    
+    /**
+     * Subset-sum sobre el conjunto disperso de sumas alcanzables.
+     * Se abandona (retorna null) apenas las sumas dejan de ser mucho menos que el presupuesto,
+     * así el intento fallido cuesta una fracción de lo que costaría el DP denso.
+     */
+    private List<List<String>> solveSparseSubsetSum(List<ItemWithPrice> items, long budgetCents, int k) {
+        int maxStates = sparseStateLimit(items.size(), budgetCents);
+        if (maxStates < 1) {
+            return null;
+        }
+        
+        ReachableSums reachable = new ReachableSums(budgetCents, maxStates);
+        for (ItemWithPrice item : items) {
+            if (!reachable.add(item.id, item.cents)) {
+                return null;
+            }
         }
+        
+        System.out.println("Usando subset-sum disperso para " + items.size() + " items ("
+                + reachable.size() + " sumas alcanzables)");
+        return sparseSolutions(reachable, k);
+    }
+    
+    private static int sparseStateLimit(int itemCount, long budgetCents) {
+        return (int) Math.min(
+            Math.min(MAX_SPARSE_STATES, MAX_DP_OPERATIONS / Math.max(1, itemCount)),
+            budgetCents / SPARSE_DENSITY_FACTOR
+        );
+    }
+    
+    /**
+     * Las alternativas son las k mayores sumas alcanzables: totales distintos implican
+     * combinaciones distintas.
+     */
+    private static List<List<String>> sparseSolutions(ReachableSums reachable, int k) {
+        List<List<String>> solutions = new ArrayList<>();
+        for (long sum : reachable.topSums(k)) {
+            List<String> solution = reachable.reconstruct(sum);
+            Collections.sort(solution);
+            solutions.add(solution);
+        }
+        return solutions;
     }
     
     /**
      * Knapsack 0-1 con optimizaciones de memoria
      */
-    private List<String> solveOptimizedKnapsack(List<ItemWithPrice> items, int maxWeight) {
+    private List<List<String>> solveOptimizedKnapsack(List<ItemWithPrice> items, int maxWeight, int k) {
         int n = items.size();
         
         try {
@@ -87,77 +195,78 @@ public class CouponOptimizationService {
                 curr = temp;
             }
             
-            // Reconstruir solución
-            List<String> result = new ArrayList<>();
-            int w = maxWeight;
-            
-            for (int i = n - 1; i >= 0 && w > 0; i--) {
-                if (keep[i][w]) {
-                    result.add(items.get(i).id);
-                    w -= items.get(i).price;
+            // Reconstruir soluciones: en la última fila, w es alcanzable exacto si prev[w] == w.
+            // Las k mayores capacidades alcanzables dan combinaciones distintas.
+            List<List<String>> solutions = new ArrayList<>();
+            for (int target = prev[maxWeight]; target > 0 && solutions.size() < k; target--) {
+                if (prev[target] != target) {
+                    continue;
+                }
+                List<String> result = new ArrayList<>();
+                int w = target;
+                
+                for (int i = n - 1; i >= 0 && w > 0; i--) {
+                    if (keep[i][w]) {
+                        result.add(items.get(i).id);
+                        w -= items.get(i).price;
+                    }
                 }
+                
+                Collections.sort(result);
+                solutions.add(result);
             }
-            
-            Collections.sort(result);
-            return result;
+            return solutions;
             
         } catch (OutOfMemoryError e) {
             System.err.println("DP falló por memoria, usando greedy híbrido");
-            return solveHybridGreedy(items, maxWeight);
+            return solveHybridGreedy(items, maxWeight, k);
         }
     }
     
     /**
      * Algoritmo greedy híbrido más sofisticado
      */
-    private List<String> solveHybridGreedy(List<ItemWithPrice> items, int maxBudget) {
-        List<String> bestSolution = Collections.emptyList();
-        int bestValue = 0;
+    private List<List<String>> solveHybridGreedy(List<ItemWithPrice> items, int maxBudget, int k) {
+        // Cada estrategia aporta una candidata; las que no ganan quedan como alternativas
+        List<List<String>> candidates = new ArrayList<>();
         
         // Estrategia 1: Greedy por eficiencia (precio/peso = 1 en este caso)
-        List<String> greedyEfficient = greedyByEfficiency(items, maxBudget);
-        int efficientValue = calculateTotalValue(greedyEfficient, items);
-        if (efficientValue > bestValue) {
-            bestSolution = greedyEfficient;
-            bestValue = efficientValue;
-        }
+        candidates.add(greedyByEfficiency(items, maxBudget));
         
         // Estrategia 2: Greedy por precio descendente
-        List<String> greedyHigh = greedyByPrice(items, maxBudget, true);
-        int highValue = calculateTotalValue(greedyHigh, items);
-        if (highValue > bestValue) {
-            bestSolution = greedyHigh;
-            bestValue = highValue;
-        }
+        candidates.add(greedyByPrice(items, maxBudget, true));
         
         // Estrategia 3: Greedy por precio ascendente (llenar huecos)
-        List<String> greedyLow = greedyByPrice(items, maxBudget, false);
-        int lowValue = calculateTotalValue(greedyLow, items);
-        if (lowValue > bestValue) {
-            bestSolution = greedyLow;
-            bestValue = lowValue;
-        }
+        candidates.add(greedyByPrice(items, maxBudget, false));
         
         // Estrategia 4: Branch and bound limitado para items más caros
         if (items.size() <= 50) {
-            List<String> branchBoundSolution = limitedBranchAndBound(items, maxBudget);
-            int bbValue = calculateTotalValue(branchBoundSolution, items);
-            if (bbValue > bestValue) {
-                bestSolution = branchBoundSolution;
-                bestValue = bbValue;
-            }
+            candidates.add(limitedBranchAndBound(items, maxBudget));
         }
         
         // Estrategia 5: Combinaciones inteligentes
-        List<String> smartCombination = findSmartCombinations(items, maxBudget);
-        int smartValue = calculateTotalValue(smartCombination, items);
-        if (smartValue > bestValue) {
-            bestSolution = smartCombination;
-            bestValue = smartValue;
+        candidates.add(findSmartCombinations(items, maxBudget));
+        
+        // Ordenar por valor descendente (estable: en empate gana la estrategia anterior)
+        // y descartar combinaciones repetidas o vacías
+        Map<List<String>, Integer> values = new LinkedHashMap<>();
+        for (List<String> candidate : candidates) {
+            List<String> key = new ArrayList<>(candidate);
+            Collections.sort(key);
+            int value = calculateTotalValue(candidate, items);
+            if (value > 0 && !values.containsKey(key)) {
+                values.put(key, value);
+            }
         }
+        List<List<String>> solutions = values.entrySet().stream()
+                .sorted(Map.Entry.<List<String>, Integer>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
         
-        System.out.println("Mejor solución híbrida con valor: " + bestValue);
-        return bestSolution;
+        System.out.println("Mejor solución híbrida con valor: "
+                + (solutions.isEmpty() ? 0 : values.get(solutions.get(0))));
+        return solutions;
     }
     
     private List<String> greedyByEfficiency(List<ItemWithPrice> items, int maxBudget) {
@@ -289,13 +398,91 @@ public class CouponOptimizationService {
                 .sum();
     }
     
+    /**
+     * Resultado de findOptimalSolutionsAsArriving: los items recibidos (en orden de llegada)
+     * y las combinaciones, la óptima primero.
+     */
+    public static class PipelinedSolution {
+        private final List<Item> items;
+        private final List<List<String>> solutions;
+        
+        PipelinedSolution(List<Item> items, List<List<String>> solutions) {
+            this.items = items;
+            this.solutions = solutions;
+        }
+        
+        public List<Item> getItems() { return items; }
+        public List<List<String>> getSolutions() { return solutions; }
+    }
+    
+    /**
+     * Estado de una resolución incremental: las sumas alcanzables se actualizan con cada item
+     * recibido; los items válidos se guardan por si hay que caer al DP denso o al greedy.
+     */
+    private class IncrementalSolve {
+        private final BigDecimal maxAmount;
+        private final long budgetCents;
+        private final int k;
+        private final List<Item> received = new ArrayList<>();
+        private final List<ItemWithPrice> validItems = new ArrayList<>();
+        // Límite calculado con los items esperados: no se sabe cuántos van a resultar válidos
+        private final int maxStates;
+        // null si el presupuesto no admite el subset-sum disperso o si se pasó del límite
+        private ReachableSums reachable;
+        
+        IncrementalSolve(int expectedItems, BigDecimal maxAmount, int k) {
+            this.maxAmount = maxAmount;
+            this.budgetCents = maxAmount.multiply(BigDecimal.valueOf(100)).longValue();
+            this.k = k;
+            this.maxStates = sparseStateLimit(expectedItems, budgetCents);
+            this.reachable = maxStates >= 1 ? new ReachableSums(budgetCents, maxStates) : null;
+        }
+        
+        void add(Item item) {
+            received.add(item);
+            if (item.getPrice().compareTo(BigDecimal.ZERO) <= 0 || item.getPrice().compareTo(maxAmount) > 0) {
+                return;
+            }
+            ItemWithPrice valid = new ItemWithPrice(item.getId(), item.getPrice().multiply(BigDecimal.valueOf(100)).longValue());
+            validItems.add(valid);
+            if (reachable != null && !reachable.add(valid.id, valid.cents)) {
+                // Demasiadas sumas: se libera el estado y se resuelve al final con el DP o el greedy
+                reachable = null;
+            }
+        }
+        
+        PipelinedSolution finish() {
+            if (budgetCents <= 0 || validItems.isEmpty()) {
+                return new PipelinedSolution(received, Collections.emptyList());
+            }
+            if (reachable != null) {
+                System.out.println("Usando subset-sum incremental para " + validItems.size() + " items ("
+                        + reachable.size() + " sumas alcanzables)");
+                return new PipelinedSolution(received, sparseSolutions(reachable, k));
+            }
+            // Si muchos items vinieron sin precio, el límite para los válidos (el de
+            // findOptimalSolutions) es mayor que el que se usó: se reintenta el disperso
+            if (maxStates >= 1 && sparseStateLimit(validItems.size(), budgetCents) > maxStates) {
+                List<List<String>> sparse = solveSparseSubsetSum(validItems, budgetCents, k);
+                if (sparse != null) {
+                    return new PipelinedSolution(received, sparse);
+                }
+            }
+            int maxAmountCents = (int) Math.min(budgetCents, Integer.MAX_VALUE);
+            return new PipelinedSolution(received, solveDense(validItems, maxAmountCents, k));
+        }
+    }
+    
     private static class ItemWithPrice {
         final String id;
         final int price;
+        // Precio completo en centavos, para presupuestos que no entran en un int
+        final long cents;
         
-        ItemWithPrice(String id, int price) {
+        ItemWithPrice(String id, long cents) {
             this.id = id;
-            this.price = price;
+            this.price = (int) Math.min(cents, Integer.MAX_VALUE);
+            this.cents = cents;
         }
     }
     
@@ -0,0 +1,199 @@
+package com.mercadolibre.coupon.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedging de llamadas a la API: si la llamada no respondió dentro del percentil observado
+ * (p. ej. p95) se manda una copia y gana la primera que responde bien; la otra se cancela.
+ *
+ * Las copias salen de un presupuesto global: cada llamada suma una fracción de copia
+ * (budget-ratio, p. ej. 5%) y cada copia gasta una entera, así la carga extra sobre la API
+ * nunca supera esa fracción aunque la API entera se ponga lenta.
+ */
+public class HedgingPolicy {
+
+    private static final int SAMPLES = 512;
+    private static final int RECOMPUTE_EVERY = 64;
+    // Presupuesto en millonésimas de copia, para sumar fracciones sin punto flotante
+    private static final long TOKEN = 1_000_000L;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long budgetPerCall;
+    private final long maxBudget;
+    private final Scheduler scheduler;
+
+    private final long[] latencies = new long[SAMPLES];
+    private int latencyIndex;
+    private int latencyCount;
+    private final AtomicInteger sinceRecompute = new AtomicInteger();
+    private volatile long delayNanos;
+
+    private final AtomicLong budget = new AtomicLong();
+
+    private final Counter sent;
+    private final Counter won;
+    private final Counter denied;
+
+    public HedgingPolicy(boolean enabled, double percentile, Duration initialDelay, Duration minDelay,
+                         double budgetRatio, int maxBurst, MeterRegistry meterRegistry) {
+        this(enabled, percentile, initialDelay, minDelay, budgetRatio, maxBurst, meterRegistry,
+             Schedulers.parallel());
+    }
+
+    HedgingPolicy(boolean enabled, double percentile, Duration initialDelay, Duration minDelay,
+                  double budgetRatio, int maxBurst, MeterRegistry meterRegistry, Scheduler scheduler) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.delayNanos = Math.max(minDelayNanos, initialDelay.toNanos());
+        this.budgetPerCall = (long) (budgetRatio * TOKEN);
+        this.maxBudget = Math.max(1, maxBurst) * TOKEN;
+        this.scheduler = scheduler;
+
+        this.sent = Counter.builder("meli.items.hedge.sent")
+                .description("Copias de multigets enviadas por demora de la original")
+                .register(meterRegistry);
+        this.won = Counter.builder("meli.items.hedge.won")
+                .description("Copias que respondieron antes que la original")
+                .register(meterRegistry);
+        this.denied = Counter.builder("meli.items.hedge.denied")
+                .description("Copias no enviadas por falta de presupuesto")
+                .register(meterRegistry);
+        TimeGauge.builder("meli.items.hedge.delay", this, TimeUnit.NANOSECONDS, policy -> policy.delayNanos)
+                .description("Demora tras la cual se envía la copia (percentil observado)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la llamada con hedging. Falla solo si fallan todas las llamadas enviadas.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return timed(call).toFuture();
+        }
+        budget.accumulateAndGet(budgetPerCall, (current, add) -> Math.min(maxBudget, current + add));
+
+        Attempts<T> attempts = new Attempts<>();
+        attempts.start(call, false);
+        Disposable hedgeTimer = scheduler.schedule(() -> {
+            if (attempts.result.isDone()) {
+                return;
+            }
+            if (!tryAcquireBudget()) {
+                denied.increment();
+                return;
+            }
+            sent.increment();
+            attempts.start(call, true);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        attempts.result.whenComplete((value, error) -> {
+            hedgeTimer.dispose();
+            attempts.cancelAll();
+        });
+        return attempts.result;
+    }
+
+    long getDelayNanos() {
+        return delayNanos;
+    }
+
+    private boolean tryAcquireBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private <T> Mono<T> timed(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.get().doOnSuccess(value -> recordLatency(System.nanoTime() - start));
+        });
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[latencyIndex] = nanos;
+            latencyIndex = (latencyIndex + 1) % SAMPLES;
+            if (latencyCount < SAMPLES) {
+                latencyCount++;
+            }
+        }
+        if (sinceRecompute.incrementAndGet() >= RECOMPUTE_EVERY) {
+            sinceRecompute.set(0);
+            recomputeDelay();
+        }
+    }
+
+    private void recomputeDelay() {
+        long[] sorted;
+        synchronized (latencies) {
+            sorted = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+    }
+
+    /**
+     * Llamadas en curso de una misma ejecución: la original y, si hizo falta, la copia.
+     */
+    private class Attempts<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private final CompletableFuture<?>[] running = new CompletableFuture<?>[2];
+        private int started;
+        private int failed;
+
+        synchronized void start(Supplier<Mono<T>> call, boolean hedge) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> attempt = timed(call).toFuture();
+            running[started++] = attempt;
+            attempt.whenComplete((value, error) -> onComplete(value, error, hedge));
+        }
+
+        private void onComplete(T value, Throwable error, boolean hedge) {
+            if (error == null) {
+                if (result.complete(value) && hedge) {
+                    won.increment();
+                }
+                return;
+            }
+            boolean allFailed;
+            synchronized (this) {
+                allFailed = ++failed == started;
+            }
+            if (allFailed) {
+                result.completeExceptionally(error);
+            }
+        }
+
+        synchronized void cancelAll() {
+            for (int i = 0; i < started; i++) {
+                // Cancela la suscripción de la que perdió (libera la conexión)
+                running[i].cancel(true);
+            }
+        }
+    }
+}
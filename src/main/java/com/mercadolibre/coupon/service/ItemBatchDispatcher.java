@@ -0,0 +1,336 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Junta los ids sin caché de solicitudes concurrentes y los consulta en un único multiget.
+ *
+ * Un batch sale cuando llega al tope de ids por llamada de la API o cuando vence la ventana
+ * de espera. La ventana es adaptativa: con tráfico bajo (no se espera que llegue otro id
+ * antes de la espera máxima) se despacha de inmediato para no sumar latencia; con tráfico
+ * alto se espera lo justo para llenar el batch, sin pasar la espera máxima.
+ *
+ * Un carrito grande se parte en varios batches; se consultan en paralelo hasta un tope de
+ * multigets simultáneos y el resto espera en cola. Cada id se completa apenas llega el batch
+ * que lo contiene, sin esperar a los demás. La cola también tiene tope: si la API no da
+ * abasto, los batches que no entran se completan enseguida con el precio de respaldo en
+ * lugar de acumular memoria y latencia.
+ */
+public class ItemBatchDispatcher {
+
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int DEFAULT_MAX_QUEUED_BATCHES = 128;
+
+    private final Function<List<String>, CompletableFuture<Map<String, Item>>> fetcher;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final int maxConcurrentFetches;
+    private final int maxQueuedBatches;
+    private final Function<List<String>, Map<String, Item>> fallback;
+    private final ScheduledExecutorService scheduler;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchWait;
+    private final Counter immediateFlushes;
+    private final Counter rejectedIds;
+
+    private final Object lock = new Object();
+    private List<PendingItem> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private long lastArrivalNanos;
+    private double interArrivalNanos;
+    private volatile long currentWindowNanos;
+    // Batches listos que esperan un lugar libre entre los multigets en curso
+    private final Queue<List<PendingItem>> queuedBatches = new ArrayDeque<>();
+    private int activeFetches;
+
+    public ItemBatchDispatcher(String name, Function<List<String>, CompletableFuture<Map<String, Item>>> fetcher,
+                               int maxBatchSize, Duration maxWait, int maxConcurrentFetches,
+                               MeterRegistry meterRegistry) {
+        this(name, fetcher, maxBatchSize, maxWait, maxConcurrentFetches, DEFAULT_MAX_QUEUED_BATCHES,
+             ids -> Map.of(), meterRegistry);
+    }
+
+    /**
+     * @param maxQueuedBatches Batches que pueden esperar un lugar libre; los que no entran se rechazan.
+     * @param fallback Precios para los ids de un batch rechazado; los que no trae quedan unresolved.
+     */
+    public ItemBatchDispatcher(String name, Function<List<String>, CompletableFuture<Map<String, Item>>> fetcher,
+                               int maxBatchSize, Duration maxWait, int maxConcurrentFetches, int maxQueuedBatches,
+                               Function<List<String>, Map<String, Item>> fallback, MeterRegistry meterRegistry) {
+        this.fetcher = fetcher;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxConcurrentFetches = Math.max(1, maxConcurrentFetches);
+        this.maxQueuedBatches = Math.max(0, maxQueuedBatches);
+        this.fallback = fallback;
+        this.currentWindowNanos = maxWaitNanos;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meli-batch-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.batchSizes = DistributionSummary.builder("meli.items.batch.size")
+                .description("Ids por multiget despachado")
+                .tag("dispatcher", name)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("meli.items.batch.wait")
+                .description("Espera del id más antiguo antes de despachar su batch")
+                .tag("dispatcher", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.immediateFlushes = Counter.builder("meli.items.batch.immediate")
+                .description("Batches despachados sin esperar por tráfico bajo")
+                .tag("dispatcher", name)
+                .register(meterRegistry);
+        this.rejectedIds = Counter.builder("meli.items.batch.rejected")
+                .description("Ids completados con el precio de respaldo porque la cola de batches estaba llena")
+                .tag("dispatcher", name)
+                .register(meterRegistry);
+        TimeGauge.builder("meli.items.batch.window", this, TimeUnit.NANOSECONDS, d -> d.currentWindowNanos)
+                .description("Ventana de espera adaptativa actual")
+                .tag("dispatcher", name)
+                .register(meterRegistry);
+        Gauge.builder("meli.items.batch.queued", this, d -> d.queuedBatchCount())
+                .description("Batches esperando un lugar entre los multigets en curso")
+                .tag("dispatcher", name)
+                .register(meterRegistry);
+        Gauge.builder("meli.items.batch.active", this, d -> d.activeFetchCount())
+                .description("Multigets en curso")
+                .tag("dispatcher", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola ids para el próximo multiget. Cada future se completa con el item obtenido,
+     * con precio 0 si no se encontró o falló la llamada, o con el precio de respaldo si
+     * su batch no entró en la cola.
+     */
+    public void submit(Map<String, CompletableFuture<Item>> items) {
+        List<List<PendingItem>> ready = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.nanoTime();
+            recordArrival(now);
+            for (Map.Entry<String, CompletableFuture<Item>> entry : items.entrySet()) {
+                pending.add(new PendingItem(entry.getKey(), entry.getValue(), now));
+                if (pending.size() >= maxBatchSize) {
+                    ready.add(takePending());
+                }
+            }
+            if (!pending.isEmpty() && scheduledFlush == null) {
+                long window = adaptiveWindowNanos();
+                currentWindowNanos = window;
+                if (window <= 0) {
+                    immediateFlushes.increment();
+                    ready.add(takePending());
+                } else {
+                    scheduledFlush = scheduler.schedule(this::flushPending, window, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        ready.forEach(this::dispatch);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    int queuedBatchCount() {
+        synchronized (lock) {
+            return queuedBatches.size();
+        }
+    }
+
+    int activeFetchCount() {
+        synchronized (lock) {
+            return activeFetches;
+        }
+    }
+
+    private void flushPending() {
+        List<PendingItem> batch;
+        synchronized (lock) {
+            scheduledFlush = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    // Debe llamarse con el lock tomado
+    private List<PendingItem> takePending() {
+        List<PendingItem> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    // Debe llamarse con el lock tomado
+    private void recordArrival(long now) {
+        if (lastArrivalNanos != 0) {
+            long gap = now - lastArrivalNanos;
+            interArrivalNanos = interArrivalNanos == 0
+                    ? gap
+                    : interArrivalNanos * (1 - EWMA_ALPHA) + gap * EWMA_ALPHA;
+        }
+        lastArrivalNanos = now;
+    }
+
+    // Debe llamarse con el lock tomado
+    private long adaptiveWindowNanos() {
+        if (interArrivalNanos == 0) {
+            // Sin historial todavía: asumimos carga y usamos la ventana completa
+            return maxWaitNanos;
+        }
+        if (interArrivalNanos >= maxWaitNanos) {
+            // No se espera otra solicitud dentro de la ventana: esperar solo agrega latencia
+            return 0;
+        }
+        double toFill = interArrivalNanos * (maxBatchSize - pending.size());
+        return (long) Math.min(maxWaitNanos, toFill);
+    }
+
+    /**
+     * Lanza el batch si hay lugar entre los multigets en curso; si no, lo deja en cola, y
+     * si la cola está llena lo completa con el precio de respaldo.
+     */
+    private void dispatch(List<PendingItem> batch) {
+        boolean rejected = false;
+        synchronized (lock) {
+            if (activeFetches < maxConcurrentFetches) {
+                activeFetches++;
+            } else if (queuedBatches.size() < maxQueuedBatches) {
+                queuedBatches.add(batch);
+                return;
+            } else {
+                rejected = true;
+            }
+        }
+        if (rejected) {
+            reject(batch);
+        } else {
+            fetchAll(batch);
+        }
+    }
+
+    /**
+     * Consulta el batch y, al terminar, los que estén en cola usando el mismo lugar. Los
+     * multigets que responden en el mismo hilo (caches de otras instancias, errores
+     * inmediatos) se encadenan en este loop en lugar de anidar una llamada por batch.
+     */
+    private void fetchAll(List<PendingItem> batch) {
+        while (batch != null) {
+            CompletableFuture<Void> done = fetch(batch);
+            if (!done.isDone()) {
+                done.whenComplete((ignored, error) -> fetchAll(nextQueuedBatch()));
+                return;
+            }
+            batch = nextQueuedBatch();
+        }
+    }
+
+    /**
+     * El próximo batch en cola, que toma el lugar del multiget terminado; si no hay, el
+     * lugar se libera.
+     */
+    private List<PendingItem> nextQueuedBatch() {
+        synchronized (lock) {
+            List<PendingItem> next = queuedBatches.poll();
+            if (next == null) {
+                activeFetches--;
+            }
+            return next;
+        }
+    }
+
+    private CompletableFuture<Void> fetch(List<PendingItem> batch) {
+        long now = System.nanoTime();
+        batchSizes.record(batch.size());
+        batchWait.record(now - batch.get(0).enqueuedNanos, TimeUnit.NANOSECONDS);
+
+        CompletableFuture<Map<String, Item>> result;
+        try {
+            result = fetcher.apply(idsOf(batch));
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handle((fetchedItems, error) -> {
+            if (error != null) {
+                System.err.println("Error en multiget agrupado: " + error.getMessage());
+            }
+            // Sin error, un id que no volvió es un item inexistente; con error, no se sabe
+            complete(batch, fetchedItems, error != null);
+            return null;
+        });
+    }
+
+    private void reject(List<PendingItem> batch) {
+        System.err.println("Cola de multigets llena: " + batch.size() + " items con precio de respaldo");
+        rejectedIds.increment(batch.size());
+        Map<String, Item> fallbackItems;
+        try {
+            fallbackItems = fallback.apply(idsOf(batch));
+        } catch (RuntimeException e) {
+            System.err.println("Error obteniendo precios de respaldo: " + e.getMessage());
+            fallbackItems = null;
+        }
+        complete(batch, fallbackItems, true);
+    }
+
+    private static void complete(List<PendingItem> batch, Map<String, Item> items, boolean unresolvedIfMissing) {
+        for (PendingItem item : batch) {
+            Item found = items != null ? items.get(item.itemId) : null;
+            if (found == null) {
+                found = new Item(item.itemId, BigDecimal.ZERO, false, unresolvedIfMissing);
+            }
+            item.future.complete(found);
+        }
+    }
+
+    private static List<String> idsOf(List<PendingItem> batch) {
+        List<String> ids = new ArrayList<>(batch.size());
+        for (PendingItem item : batch) {
+            ids.add(item.itemId);
+        }
+        return ids;
+    }
+
+    private static class PendingItem {
+        final String itemId;
+        final CompletableFuture<Item> future;
+        final long enqueuedNanos;
+
+        PendingItem(String itemId, CompletableFuture<Item> future, long enqueuedNanos) {
+            this.itemId = itemId;
+            this.future = future;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mercadolibre.coupon.service;
+
+import java.util.Set;
+
+/**
+ * Validación barata del formato de ids de items de MercadoLibre: prefijo de sitio
+ * (MLA, MLB, ...) seguido de un código alfanumérico en mayúsculas (en la práctica, dígitos).
+ * Un id que no cumple el formato nunca puede existir en la API, así que no vale la pena
+ * gastar una llamada en él.
+ */
+public final class ItemIdValidator {
+
+    // Sitios de MercadoLibre / MercadoLibre Internacional
+    private static final Set<String> SITE_IDS = Set.of(
+            "MLA", "MLB", "MLM", "MLC", "MLU", "MLV", "MCO", "MPE", "MEC",
+            "MBO", "MPA", "MPY", "MCR", "MRD", "MGT", "MHN", "MNI", "MSV", "MCU");
+
+    private static final int SITE_ID_LENGTH = 3;
+    // Los ids reales tienen a lo sumo 12-13 dígitos; el margen cubre formatos futuros
+    private static final int MAX_CODE_LENGTH = 24;
+
+    private ItemIdValidator() {
+    }
+
+    public static boolean isValid(String itemId) {
+        if (itemId == null) {
+            return false;
+        }
+        int length = itemId.length();
+        if (length <= SITE_ID_LENGTH || length > SITE_ID_LENGTH + MAX_CODE_LENGTH) {
+            return false;
+        }
+        if (!SITE_IDS.contains(itemId.substring(0, SITE_ID_LENGTH))) {
+            return false;
+        }
+        for (int i = SITE_ID_LENGTH; i < length; i++) {
+            char c = itemId.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'A' && c <= 'Z') && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
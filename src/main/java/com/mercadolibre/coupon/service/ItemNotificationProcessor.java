@@ -0,0 +1,263 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.cache.HotItemTracker;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.cache.NegativeItemCache;
+import com.mercadolibre.coupon.dto.MeliNotification;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Procesa las notificaciones de cambios de items de Mercado Libre para que el cache no
+ * dependa solo del TTL.
+ *
+ * accept solo encola el id y vuelve enseguida (Mercado Libre espera la respuesta en
+ * menos de 500 ms y reintenta si no llega). La cola no usa locks y los ids repetidos se
+ * descartan mientras siguen pendientes: una ráfaga de cambios sobre el mismo item termina
+ * en un único refresco. Cada flush-interval se vacía la cola en lotes:
+ * - Los items en caché (o calientes) se vuelven a consultar a la API en multigets de
+ *   prioridad baja; si el refresco falla se invalidan, así nunca queda el precio viejo.
+ * - El resto solo se invalida, incluido el cache negativo (el item pudo volver a publicarse).
+ */
+@Component
+public class ItemNotificationProcessor {
+
+    private static final String ITEMS_RESOURCE = "/items/";
+
+    private final ItemPriceCache itemCache;
+    private final NegativeItemCache negativeCache;
+    private final HotItemTracker hotItems;
+    private final MeliItemService meliItemService;
+    private final boolean enabled;
+    // Si está configurada, se ignoran las notificaciones de otras aplicaciones
+    private final Long applicationId;
+    private final int maxPending;
+    private final int batchSize;
+    // Refrescos en curso: si se llega al tope, los ids esperan en la cola al próximo ciclo
+    private final Semaphore refreshPermits;
+
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter accepted;
+    private final Counter duplicated;
+    private final Counter ignored;
+    private final Counter dropped;
+    private final Counter refreshed;
+    private final Counter invalidated;
+
+    public ItemNotificationProcessor(ItemPriceCache itemCache,
+                                     NegativeItemCache negativeCache,
+                                     HotItemTracker hotItems,
+                                     MeliItemService meliItemService,
+                                     @Value("${meli.notifications.enabled:true}") boolean enabled,
+                                     @Value("${meli.notifications.application-id:}") String applicationId,
+                                     @Value("${meli.notifications.max-pending:100000}") int maxPending,
+                                     @Value("${meli.notifications.batch-size:200}") int batchSize,
+                                     @Value("${meli.notifications.max-concurrency:4}") int maxConcurrentRefreshes,
+                                     @Value("${meli.notifications.flush-interval:200ms}") Duration flushInterval,
+                                     MeterRegistry meterRegistry) {
+        this.itemCache = itemCache;
+        this.negativeCache = negativeCache;
+        this.hotItems = hotItems;
+        this.meliItemService = meliItemService;
+        this.enabled = enabled;
+        this.applicationId = applicationId == null || applicationId.isBlank() ? null : Long.valueOf(applicationId.trim());
+        this.maxPending = Math.max(1, maxPending);
+        this.batchSize = Math.max(1, batchSize);
+        this.refreshPermits = new Semaphore(Math.max(1, maxConcurrentRefreshes));
+
+        this.accepted = notificationCounter(meterRegistry, "accepted");
+        this.duplicated = notificationCounter(meterRegistry, "duplicate");
+        this.ignored = notificationCounter(meterRegistry, "ignored");
+        this.dropped = notificationCounter(meterRegistry, "dropped");
+        this.refreshed = Counter.builder("meli.notifications.items")
+                .tag("action", "refreshed")
+                .description("Items procesados a partir de notificaciones")
+                .register(meterRegistry);
+        this.invalidated = Counter.builder("meli.notifications.items")
+                .tag("action", "invalidated")
+                .description("Items procesados a partir de notificaciones")
+                .register(meterRegistry);
+        Gauge.builder("meli.notifications.pending", pendingCount, AtomicInteger::get)
+                .description("Items notificados que esperan ser procesados")
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "meli-notifications");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long flushMillis = Math.max(1, flushInterval.toMillis());
+            scheduler.scheduleWithFixedDelay(this::drainQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Encola el item de una notificación. Devuelve false si se descartó (tema o aplicación
+     * ajena, recurso que no es un item, o cola llena).
+     */
+    public boolean accept(MeliNotification notification) {
+        if (!enabled || notification == null) {
+            ignored.increment();
+            return false;
+        }
+        if (applicationId != null && !applicationId.equals(notification.getApplicationId())) {
+            ignored.increment();
+            return false;
+        }
+        String itemId = itemIdOf(notification);
+        if (itemId == null) {
+            ignored.increment();
+            return false;
+        }
+        if (pending.contains(itemId)) {
+            duplicated.increment();
+            return true;
+        }
+        if (pendingCount.get() >= maxPending) {
+            // El precio se corrige igual al vencer el TTL
+            dropped.increment();
+            return false;
+        }
+        if (!pending.add(itemId)) {
+            duplicated.increment();
+            return true;
+        }
+        pendingCount.incrementAndGet();
+        queue.offer(itemId);
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * Procesa los items pendientes en lotes de batch-size, mientras haya lugar para refrescar.
+     */
+    public void drain() {
+        while (refreshPermits.tryAcquire()) {
+            List<String> batch = new ArrayList<>(batchSize);
+            String itemId;
+            while (batch.size() < batchSize && (itemId = queue.poll()) != null) {
+                // Sale de pendientes antes de procesarse: un cambio posterior se vuelve a encolar
+                pending.remove(itemId);
+                pendingCount.decrementAndGet();
+                batch.add(itemId);
+            }
+            if (batch.isEmpty()) {
+                refreshPermits.release();
+                return;
+            }
+            process(batch);
+        }
+    }
+
+    public int pendingCount() {
+        return pendingCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Id del item de una notificación ("/items/MLA123" o "/items/MLA123/prices"), o null si
+     * no es de un item.
+     */
+    static String itemIdOf(MeliNotification notification) {
+        String topic = notification.getTopic();
+        if (topic != null && !topic.startsWith("items")) {
+            return null;
+        }
+        String resource = notification.getResource();
+        if (resource == null || !resource.startsWith(ITEMS_RESOURCE)) {
+            return null;
+        }
+        int end = resource.length();
+        for (int i = ITEMS_RESOURCE.length(); i < resource.length(); i++) {
+            char c = resource.charAt(i);
+            if (c == '/' || c == '?') {
+                end = i;
+                break;
+            }
+        }
+        String itemId = resource.substring(ITEMS_RESOURCE.length(), end);
+        return ItemIdValidator.isValid(itemId) ? itemId : null;
+    }
+
+    // Se llama con un permiso de refresco tomado; lo libera al terminar
+    private void process(List<String> batch) {
+        Map<String, ?> entries = itemCache.entries();
+        List<String> toRefresh = new ArrayList<>();
+        for (String itemId : batch) {
+            negativeCache.invalidate(itemId);
+            if (entries.containsKey(itemId) || hotItems.isHot(itemId)) {
+                toRefresh.add(itemId);
+            } else {
+                itemCache.invalidate(itemId);
+                invalidated.increment();
+            }
+        }
+        if (toRefresh.isEmpty()) {
+            refreshPermits.release();
+            return;
+        }
+        meliItemService.refreshItems(toRefresh).whenComplete((items, error) -> {
+            try {
+                for (String itemId : toRefresh) {
+                    Item item = items != null ? items.get(itemId) : null;
+                    if (item != null && !item.isStale() && !item.isUnresolved()) {
+                        refreshed.increment();
+                    } else {
+                        // Sin precio nuevo no se puede seguir sirviendo el viejo
+                        itemCache.invalidate(itemId);
+                        invalidated.increment();
+                    }
+                }
+            } finally {
+                refreshPermits.release();
+            }
+        });
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            System.err.println("Error procesando notificaciones de items: " + e.getMessage());
+        }
+    }
+
+    private static Counter notificationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("meli.notifications")
+                .tag("result", result)
+                .description("Notificaciones de items recibidas")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Refresco anticipado (stale-while-revalidate) de precios en caché.
+ *
+ * Cuando un request encuentra una entrada pasada de su TTL blando se la sirve igual y se
+ * pide acá su refresco, que viaja por el mismo dispatcher de multigets que los misses, así
+ * los refrescos de items populares también se agrupan. Cada id se refresca una sola vez a
+ * la vez y hay un tope de refrescos en curso: si se llega al tope se descarta el pedido,
+ * y el próximo hit sobre la entrada lo vuelve a intentar.
+ *
+ * Los items calientes (ver HotItemTracker) se refrescan por adelantado con refreshAhead,
+ * antes de que algún request los encuentre vencidos.
+ */
+class ItemRefresher {
+
+    private final Consumer<Map<String, CompletableFuture<Item>>> submitter;
+    // TTL blando de cada entrada (puede variar por item con TTL adaptativo)
+    private final ToLongFunction<CachedItem> softTtlNanos;
+    private final Semaphore permits;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Timer refreshLag;
+    private final Timer staleServed;
+    private final Counter dropped;
+
+    ItemRefresher(Consumer<Map<String, CompletableFuture<Item>>> submitter, long refreshAfterWriteNanos,
+                  int maxInFlight, MeterRegistry meterRegistry) {
+        this(submitter, entry -> refreshAfterWriteNanos, maxInFlight, meterRegistry);
+    }
+
+    ItemRefresher(Consumer<Map<String, CompletableFuture<Item>>> submitter, ToLongFunction<CachedItem> softTtlNanos,
+                  int maxInFlight, MeterRegistry meterRegistry) {
+        this.submitter = submitter;
+        this.softTtlNanos = softTtlNanos;
+        this.permits = new Semaphore(Math.max(1, maxInFlight));
+
+        this.refreshLag = Timer.builder("meli.items.refresh.lag")
+                .description("Tiempo desde que una entrada pasó su TTL blando hasta que se refrescó")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.staleServed = Timer.builder("meli.items.stale.served")
+                .description("Antigüedad de los precios servidos pasado el TTL blando")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.dropped = Counter.builder("meli.items.refresh.dropped")
+                .description("Refrescos descartados por el tope de refrescos en curso")
+                .register(meterRegistry);
+        Gauge.builder("meli.items.refresh.in-flight", refreshing, Set::size)
+                .description("Ids refrescándose")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra que se sirvió una entrada vencida (TTL blando) y pide su refresco.
+     */
+    void onStaleHit(String itemId, CachedItem entry) {
+        staleServed.record(entry.ageNanos(), TimeUnit.NANOSECONDS);
+        refresh(itemId, entry.getFetchedAtNanos() + softTtlNanos.applyAsLong(entry));
+    }
+
+    /**
+     * Pide el refresco de un item sin esperar a que un request lo encuentre vencido.
+     */
+    void refreshAhead(String itemId) {
+        refresh(itemId, System.nanoTime());
+    }
+
+    private void refresh(String itemId, long softExpiredAtNanos) {
+        if (!refreshing.add(itemId)) {
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            refreshing.remove(itemId);
+            dropped.increment();
+            return;
+        }
+        CompletableFuture<Item> refreshed = new CompletableFuture<>();
+        refreshed.whenComplete((item, error) -> {
+            refreshLag.record(System.nanoTime() - softExpiredAtNanos, TimeUnit.NANOSECONDS);
+            refreshing.remove(itemId);
+            permits.release();
+        });
+        // El multiget guarda el precio nuevo en caché; si falla, la entrada vieja sigue hasta el TTL duro
+        submitter.accept(Map.of(itemId, refreshed));
+    }
+}
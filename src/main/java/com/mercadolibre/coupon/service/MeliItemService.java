@@ -1,89 +1,292 @@
 package com.mercadolibre.coupon.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.mercadolibre.coupon.controller.AuthController;
-import com.mercadolibre.coupon.dto.AccessTokenResponse;
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.cache.HotItemTracker;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.cache.NegativeItemCache;
+import com.mercadolibre.coupon.cache.PeerCacheClient;
+import com.mercadolibre.coupon.cache.SharedPriceCache;
 import com.mercadolibre.coupon.dto.MeliItemResponse;
 import com.mercadolibre.coupon.model.Item;
+import com.mercadolibre.coupon.service.OutboundRateLimiter.Priority;
+import com.mercadolibre.coupon.service.OutboundRateLimiter.RateLimitedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class MeliItemService {
     
+    // Tope de ids por llamada del multiget de MercadoLibre (/items?ids=...)
+    static final int MULTIGET_MAX_IDS = 20;
+    // Proyección de la API: solo pedimos los campos que se usan
+    static final String ITEM_ATTRIBUTES = "id,price";
+    
     private final WebClient webClient;
     // Cache crítico para 100K RPM - mismo item favorito de muchos usuarios
-    private final Map<String, Item> itemCache = new ConcurrentHashMap<>();
+    private final ItemPriceCache itemCache;
+    // Ids que la API no devolvió hace poco: no se vuelven a consultar hasta que venzan
+    private final NegativeItemCache negativeCache;
+    // Cache compartido entre instancias (opcional), consultado antes de ir a la API
+    private final SharedPriceCache sharedCache;
+    // Anillo de caches entre instancias (opcional): los misses se le piden a la dueña del id
+    private final PeerCacheClient peerCache;
+    // Items más pedidos: quedan fijados en el cache y se refrescan antes de vencer
+    private final HotItemTracker hotItems;
+    private final Counter invalidIds;
+    // Consultas en curso por item: las solicitudes concurrentes comparten un único future
+    private final Map<String, CompletableFuture<Item>> inFlight = new ConcurrentHashMap<>();
+    // Junta los misses de solicitudes concurrentes en un único multiget
+    private final ItemBatchDispatcher batchDispatcher;
+    // Multigets de refresco en segundo plano: menos concurrencia y prioridad baja en el rate limiter
+    private final ItemBatchDispatcher refreshDispatcher;
+    // Refresca en segundo plano los precios pasados del TTL blando
+    private final ItemRefresher refresher;
+    // Corta las llamadas a la API cuando está caída o lenta; se sirven los últimos precios conocidos
+    private final CircuitBreaker circuitBreaker;
+    private final Counter staleFallbacks;
+    // Copias de multigets demorados para recortar la cola de latencia
+    private final HedgingPolicy hedgingPolicy;
+    // Mantiene las llamadas dentro de la cuota de la API y maneja los 429
+    private final OutboundRateLimiter rateLimiter;
+    // Se pide el multiget comprimido y se descomprime a medida que llega (ver StreamingInflater)
+    private final boolean multigetCompression;
+    private final Map<String, Counter> multigetBytesIn = new HashMap<>();
+    private final Map<String, Counter> multigetBytesDecoded = new HashMap<>();
+    private final Timer multigetInflateTime;
+    // Reintentos de los ids que fallaron por un error transitorio, con backoff exponencial y jitter
+    private final int maxRetries;
+    private final long retryBaseDelayNanos;
+    private final long interactiveRetryDeadlineNanos;
+    private final Counter retriedWholeBatch;
+    private final Counter retriedItems;
+    private final Counter unresolvedItems;
+    
+    // Token de MercadoLibre, renovado antes de vencer y ante un 401
+    private final MeliTokenManager tokenManager;
     
-    private String getAccessToken() {
-        AccessTokenResponse token = AuthController.getCurrentAccessTokenForService();
-        if (token != null) {
-            return token.getAccessToken();
+    // Header Authorization ya armado del token vigente
+    private String getAuthorization() {
+        String authorization = tokenManager.getAuthorizationHeader();
+        if (authorization != null) {
+            return authorization;
         }
         
         System.err.println("Advertencia: No se encontró un Access Token. Las solicitudes a Meli fallarán.");
         return null;
     }
     
-    public MeliItemService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder
-                .baseUrl("https://api.mercadolibre.com")
-                // NO se agrega Authorization header aquí - se agrega dinámicamente
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
-                .build();
+    @Autowired
+    public MeliItemService(@Qualifier("meliWebClient") WebClient webClient,
+                           ItemPriceCache itemCache,
+                           NegativeItemCache negativeCache,
+                           SharedPriceCache sharedCache,
+                           PeerCacheClient peerCache,
+                           HotItemTracker hotItems,
+                           CircuitBreaker circuitBreaker,
+                           HedgingPolicy hedgingPolicy,
+                           OutboundRateLimiter rateLimiter,
+                           MeliTokenManager tokenManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${meli.items.batch.max-size:20}") int maxBatchSize,
+                           @Value("${meli.items.batch.max-wait:5ms}") Duration maxBatchWait,
+                           @Value("${meli.items.batch.max-concurrency:8}") int maxConcurrentBatches,
+                           @Value("${meli.items.batch.max-queued:128}") int maxQueuedBatches,
+                           @Value("${meli.cache.refresh.max-in-flight:256}") int maxRefreshesInFlight,
+                           @Value("${meli.items.multiget.compression:true}") boolean multigetCompression,
+                           @Value("${meli.items.retry.max-attempts:2}") int maxRetries,
+                           @Value("${meli.items.retry.base-delay:100ms}") Duration retryBaseDelay,
+                           @Value("${meli.items.retry.interactive-deadline:3s}") Duration interactiveRetryDeadline) {
+        this.itemCache = itemCache;
+        this.negativeCache = negativeCache;
+        this.sharedCache = sharedCache;
+        this.peerCache = peerCache;
+        this.hotItems = hotItems;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgingPolicy = hedgingPolicy;
+        this.rateLimiter = rateLimiter;
+        this.tokenManager = tokenManager;
+        this.staleFallbacks = Counter.builder("meli.items.stale.fallback")
+                .description("Items servidos con el último precio conocido porque la API no respondió")
+                .register(meterRegistry);
+        this.multigetCompression = multigetCompression;
+        for (String encoding : List.of(StreamingInflater.GZIP, StreamingInflater.DEFLATE, StreamingInflater.IDENTITY)) {
+            multigetBytesIn.put(encoding, Counter.builder("meli.items.multiget.bytes")
+                    .tag("encoding", encoding)
+                    .description("Bytes recibidos en respuestas multiget, tal como viajaron")
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+            multigetBytesDecoded.put(encoding, Counter.builder("meli.items.multiget.bytes.decoded")
+                    .tag("encoding", encoding)
+                    .description("Bytes de JSON de respuestas multiget, ya descomprimidos")
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+        }
+        this.multigetInflateTime = Timer.builder("meli.items.multiget.inflate")
+                .description("Tiempo de CPU descomprimiendo cada respuesta multiget")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBaseDelayNanos = retryBaseDelay.toNanos();
+        this.interactiveRetryDeadlineNanos = interactiveRetryDeadline.toNanos();
+        this.retriedWholeBatch = Counter.builder("meli.items.retries")
+                .tag("reason", "batch")
+                .description("Ids reintentados porque falló la llamada multiget entera")
+                .register(meterRegistry);
+        this.retriedItems = Counter.builder("meli.items.retries")
+                .tag("reason", "item")
+                .description("Ids reintentados porque su elemento del multiget vino con error transitorio")
+                .register(meterRegistry);
+        this.unresolvedItems = Counter.builder("meli.items.unresolved")
+                .description("Ids sin precio tras agotar los reintentos y sin último precio conocido")
+                .register(meterRegistry);
+        this.invalidIds = Counter.builder("meli.items.invalid")
+                .description("Ids descartados por formato inválido, sin consultar la API")
+                .register(meterRegistry);
+        // Un batch más grande que el tope de la API fallaría entero y todos sus items quedarían en 0
+        int batchSize = Math.max(1, Math.min(maxBatchSize, MULTIGET_MAX_IDS));
+        // Con la cola llena no se espera: último precio conocido o unresolved, como si fallara la API
+        this.batchDispatcher = new ItemBatchDispatcher("interactive", ids -> fetchBatch(ids, Priority.INTERACTIVE),
+                                                       batchSize, maxBatchWait, maxConcurrentBatches, maxQueuedBatches,
+                                                       this::fallbackPrices, meterRegistry);
+        this.refreshDispatcher = new ItemBatchDispatcher("refresh", ids -> fetchBatch(ids, Priority.BACKGROUND),
+                                                         batchSize, maxBatchWait, Math.max(1, maxConcurrentBatches / 4),
+                                                         maxQueuedBatches, this::fallbackPrices, meterRegistry);
+        this.refresher = new ItemRefresher(refreshDispatcher::submit, itemCache::softTtlNanos,
+                                           maxRefreshesInFlight, meterRegistry);
+        hotItems.addListener(this::refreshHotItems);
+        // Pool de conexiones, timeouts y TLS configurados en MeliHttpClientConfig
+        this.webClient = webClient;
     }
     
  // Método auxiliar para obtener el Access Token
     
     
     public CompletableFuture<Item> getItemPrice(String itemId) {
+        hotItems.recordAll(List.of(itemId));
+        
         // Cache hit crítico para escalar
-        if (itemCache.containsKey(itemId)) {
-            return CompletableFuture.completedFuture(itemCache.get(itemId));
+        Item cached = lookupCached(itemId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        if (isUnfetchable(itemId)) {
+            return CompletableFuture.completedFuture(new Item(itemId, BigDecimal.ZERO));
+        }
+        
+        // Si otra solicitud ya está consultando este item, esperamos su resultado
+        CompletableFuture<Item> pending = inFlight.get(itemId);
+        if (pending != null) {
+            return pending;
         }
         
-        String currentAccessToken = getAccessToken(); // Obtener el token dinámicamente
-        if (currentAccessToken == null) {
+        String authorization = getAuthorization(); // Obtener el token dinámicamente
+        if (authorization == null) {
             return CompletableFuture.failedFuture(new IllegalStateException("Access Token no disponible."));
         }
         
-        return webClient.get()
-                .uri("/items/{itemId}", itemId)
-                .header("Authorization", "Bearer " + currentAccessToken)
-                .retrieve()
-                .bodyToMono(MeliItemResponse.class)
-                .timeout(Duration.ofSeconds(10))
+        CompletableFuture<Item> created = new CompletableFuture<>();
+        CompletableFuture<Item> existing = inFlight.putIfAbsent(itemId, created);
+        if (existing != null) {
+            return existing;
+        }
+        
+        // Antes de ir a la API, puede que otra instancia ya lo haya consultado
+        Map<String, Item> found = new ConcurrentHashMap<>();
+        resolveFromPeers(List.of(itemId), Priority.INTERACTIVE, found).thenAccept(remaining -> {
+            if (remaining.isEmpty()) {
+                completeInFlight(itemId, created, found.get(itemId));
+            } else {
+                fetchItem(itemId, authorization, created);
+            }
+        });
+        return created;
+    }
+    
+    /**
+     * Consulta un item a la API y completa su consulta en vuelo.
+     */
+    private void fetchItem(String itemId, String authorization, CompletableFuture<Item> created) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            completeInFlight(itemId, created, fallbackPrice(itemId));
+            return;
+        }
+        
+        long startNanos = System.nanoTime();
+        withTokenRenewal(authorization, header -> rateLimiter.execute(Priority.INTERACTIVE, () -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                            .path("/items/{itemId}")
+                            .queryParam("attributes", ITEM_ATTRIBUTES)
+                            .build(itemId))
+                        .header(HttpHeaders.AUTHORIZATION, header)
+                        .retrieve()
+                        .bodyToMono(MeliItemResponse.class)
+                        .timeout(Duration.ofSeconds(10))))
                 .map(response -> {
                     Item item = new Item(response.getId(), response.getPrice());
-                    itemCache.put(itemId, item);
+                    itemCache.put(item);
+                    sharedCache.putAll(List.of(item));
+                    circuitBreaker.onSuccess(System.nanoTime() - startNanos);
                     return item;
                 })
                 .onErrorResume(e -> {
                     System.err.println("Error fetching item " + itemId + ": " + e.getMessage());
-                    // En caso de error 401, el token podría estar expirado
-                    if (e.getMessage().contains("401")) {
-                        System.err.println("Posible token expirado para item: " + itemId);
+                    recordOutcome(e, System.nanoTime() - startNanos);
+                    if (e instanceof WebClientResponseException.NotFound) {
+                        negativeCache.markMissing(itemId);
+                        itemCache.invalidate(itemId);
+                        return Mono.just(new Item(itemId, BigDecimal.ZERO));
                     }
-                    return Mono.just(new Item(itemId, BigDecimal.ZERO));
+                    return Mono.just(fallbackPrice(itemId));
                 })
-                .toFuture();
+                .subscribe(item -> completeInFlight(itemId, created, item),
+                           e -> completeInFlight(itemId, created, fallbackPrice(itemId)));
     }
     
     /**
-     * Obtiene los precios de una lista de items de Mercado Libre haciendo una única llamada batch.
+     * Obtiene los precios de una lista de items de Mercado Libre con llamadas batch (multiget).
      * Utiliza caché para items ya consultados.
-     * Si un item no se encuentra o hay un error, se devuelve con precio 0.
+     * Si otra solicitud ya está consultando alguno de los items, se espera ese resultado en lugar
+     * de volver a pedirlo. Los ids restantes se agrupan con los de otras solicitudes concurrentes
+     * en el próximo multiget (ver ItemBatchDispatcher). Un carrito grande se parte en chunks de
+     * hasta MULTIGET_MAX_IDS ids que se consultan en paralelo, con un tope de llamadas simultáneas.
+     * Si un item no se encuentra se devuelve con precio 0. Los ids con formato inválido o que
+     * la API no devolvió hace poco (cache negativo) ni se consultan. Los que fallan por un
+     * error transitorio se reintentan solos (sin repetir el resto del batch); si siguen
+     * fallando se usa el último precio conocido o, si no hay, vuelven con precio 0 marcados
+     * como unresolved. Los items en caché se usan siempre, falle lo que falle.
      *
      * @param itemIds Lista de IDs de ítems a consultar.
      * @return Un CompletableFuture que contendrá la lista de ítems con sus precios.
@@ -92,98 +295,527 @@ public class MeliItemService {
         if (itemIds == null || itemIds.isEmpty()) {
             return CompletableFuture.completedFuture(List.of());
         }
+        Map<String, CompletableFuture<Item>> pendingItems = requestItems(itemIds);
+        if (pendingItems == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Access Token no disponible."));
+        }
+
+        // Combinar resultados: items del cache + items consultados (por nosotros o por otros)
+        return CompletableFuture.allOf(pendingItems.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> itemIds.stream()
+                        .map(id -> pendingItems.get(id).join())
+                        .collect(Collectors.toList()));
+    }
+    
+    /**
+     * Igual que getItemsPrices, pero emite cada item apenas tiene precio (primero los del caché
+     * y después a medida que llegan los multigets) en lugar de esperar a tenerlos todos, para
+     * que el optimizador empiece a trabajar mientras siguen llegando los chunks. Emite un item
+     * por cada id pedido (los repetidos salen repetidos), sin respetar el orden de la lista.
+     */
+    public Flux<Item> streamItemsPrices(List<String> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> {
+            Map<String, CompletableFuture<Item>> pendingItems = requestItems(itemIds);
+            if (pendingItems == null) {
+                return Flux.error(new IllegalStateException("Access Token no disponible."));
+            }
+            // Cancelar el stream no cancela los futures: pueden ser compartidos con otras solicitudes
+            return Flux.fromIterable(itemIds)
+                    .flatMap(id -> Mono.fromFuture(pendingItems.get(id), true), itemIds.size());
+        });
+    }
+    
+    /**
+     * Precios pedidos por otra instancia del anillo (GET /coupon/cache/peer/items): el caché
+     * local y, para lo que falte, la API. No consulta el cache compartido ni otras instancias
+     * (si los anillos no coinciden la consulta podría volver a quien la hizo) ni cuenta como
+     * tráfico de items calientes, que ya contó la instancia que recibió el request. Devuelve
+     * un item por id, con precio 0 los que no se pudieron obtener.
+     */
+    public CompletableFuture<List<Item>> getItemsPricesLocally(List<String> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        Map<String, Item> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(itemIds)) {
+            Item cached = lookupCached(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else if (!isUnfetchable(id)) {
+                misses.add(id);
+            }
+        }
+        CompletableFuture<Map<String, Item>> fetched = misses.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : fetchInChunks(misses, Priority.INTERACTIVE);
+        return fetched.thenApply(items -> itemIds.stream()
+                .map(id -> found.getOrDefault(id, items.getOrDefault(id, new Item(id, BigDecimal.ZERO))))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Un future por id: completo si estaba en caché (o no vale la pena consultarlo), el de la
+     * consulta en curso si otra solicitud ya lo está pidiendo, o uno nuevo que resuelve el
+     * próximo multiget. Devuelve null si no hay token.
+     */
+    private Map<String, CompletableFuture<Item>> requestItems(List<String> itemIds) {
+        hotItems.recordAll(itemIds);
 
-        // 1. Identificar qué ítems ya están en caché y cuáles necesitan ser consultados a la API
-        Set<String> idsToFetch = itemIds.stream()
-                                    .filter(id -> !itemCache.containsKey(id))
-                                    .collect(Collectors.toSet());
+        // 1. Identificar qué ítems ya están en caché y cuáles necesitan ser consultados a la API.
+        //    Se lee cada entrada una sola vez: con expiración, un containsKey seguido de get
+        //    podría encontrar la entrada ya vencida. Los ids que no vale la pena consultar
+        //    se resuelven acá mismo con precio 0.
+        Map<String, CompletableFuture<Item>> pendingItems = new HashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String id : itemIds) {
+            if (pendingItems.containsKey(id) || misses.contains(id)) {
+                continue;
+            }
+            Item cached = lookupCached(id);
+            if (cached != null) {
+                pendingItems.put(id, CompletableFuture.completedFuture(cached));
+            } else if (isUnfetchable(id)) {
+                pendingItems.put(id, CompletableFuture.completedFuture(new Item(id, BigDecimal.ZERO)));
+            } else {
+                misses.add(id);
+            }
+        }
 
         // 2. Obtener el token de acceso
-        String currentAccessToken = getAccessToken();
-        if (currentAccessToken == null) {
-            return CompletableFuture.failedFuture(new IllegalStateException("Access Token no disponible."));
+        if (getAuthorization() == null) {
+            return null;
+        }
+
+        // 3. Single-flight: por cada miss, o nos sumamos a una consulta en curso
+        //    o registramos la nuestra y el id pasa a la llamada batch
+        Map<String, CompletableFuture<Item>> ownedItems = new LinkedHashMap<>();
+        for (String id : misses) {
+            CompletableFuture<Item> created = new CompletableFuture<>();
+            CompletableFuture<Item> existing = inFlight.putIfAbsent(id, created);
+            if (existing != null) {
+                pendingItems.put(id, existing);
+            } else {
+                created.whenComplete((item, error) -> inFlight.remove(id, created));
+                pendingItems.put(id, created);
+                ownedItems.put(id, created);
+            }
         }
 
-        // 3. Si todos los ítems ya están en caché, devolvemos directamente desde la caché
-        if (idsToFetch.isEmpty()) {
-            return CompletableFuture.completedFuture(
-                itemIds.stream()
-                       .map(itemCache::get)
-                       .collect(Collectors.toList())
-            );
+        if (!ownedItems.isEmpty()) {
+            batchDispatcher.submit(ownedItems);
         }
+        return pendingItems;
+    }
+    
+    /**
+     * Vuelve a consultar a la API los ids indicados porque se sabe que cambiaron (ver
+     * ItemNotificationProcessor). No pasa por los caches de otras instancias, que pueden
+     * tener el precio viejo; el precio nuevo sí se publica en el cache compartido. Devuelve
+     * los precios obtenidos: los ids que no se pudieron refrescar faltan o vienen como stale.
+     */
+    public CompletableFuture<Map<String, Item>> refreshItems(List<String> itemIds) {
+        return fetchInChunks(itemIds, Priority.BACKGROUND);
+    }
 
-        // 4. Construir la cadena de IDs para la llamada batch
-        String itemIdsString = String.join(",", idsToFetch);
+    /**
+     * Consulta los ids directo a la API, en multigets de hasta MULTIGET_MAX_IDS en paralelo.
+     */
+    private CompletableFuture<Map<String, Item>> fetchInChunks(List<String> itemIds, Priority priority) {
+        List<CompletableFuture<Map<String, Item>>> chunks = new ArrayList<>();
+        for (int from = 0; from < itemIds.size(); from += MULTIGET_MAX_IDS) {
+            List<String> chunk = List.copyOf(itemIds.subList(from, Math.min(from + MULTIGET_MAX_IDS, itemIds.size())));
+            chunks.add(fetchFromApi(chunk, priority));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<String, Item> items = new HashMap<>();
+                    chunks.forEach(chunk -> items.putAll(chunk.join()));
+                    return items;
+                });
+    }
+    
+    /**
+     * Consulta un batch de ids: primero en los caches de otras instancias y el resto en una única llamada
+     * multiget, guardando en caché los encontrados. Nunca falla: los ids que no se pudieron
+     * obtener vuelven con su último precio conocido o como unresolved, y el dispatcher completa
+     * con precio 0 los que no existen.
+     */
+    private CompletableFuture<Map<String, Item>> fetchBatch(List<String> itemIds, Priority priority) {
+        Map<String, Item> items = new ConcurrentHashMap<>();
+        return resolveFromPeers(itemIds, priority, items).thenCompose(remaining -> {
+            if (remaining.isEmpty()) {
+                return CompletableFuture.completedFuture(items);
+            }
+            return fetchFromApi(remaining, priority).thenApply(fetched -> {
+                items.putAll(fetched);
+                return items;
+            });
+        });
+    }
+    
+    /**
+     * Busca los ids en los caches de otras instancias: primero el cache compartido y lo que
+     * falte en la instancia dueña del anillo. Los encontrados se guardan en el caché local y
+     * en found; devuelve los que hay que consultar a la API.
+     */
+    private CompletableFuture<List<String>> resolveFromPeers(List<String> itemIds, Priority priority,
+                                                             Map<String, Item> found) {
+        return sharedCache.getAll(itemIds)
+                .thenApply(shared -> takeFound(itemIds, shared, priority, found))
+                .thenCompose(remaining -> peerCache.getAll(remaining)
+                        .thenApply(fromPeers -> takeFound(remaining, fromPeers, priority, found)));
+    }
+    
+    private List<String> takeFound(List<String> itemIds, Map<String, CachedItem> entries, Priority priority,
+                                   Map<String, Item> found) {
+        if (entries.isEmpty()) {
+            return itemIds;
+        }
+        List<String> remaining = new ArrayList<>();
+        for (String id : itemIds) {
+            CachedItem entry = entries.get(id);
+            // Un refresco solo se ahorra la API si otra instancia ya refrescó el precio
+            if (entry != null && (priority == Priority.INTERACTIVE || !itemCache.isStale(entry))) {
+                itemCache.put(entry);
+                found.put(id, entry.getItem());
+            } else {
+                remaining.add(id);
+            }
+        }
+        return remaining;
+    }
+    
+    private CompletableFuture<Map<String, Item>> fetchFromApi(List<String> itemIds, Priority priority) {
+        return fetchFromApi(itemIds, priority, 0, System.nanoTime() + interactiveRetryDeadlineNanos);
+    }
+    
+    /**
+     * La llamada multiget propiamente dicha, con circuit breaker, hedging y rate limiter.
+     * El resultado se evalúa por id: los encontrados se guardan en caché, los que la API no
+     * devolvió van al cache negativo y los que fallaron por un error transitorio (la llamada
+     * entera o su elemento con 429/5xx) se reintentan solos con backoff. Los que agotan los
+     * reintentos vuelven con el último precio conocido o como unresolved.
+     */
+    private CompletableFuture<Map<String, Item>> fetchFromApi(List<String> itemIds, Priority priority, int attempt,
+                                                              long deadlineNanos) {
+        String authorization = getAuthorization();
+        if (authorization == null || !circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.completedFuture(fallbackPrices(itemIds));
+        }
+        String itemIdsString = String.join(",", itemIds);
+        long startNanos = System.nanoTime();
 
         System.out.println("Consultando items a MercadoLibre: " + itemIdsString);
 
-        // 5. Realizar la llamada batch a la API de Mercado Libre
+        // Si la llamada se demora más que el percentil observado, sale una copia (ver HedgingPolicy);
+        // la copia también pasa por el rate limiter, con la prioridad de la original
+        return hedgingPolicy.execute(() -> withTokenRenewal(authorization, header -> rateLimiter.execute(priority,
+                        () -> requestMultiget(itemIdsString, header))))
+                .handle((response, error) -> {
+                    long elapsedNanos = System.nanoTime() - startNanos;
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        System.err.println("Error en llamada batch a MercadoLibre: " + cause.getMessage());
+                        cause.printStackTrace();
+                        recordOutcome(cause, elapsedNanos);
+                        if (!isRetryable(cause)) {
+                            return CompletableFuture.completedFuture(fallbackPrices(itemIds));
+                        }
+                        return retry(itemIds, priority, attempt, deadlineNanos, Map.of(), retriedWholeBatch);
+                    }
+                    circuitBreaker.onSuccess(elapsedNanos);
+                    Map<String, Item> fetchedItems = response.getItems();
+                    for (Item item : fetchedItems.values()) {
+                        itemCache.put(item);
+                        System.out.println("Item obtenido: " + item.getId() + " - Precio: " + item.getPrice());
+                    }
+                    sharedCache.putAll(fetchedItems.values());
+                    List<String> failed = new ArrayList<>();
+                    int missing = 0;
+                    for (String id : itemIds) {
+                        if (fetchedItems.containsKey(id)) {
+                            continue;
+                        }
+                        missing++;
+                        if (isTransientFailure(response, id)) {
+                            failed.add(id);
+                        } else {
+                            // La respuesta llegó bien pero no trajo este id: no existe o no tiene precio
+                            negativeCache.markMissing(id);
+                            // Si era un refresco, el precio viejo ya no vale
+                            itemCache.invalidate(id);
+                        }
+                    }
+                    if (missing > 0) {
+                        System.err.println(missing + " items no encontrados o con error en respuesta batch ("
+                                + failed.size() + " con error transitorio)");
+                    }
+                    if (failed.isEmpty()) {
+                        return CompletableFuture.completedFuture(fetchedItems);
+                    }
+                    return retry(failed, priority, attempt, deadlineNanos, fetchedItems, retriedItems);
+                })
+                .thenCompose(Function.identity());
+    }
+    
+    /**
+     * Vuelve a pedir solo los ids fallidos tras un backoff exponencial con jitter, y suma lo
+     * obtenido a lo que ya se tenía. Cada reintento sale del presupuesto del rate limiter,
+     * y los de un request de usuario no pasan del plazo interactive-deadline desde la primera
+     * llamada. Sin reintentos disponibles, usa los precios de respaldo.
+     */
+    private CompletableFuture<Map<String, Item>> retry(List<String> failed, Priority priority, int attempt,
+                                                       long deadlineNanos, Map<String, Item> fetched, Counter reason) {
+        Map<String, Item> items = new HashMap<>(fetched);
+        long backoff = retryBaseDelayNanos << Math.min(attempt, 10);
+        long delayNanos = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        boolean pastDeadline = priority == Priority.INTERACTIVE && remainingNanos <= delayNanos;
+        if (attempt >= maxRetries || pastDeadline || !rateLimiter.tryAcquireRetry()) {
+            items.putAll(fallbackPrices(failed));
+            return CompletableFuture.completedFuture(items);
+        }
+        reason.increment(failed.size());
+        CompletableFuture<Map<String, Item>> retried = CompletableFuture.supplyAsync(() -> null,
+                        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS))
+                .thenCompose(ignored -> fetchFromApi(failed, priority, attempt + 1, deadlineNanos));
+        if (priority == Priority.INTERACTIVE) {
+            // El usuario no espera más allá del plazo; si el reintento llega después, igual queda en caché
+            retried = retried.orTimeout(remainingNanos, TimeUnit.NANOSECONDS)
+                    .exceptionally(timeout -> fallbackPrices(failed));
+        }
+        return retried.thenApply(result -> {
+            items.putAll(result);
+            return items;
+        });
+    }
+    
+    /**
+     * Si el id faltante de una respuesta multiget vino con un error transitorio. Los errores
+     * de la API casi nunca traen el id: si no se pueden atribuir todos, se reintentan todos
+     * los faltantes en lugar de mandar al cache negativo un item que puede existir.
+     */
+    private static boolean isTransientFailure(MultigetResponseParser response, String itemId) {
+        int transientFailures = response.getTransientFailureCount();
+        if (transientFailures == 0) {
+            return false;
+        }
+        Set<String> transientIds = response.getTransientFailureIds();
+        return transientIds.size() < transientFailures || transientIds.contains(itemId);
+    }
+    
+    /**
+     * Si vale la pena repetir una llamada fallida: errores 5xx, timeouts y de conexión o de
+     * lectura. No se repiten los 4xx, los que el rate limiter ya reintentó (429 y 503 con
+     * Retry-After, respetando la cuota) ni los que el rate limiter no dejó salir.
+     */
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof RateLimitedException) {
+            return false;
+        }
+        if (!(error instanceof WebClientResponseException responseError)) {
+            return true;
+        }
+        return responseError.getStatusCode().is5xxServerError() && !OutboundRateLimiter.isThrottled(responseError);
+    }
+    
+    /**
+     * Una llamada multiget, parseada a medida que llegan los bytes (sin armar el árbol JSON).
+     * Si está habilitado se pide gzip/deflate y cada fragmento se descomprime y se pasa al
+     * parser apenas llega, sin juntar el cuerpo entero.
+     */
+    private Mono<MultigetResponseParser> requestMultiget(String itemIdsString, String authorization) {
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                     .path("/items")
                     .queryParam("ids", itemIdsString)
+                    // Solo los campos que usamos: evita bajar fotos, atributos y descripciones
+                    .queryParam("attributes", ITEM_ATTRIBUTES)
                     .build())
-                .header("Authorization", "Bearer " + currentAccessToken)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .headers(headers -> {
+                    if (multigetCompression) {
+                        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+                    }
+                })
                 .retrieve()
-                .bodyToMono(JsonNode.class) // Recibimos como JsonNode para manejar la estructura compleja
-                .timeout(Duration.ofSeconds(15))
-                .map(jsonResponse -> {
-                    List<Item> fetchedItems = new ArrayList<>();
-                    
-                    // La API de MercadoLibre devuelve un array de objetos
-                    if (jsonResponse.isArray()) {
-                        for (JsonNode itemNode : jsonResponse) {
+                .toEntityFlux(DataBuffer.class)
+                .flatMap(entity -> parseMultiget(entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING),
+                                                 entity.getBody()))
+                .timeout(Duration.ofSeconds(15));
+    }
+    
+    private Mono<MultigetResponseParser> parseMultiget(String contentEncoding, Flux<DataBuffer> body) {
+        String encoding = StreamingInflater.normalize(contentEncoding);
+        if (encoding == null) {
+            return body.doOnNext(DataBufferUtils::release)
+                    .then(Mono.error(new IOException("Content-Encoding no soportado: " + contentEncoding)));
+        }
+        MultigetResponseParser parser = new MultigetResponseParser();
+        return Mono.using(() -> StreamingInflater.forEncoding(encoding),
+                inflater -> body.reduce(parser, (current, buffer) -> {
                             try {
-                                // Cada elemento tiene una estructura: {"code": 200, "body": {...}}
-                                if (itemNode.has("code") && itemNode.get("code").asInt() == 200 && itemNode.has("body")) {
-                                    JsonNode bodyNode = itemNode.get("body");
-                                    String id = bodyNode.get("id").asText();
-                                    BigDecimal price = new BigDecimal(bodyNode.get("price").asText());
-                                    
-                                    if (price.compareTo(BigDecimal.ZERO) > 0) {
-                                        Item item = new Item(id, price);
-                                        fetchedItems.add(item);
-                                        itemCache.put(id, item);
-                                        System.out.println("Item obtenido: " + id + " - Precio: " + price);
-                                    }
-                                } else {
-                                    // Item no encontrado o error
-                                    System.err.println("Item no encontrado o con error en respuesta batch");
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Error procesando item en batch: " + e.getMessage());
+                                byte[] chunk = new byte[buffer.readableByteCount()];
+                                buffer.read(chunk);
+                                inflater.feed(chunk, 0, chunk.length, current::feed);
+                                return current;
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            } finally {
+                                DataBufferUtils.release(buffer);
                             }
-                        }
+                        })
+                        .map(current -> {
+                            try {
+                                inflater.finish();
+                                current.finish();
+                                return current;
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }),
+                inflater -> {
+                    multigetBytesIn.get(inflater.getEncoding()).increment(inflater.getCompressedBytes());
+                    multigetBytesDecoded.get(inflater.getEncoding()).increment(inflater.getInflatedBytes());
+                    if (!StreamingInflater.IDENTITY.equals(inflater.getEncoding())) {
+                        multigetInflateTime.record(inflater.getInflateNanos(), TimeUnit.NANOSECONDS);
                     }
-
-                    // 6. Combinar resultados: items del cache + items recién obtenidos
-                    return itemIds.stream().map(id -> {
-                        Item item = itemCache.get(id);
-                        if (item == null) {
-                            System.err.println("Advertencia: Item " + id + " no encontrado, usando precio 0");
-                            return new Item(id, BigDecimal.ZERO);
-                        }
-                        return item;
-                    }).collect(Collectors.toList());
-                    
-                }).onErrorResume(e -> {
-                    System.err.println("Error en llamada batch a MercadoLibre: " + e.getMessage());
-                    e.printStackTrace();
-                    
-                    // En caso de error, devolver items con precio 0
-                    return Mono.just(itemIds.stream()
-                                            .map(id -> new Item(id, BigDecimal.ZERO))
-                                            .collect(Collectors.toList()));
-                })
-                .toFuture();
+                    inflater.close();
+                });
+    }
+    
+    /**
+     * Lee el precio del caché. Si pasó el TTL blando se devuelve igual (a velocidad de hit)
+     * y se pide su refresco en segundo plano.
+     */
+    private Item lookupCached(String itemId) {
+        CachedItem entry = itemCache.getEntry(itemId);
+        if (entry == null) {
+            return null;
+        }
+        if (itemCache.isStale(entry)) {
+            refresher.onStaleHit(itemId, entry);
+        }
+        return entry.getItem();
+    }
+    
+    /**
+     * Refresca por adelantado los items calientes que no están en caché o que se acercan a su
+     * TTL blando (o al duro, si no hay blando), para que ningún request los encuentre vencidos.
+     */
+    private void refreshHotItems(Set<String> hot) {
+        if (!tokenManager.hasValidToken()) {
+            return;
+        }
+        Map<String, CachedItem> entries = itemCache.entries();
+        for (String id : hot) {
+            // Leer de la vista de entradas no cuenta como hit ni como miss
+            CachedItem entry = entries.get(id);
+            if ((entry == null || entry.ageNanos() >= refreshAheadNanos(entry))
+                    && ItemIdValidator.isValid(id) && !negativeCache.isKnownMissing(id)) {
+                refresher.refreshAhead(id);
+            }
+        }
+    }
+    
+    private long refreshAheadNanos(CachedItem entry) {
+        long ttlNanos = itemCache.getRefreshAfterWriteNanos() > 0
+                ? itemCache.softTtlNanos(entry)
+                : itemCache.ttlNanos(entry);
+        return ttlNanos - ttlNanos / 4;
+    }
+    
+    /**
+     * Hace la llamada con el header indicado y, si la API responde 401, la repite una vez con
+     * el token renovado (ver MeliTokenManager: un único refresco para todos los 401 simultáneos).
+     * Si no se pudo renovar, falla con el 401 original.
+     */
+    private <T> Mono<T> withTokenRenewal(String authorization, Function<String, Mono<T>> call) {
+        return call.apply(authorization)
+                .onErrorResume(WebClientResponseException.Unauthorized.class, unauthorized ->
+                        // Cancelar la llamada no cancela el refresco: lo comparten otras llamadas
+                        Mono.fromFuture(tokenManager.refreshAfterUnauthorized(authorization), true)
+                                .flatMap(call)
+                                .switchIfEmpty(Mono.error(unauthorized)));
+    }
+    
+    /**
+     * Informa al circuit breaker el resultado de una llamada fallida. Los errores 4xx (salvo
+     * 429) son del request, no de la API, así que no cuentan como falla. Si el rate limiter
+     * no dejó salir la llamada, no hay resultado que informar.
+     */
+    private void recordOutcome(Throwable error, long durationNanos) {
+        if (error instanceof RateLimitedException) {
+            circuitBreaker.releasePermission();
+        } else if (error instanceof WebClientResponseException responseError
+                && responseError.getStatusCode().is4xxClientError()
+                && responseError.getStatusCode().value() != 429) {
+            circuitBreaker.onSuccess(durationNanos);
+        } else {
+            circuitBreaker.onError(durationNanos);
+        }
+    }
+    
+    /**
+     * Precio de respaldo de cada id que no se pudo obtener: el último conocido, marcado como
+     * stale, o precio 0 marcado como unresolved si no hay ninguno (no es un item inexistente).
+     */
+    private Map<String, Item> fallbackPrices(List<String> itemIds) {
+        Map<String, Item> items = new HashMap<>();
+        int unresolved = 0;
+        for (String id : itemIds) {
+            Item lastKnown = itemCache.getLastKnown(id);
+            if (lastKnown != null) {
+                items.put(id, new Item(id, lastKnown.getPrice(), true));
+            } else {
+                items.put(id, new Item(id, BigDecimal.ZERO, false, true));
+                unresolved++;
+            }
+        }
+        staleFallbacks.increment(items.size() - unresolved);
+        unresolvedItems.increment(unresolved);
+        return items;
+    }
+    
+    private Item fallbackPrice(String itemId) {
+        return fallbackPrices(List.of(itemId)).get(itemId);
+    }
+    
+    /**
+     * Ids que no vale la pena consultar: formato inválido o conocidos como inexistentes.
+     */
+    private boolean isUnfetchable(String itemId) {
+        if (!ItemIdValidator.isValid(itemId)) {
+            invalidIds.increment();
+            return true;
+        }
+        return negativeCache.isKnownMissing(itemId);
+    }
+    
+    /**
+     * Completa una consulta en vuelo. El item ya está en caché (si se encontró) antes de sacar
+     * el future del mapa, así una solicitud nueva nunca ve ambos vacíos.
+     */
+    private void completeInFlight(String itemId, CompletableFuture<Item> future, Item item) {
+        future.complete(item);
+        inFlight.remove(itemId, future);
     }
     
     /**
      * Método para verificar si hay un token válido disponible
      */
     public boolean hasValidToken() {
-        String token = getAccessToken();
-        return token != null && !token.isEmpty();
+        return tokenManager.hasValidToken();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        batchDispatcher.shutdown();
+        refreshDispatcher.shutdown();
     }
 }
@@ -0,0 +1,236 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.dto.AccessTokenResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Guarda el Access Token de MercadoLibre y lo renueva antes de que venza.
+ *
+ * El token vigente vive en una referencia atómica junto con el header Authorization ya armado:
+ * cada llamada a la API lo lee sin locks ni concatenaciones. Al recibir un token se programa
+ * su renovación refresh-ahead antes del expires_in, así a plena carga nunca llega a vencer.
+ * Si igual la API responde 401 (token revocado, reloj corrido), la renovación es única: las
+ * llamadas que fallaron a la vez esperan el mismo refresco, y las que traían un token que ya
+ * se reemplazó reintentan directo con el nuevo. Los refresh tokens de MercadoLibre son de un
+ * solo uso, así que nunca corren dos refrescos a la vez.
+ */
+@Service
+public class MeliTokenManager {
+
+    private final MeliAuthService meliAuthService;
+    private final long refreshAheadNanos;
+    private final long retryIntervalNanos;
+
+    private final AtomicReference<TokenState> current = new AtomicReference<>();
+    // Refresco en curso: los 401 simultáneos esperan este mismo future
+    private final AtomicReference<CompletableFuture<TokenState>> refreshing = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledRefresh;
+    private volatile long lastFailureNanos;
+    private volatile boolean failedRecently;
+
+    private final Counter refreshedAhead;
+    private final Counter refreshedOnUnauthorized;
+    private final Counter refreshFailures;
+
+    public MeliTokenManager(MeliAuthService meliAuthService,
+                            @Value("${meli.auth.refresh-ahead:10m}") Duration refreshAhead,
+                            @Value("${meli.auth.retry-interval:30s}") Duration retryInterval,
+                            MeterRegistry meterRegistry) {
+        this.meliAuthService = meliAuthService;
+        this.refreshAheadNanos = refreshAhead.toNanos();
+        this.retryIntervalNanos = Math.max(1, retryInterval.toNanos());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "meli-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refreshedAhead = refreshCounter(meterRegistry, "scheduled");
+        this.refreshedOnUnauthorized = refreshCounter(meterRegistry, "unauthorized");
+        this.refreshFailures = Counter.builder("meli.auth.refresh.failures")
+                .description("Refrescos del Access Token que fallaron")
+                .register(meterRegistry);
+        Gauge.builder("meli.auth.token.remaining", current, reference -> {
+                    TokenState state = reference.get();
+                    return state == null ? 0 : Math.max(0, state.expiresAtNanos - System.nanoTime()) / 1e9;
+                })
+                .description("Segundos que le quedan al Access Token vigente")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reemplaza el token vigente (autorización, intercambio o refresco manual) y programa su
+     * renovación.
+     */
+    public void setToken(AccessTokenResponse token) {
+        if (token == null || token.getAccessToken() == null || token.getAccessToken().isEmpty()) {
+            return;
+        }
+        install(token, current.get());
+    }
+
+    /**
+     * El token vigente tal como lo devolvió MercadoLibre, o null si no hay.
+     */
+    public AccessTokenResponse getToken() {
+        TokenState state = current.get();
+        return state != null ? state.token : null;
+    }
+
+    /**
+     * Header Authorization ("Bearer ...") del token vigente, o null si no hay o ya venció.
+     */
+    public String getAuthorizationHeader() {
+        TokenState state = current.get();
+        return state != null && !state.isExpired(System.nanoTime()) ? state.authorization : null;
+    }
+
+    public boolean hasValidToken() {
+        return getAuthorizationHeader() != null;
+    }
+
+    /**
+     * Se llama cuando la API rechazó una llamada con 401. Devuelve el header con el que
+     * reintentar: el vigente si ya se renovó, o el del refresco (único para todos los que
+     * fallaron a la vez). Completa con null si no se pudo renovar.
+     */
+    public CompletableFuture<String> refreshAfterUnauthorized(String rejectedAuthorization) {
+        TokenState state = current.get();
+        if (state == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!state.authorization.equals(rejectedAuthorization)) {
+            return CompletableFuture.completedFuture(state.isExpired(System.nanoTime()) ? null : state.authorization);
+        }
+        // Tras un refresco fallido no se insiste con cada 401: ya hay un reintento programado
+        if (failedRecently && System.nanoTime() - lastFailureNanos < retryIntervalNanos) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return refresh(refreshedOnUnauthorized)
+                .thenApply(renewed -> renewed != null ? renewed.authorization : null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Pide un token nuevo con el refresh token, salvo que ya haya un refresco en curso.
+     * Corre en el hilo del scheduler (RestTemplate bloquea).
+     */
+    private CompletableFuture<TokenState> refresh(Counter trigger) {
+        CompletableFuture<TokenState> created = new CompletableFuture<>();
+        CompletableFuture<TokenState> existing = refreshing.compareAndExchange(null, created);
+        if (existing != null) {
+            return existing;
+        }
+        TokenState previous = current.get();
+        if (previous == null || previous.token.getRefreshToken() == null) {
+            refreshing.set(null);
+            created.complete(null);
+            return created;
+        }
+        try {
+            scheduler.execute(() -> {
+                TokenState renewed = null;
+                try {
+                    AccessTokenResponse response = meliAuthService.refreshAccessToken(previous.token.getRefreshToken());
+                    if (response == null || response.getAccessToken() == null) {
+                        throw new IllegalStateException("respuesta sin access_token");
+                    }
+                    renewed = install(response, previous);
+                    trigger.increment();
+                    System.out.println("Access Token renovado; expira en " + response.getExpiresIn() + " segundos");
+                } catch (RuntimeException e) {
+                    System.err.println("Error al renovar el Access Token: " + e.getMessage());
+                    refreshFailures.increment();
+                    lastFailureNanos = System.nanoTime();
+                    failedRecently = true;
+                    schedule(retryIntervalNanos);
+                } finally {
+                    // Primero se libera el lugar: un 401 con el token viejo ya ve el nuevo en current
+                    refreshing.set(null);
+                    created.complete(renewed);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Scheduler apagado
+            refreshing.set(null);
+            created.complete(null);
+        }
+        return created;
+    }
+
+    private TokenState install(AccessTokenResponse token, TokenState previous) {
+        // MercadoLibre devuelve un refresh token nuevo; si no vino, sigue valiendo el anterior
+        if (token.getRefreshToken() == null && previous != null) {
+            token.setRefreshToken(previous.token.getRefreshToken());
+        }
+        long now = System.nanoTime();
+        TokenState state = new TokenState(token, now);
+        current.set(state);
+        failedRecently = false;
+        if (state.expiresAtNanos != Long.MAX_VALUE) {
+            long lifetime = state.expiresAtNanos - now;
+            // Con tokens cortos, a la mitad de su vida
+            schedule(lifetime - Math.min(refreshAheadNanos, lifetime / 2));
+        }
+        return state;
+    }
+
+    private synchronized void schedule(long delayNanos) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        try {
+            scheduledRefresh = scheduler.schedule(() -> refresh(refreshedAhead), Math.max(0, delayNanos),
+                                                  TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            scheduledRefresh = null;
+        }
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String trigger) {
+        return Counter.builder("meli.auth.refreshes")
+                .tag("trigger", trigger)
+                .description("Access Tokens renovados con el refresh token")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Un token con su header ya armado y su vencimiento en el reloj monotónico.
+     */
+    private static class TokenState {
+        final AccessTokenResponse token;
+        final String authorization;
+        final long expiresAtNanos;
+
+        TokenState(AccessTokenResponse token, long receivedAtNanos) {
+            this.token = token;
+            this.authorization = "Bearer " + token.getAccessToken();
+            Long expiresIn = token.getExpiresIn();
+            this.expiresAtNanos = expiresIn != null && expiresIn > 0
+                    ? receivedAtNanos + TimeUnit.SECONDS.toNanos(expiresIn)
+                    : Long.MAX_VALUE;
+        }
+
+        boolean isExpired(long nowNanos) {
+            return expiresAtNanos != Long.MAX_VALUE && nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
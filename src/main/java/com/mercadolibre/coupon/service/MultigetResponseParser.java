@@ -0,0 +1,186 @@
+package com.mercadolibre.coupon.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.mercadolibre.coupon.model.Item;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parser incremental de la respuesta del multiget de items:
+ * [{"code": 200, "body": {"id": "...", "price": ...}}, ...]
+ *
+ * Recibe los bytes a medida que llegan (sin armar el árbol JSON ni juntar todo el cuerpo
+ * en memoria) y solo lee code, body.id y body.price; el resto de los campos se saltea
+ * contando la profundidad. Los items con código distinto de 200 o sin precio positivo no
+ * se incluyen en el resultado.
+ *
+ * No es thread-safe; se usa una instancia por respuesta.
+ */
+public class MultigetResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Profundidades del documento: array raíz (1) > elemento (2) > body (3)
+    private static final int ELEMENT_DEPTH = 2;
+    private static final int BODY_DEPTH = 3;
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Map<String, Item> items = new HashMap<>();
+
+    private int depth;
+    private int missingCount;
+    // Elementos con error transitorio (429 o 5xx): conviene reintentarlos
+    private int transientFailureCount;
+    private final Set<String> transientFailureIds = new HashSet<>();
+
+    // Estado del elemento actual
+    private String elementField;
+    private String bodyField;
+    private boolean inBody;
+    private int code;
+    private String id;
+    private BigDecimal price;
+
+    public MultigetResponseParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo crear el parser JSON", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Procesa el siguiente fragmento de la respuesta.
+     */
+    public void feed(byte[] data, int offset, int length) throws IOException {
+        feeder.feedInput(data, offset, offset + length);
+        drain();
+    }
+
+    /**
+     * Indica que no hay más bytes y devuelve los items encontrados, por id.
+     */
+    public Map<String, Item> finish() throws IOException {
+        feeder.endOfInput();
+        drain();
+        if (depth != 0) {
+            throw new IOException("Respuesta multiget incompleta");
+        }
+        return items;
+    }
+
+    /**
+     * Cantidad de elementos de la respuesta que no trajeron un item válido (404, sin precio, etc.).
+     */
+    public int getMissingCount() {
+        return missingCount;
+    }
+
+    /**
+     * Cantidad de elementos con error transitorio (429 o 5xx). Están incluidos en getMissingCount.
+     */
+    public int getTransientFailureCount() {
+        return transientFailureCount;
+    }
+
+    /**
+     * Ids de los elementos con error transitorio que traían el id en el body. Los errores de la
+     * API en general no lo traen, así que puede tener menos ids que getTransientFailureCount.
+     */
+    public Set<String> getTransientFailureIds() {
+        return transientFailureIds;
+    }
+
+    /**
+     * Los items encontrados después de finish.
+     */
+    public Map<String, Item> getItems() {
+        return items;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                depth++;
+                if (depth == ELEMENT_DEPTH && token == JsonToken.START_OBJECT) {
+                    startElement();
+                } else if (depth == BODY_DEPTH && token == JsonToken.START_OBJECT && "body".equals(elementField)) {
+                    inBody = true;
+                }
+            }
+            case END_OBJECT, END_ARRAY -> {
+                if (depth == BODY_DEPTH) {
+                    inBody = false;
+                } else if (depth == ELEMENT_DEPTH && token == JsonToken.END_OBJECT) {
+                    endElement();
+                }
+                depth--;
+            }
+            case FIELD_NAME -> {
+                if (depth == ELEMENT_DEPTH) {
+                    elementField = parser.currentName();
+                } else if (depth == BODY_DEPTH && inBody) {
+                    bodyField = parser.currentName();
+                }
+            }
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_STRING -> readScalar(token);
+            default -> {
+                // null, booleanos y embebidos no interesan
+            }
+        }
+    }
+
+    private void readScalar(JsonToken token) throws IOException {
+        if (depth == ELEMENT_DEPTH && "code".equals(elementField) && token == JsonToken.VALUE_NUMBER_INT) {
+            code = parser.getIntValue();
+        } else if (depth == BODY_DEPTH && inBody) {
+            if ("id".equals(bodyField) && token == JsonToken.VALUE_STRING) {
+                id = parser.getText();
+            } else if ("price".equals(bodyField) && token != JsonToken.VALUE_STRING) {
+                price = token == JsonToken.VALUE_NUMBER_INT
+                        ? BigDecimal.valueOf(parser.getLongValue())
+                        : parser.getDecimalValue();
+            }
+        }
+    }
+
+    private void startElement() {
+        elementField = null;
+        bodyField = null;
+        inBody = false;
+        code = 0;
+        id = null;
+        price = null;
+    }
+
+    private void endElement() {
+        if (code == 200 && id != null && price != null && price.signum() > 0) {
+            items.put(id, new Item(id, price));
+        } else {
+            missingCount++;
+            if (code == 429 || code >= 500) {
+                transientFailureCount++;
+                if (id != null) {
+                    transientFailureIds.add(id);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.mercadolibre.coupon.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Programa las llamadas salientes a MercadoLibre dentro de la cuota de la aplicación.
+ *
+ * Un token bucket limita el ritmo de llamadas; las que no tienen token esperan en una cola
+ * por prioridad (los requests de usuarios antes que los refrescos en segundo plano), con un
+ * tope de cola y de espera para fallar rápido en lugar de acumular. Ante un 429 se respeta
+ * Retry-After pausando todas las salidas, y se reintenta con backoff y jitter mientras haya
+ * presupuesto de reintentos, para no amplificar el throttling con una ola de reintentos.
+ */
+public class OutboundRateLimiter {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    /**
+     * La llamada no salió: la cola estaba llena o se esperó demasiado por un token.
+     */
+    public static class RateLimitedException extends RuntimeException {
+        public RateLimitedException(String message) {
+            super(message);
+        }
+    }
+
+    // Presupuesto de reintentos en millonésimas, igual que el de hedging
+    private static final long TOKEN = 1_000_000L;
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final int maxRetries;
+    private final long retryBaseDelayNanos;
+    private final long retryBudgetPerCall;
+    private final long maxRetryBudget;
+    private final Scheduler scheduler;
+
+    private final Object lock = new Object();
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private long sequence;
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private Disposable scheduledDrain;
+
+    private final AtomicLong retryBudget = new AtomicLong();
+
+    private final Timer acquireWait;
+    private final Counter rejected;
+    private final Counter throttled;
+    private final Counter retries;
+    private final Counter retriesDenied;
+
+    public OutboundRateLimiter(double permitsPerSecond, int burst, int maxQueued, Duration maxWait,
+                               int maxRetries, Duration retryBaseDelay, double retryBudgetRatio,
+                               MeterRegistry meterRegistry) {
+        this(permitsPerSecond, burst, maxQueued, maxWait, maxRetries, retryBaseDelay, retryBudgetRatio,
+             meterRegistry, Schedulers.parallel());
+    }
+
+    OutboundRateLimiter(double permitsPerSecond, int burst, int maxQueued, Duration maxWait,
+                        int maxRetries, Duration retryBaseDelay, double retryBudgetRatio,
+                        MeterRegistry meterRegistry, Scheduler scheduler) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.maxRetries = maxRetries;
+        this.retryBaseDelayNanos = retryBaseDelay.toNanos();
+        this.retryBudgetPerCall = (long) (retryBudgetRatio * TOKEN);
+        this.maxRetryBudget = Math.max(1, maxRetries) * 10L * TOKEN;
+        this.scheduler = scheduler;
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+
+        this.acquireWait = Timer.builder("meli.http.ratelimit.wait")
+                .description("Espera por un token antes de llamar a la API")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("meli.http.ratelimit.rejected")
+                .description("Llamadas no enviadas por cola llena o espera excesiva")
+                .register(meterRegistry);
+        this.throttled = Counter.builder("meli.http.ratelimit.throttled")
+                .description("Respuestas 429 de la API")
+                .register(meterRegistry);
+        this.retries = Counter.builder("meli.http.ratelimit.retries")
+                .description("Reintentos tras un 429/503")
+                .register(meterRegistry);
+        this.retriesDenied = Counter.builder("meli.http.ratelimit.retries.denied")
+                .description("Reintentos no hechos por falta de presupuesto")
+                .register(meterRegistry);
+        Gauge.builder("meli.http.ratelimit.queued", this, limiter -> limiter.queuedCount())
+                .description("Llamadas esperando un token")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la llamada cuando hay token, reintentando los 429 según Retry-After y el
+     * presupuesto de reintentos.
+     */
+    public <T> Mono<T> execute(Priority priority, Supplier<Mono<T>> call) {
+        retryBudget.accumulateAndGet(retryBudgetPerCall, (current, add) -> Math.min(maxRetryBudget, current + add));
+        return attempt(priority, call, 0);
+    }
+
+    int queuedCount() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    private <T> Mono<T> attempt(Priority priority, Supplier<Mono<T>> call, int retry) {
+        return acquire(priority)
+                .then(Mono.defer(call))
+                .onErrorResume(WebClientResponseException.class, error -> {
+                    long retryAfterNanos = retryAfterNanos(error);
+                    boolean tooManyRequests = error.getStatusCode().value() == 429;
+                    if (tooManyRequests) {
+                        throttled.increment();
+                    }
+                    if (!isThrottled(error)) {
+                        return Mono.error(error);
+                    }
+                    if (retryAfterNanos > 0) {
+                        pauseFor(retryAfterNanos);
+                    }
+                    if (retry >= maxRetries || !tryAcquireRetryBudget()) {
+                        retriesDenied.increment();
+                        return Mono.error(error);
+                    }
+                    retries.increment();
+                    long delay = Math.max(retryAfterNanos, jitteredBackoffNanos(retry));
+                    return Mono.delay(Duration.ofNanos(delay), scheduler)
+                            .then(attempt(priority, call, retry + 1));
+                });
+    }
+
+    /**
+     * Espera un token. Falla con RateLimitedException si la cola está llena o si no se
+     * consigue dentro de la espera máxima.
+     */
+    Mono<Void> acquire(Priority priority) {
+        Mono<Void> acquisition = Mono.defer(() -> {
+            long start = System.nanoTime();
+            // Solo se mide la espera de quien efectivamente recibió el token
+            return waitForToken(priority)
+                    .doOnSuccess(ignored -> acquireWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+        return acquisition
+                .timeout(maxWait, scheduler)
+                .onErrorMap(TimeoutException.class, e -> {
+                    rejected.increment();
+                    return new RateLimitedException("Sin cuota para llamar a MercadoLibre en " + maxWait);
+                });
+    }
+
+    private Mono<Void> waitForToken(Priority priority) {
+        return Mono.create(sink -> {
+            long now = System.nanoTime();
+            Waiter waiter = null;
+            boolean granted = false;
+            boolean full = false;
+            synchronized (lock) {
+                refill(now);
+                if (waiters.isEmpty() && now >= pausedUntilNanos && tokens >= 1) {
+                    tokens -= 1;
+                    granted = true;
+                } else if (waiters.size() >= maxQueued) {
+                    full = true;
+                } else {
+                    waiter = new Waiter(priority, sequence++, sink);
+                    waiters.add(waiter);
+                    scheduleDrain(now);
+                }
+            }
+            if (granted) {
+                sink.success();
+            } else if (full) {
+                rejected.increment();
+                sink.error(new RateLimitedException("Cola de llamadas a MercadoLibre llena"));
+            } else {
+                Waiter queued = waiter;
+                sink.onCancel(() -> {
+                    synchronized (lock) {
+                        if (queued.claimed) {
+                            // drain ya le cobró el token pero el aviso llegó tarde (timeout): se devuelve
+                            tokens = Math.min(burst, tokens + 1);
+                        } else {
+                            waiters.remove(queued);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (lock) {
+            scheduledDrain = null;
+            refill(now);
+            while (!waiters.isEmpty() && now >= pausedUntilNanos && tokens >= 1) {
+                tokens -= 1;
+                Waiter waiter = waiters.poll();
+                waiter.claimed = true;
+                ready.add(waiter);
+            }
+            if (!waiters.isEmpty()) {
+                scheduleDrain(now);
+            }
+        }
+        // Si el waiter se canceló mientras tanto, el success no llega a nadie y onCancel devolvió el token
+        for (Waiter waiter : ready) {
+            waiter.sink.success();
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private void scheduleDrain(long now) {
+        if (scheduledDrain != null) {
+            return;
+        }
+        long untilToken = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        long delay = Math.max(Math.max(0, pausedUntilNanos - now), untilToken);
+        scheduledDrain = scheduler.schedule(this::drain, Math.max(delay, 1), TimeUnit.NANOSECONDS);
+    }
+
+    // Debe llamarse con el lock tomado
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * permitsPerNano);
+            lastRefillNanos = now;
+        }
+    }
+
+    private void pauseFor(long nanos) {
+        synchronized (lock) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + nanos);
+            // Los tokens juntados antes del 429 no valen: la API ya nos está frenando
+            tokens = Math.min(tokens, 1);
+        }
+    }
+
+    /**
+     * Toma un reintento del presupuesto. Lo usan también los reintentos que se hacen por
+     * fuera del rate limiter (ids fallidos de un multiget), así entre todos no pasan de
+     * retry-budget-ratio de las llamadas.
+     */
+    public boolean tryAcquireRetry() {
+        if (tryAcquireRetryBudget()) {
+            return true;
+        }
+        retriesDenied.increment();
+        return false;
+    }
+
+    private boolean tryAcquireRetryBudget() {
+        long current;
+        do {
+            current = retryBudget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!retryBudget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    // Backoff exponencial con "equal jitter": la mitad fija y la otra mitad al azar
+    private long jitteredBackoffNanos(int retry) {
+        long backoff = retryBaseDelayNanos << Math.min(retry, 10);
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Si es una respuesta que el rate limiter ya reintenta (429, o 503 con Retry-After):
+     * quien llama no debe volver a reintentarla.
+     */
+    static boolean isThrottled(WebClientResponseException error) {
+        int status = error.getStatusCode().value();
+        return status == 429 || (status == 503 && retryAfterNanos(error) > 0);
+    }
+
+    /**
+     * Retry-After en segundos o como fecha HTTP; 0 si no vino.
+     */
+    static long retryAfterNanos(WebClientResponseException error) {
+        String value = error.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+            } catch (RuntimeException notDate) {
+                return 0;
+            }
+        }
+    }
+
+    private static class Waiter implements Comparable<Waiter> {
+        final Priority priority;
+        final long sequence;
+        final MonoSink<Void> sink;
+        // Ya tiene su token (lo cobró drain); se lee y escribe con el lock tomado
+        boolean claimed;
+
+        Waiter(Priority priority, long sequence, MonoSink<Void> sink) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.sink = sink;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga masiva de precios al cache desde los exports nocturnos (CSV o NDJSON con item_id,
+ * price y timestamp en epoch segundos o milisegundos), para no descubrir de a un request
+ * los precios de los vendedores top.
+ *
+ * El archivo se lee por bloques con NIO y cada línea se parsea sobre los bytes: el único
+ * String que se crea por fila es el id (la clave del cache); precio y timestamp se arman
+ * directo desde los dígitos. Las filas se insertan en el cache en batches en paralelo.
+ * Se descartan las filas con id o precio inválido, las que ya pasaron el TTL duro que les
+ * tocaría en el cache (con TTL adaptativo, el de cada item) y las de items cuyo precio en
+ * cache es más nuevo que el del archivo.
+ *
+ * Se dispara por POST /coupon/cache/import (solo archivos de meli.cache.import.directory)
+ * o al arrancar con meli.cache.import.on-startup.
+ */
+@Component
+public class PriceImporter {
+
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+    // Por debajo de este valor el timestamp está en segundos y no en milisegundos
+    private static final long MAX_EPOCH_SECONDS = 100_000_000_000L;
+    private static final byte[] ID_KEY = "\"item_id\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRICE_KEY = "\"price\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TIMESTAMP_KEY = "\"timestamp\"".getBytes(StandardCharsets.UTF_8);
+
+    private final ItemPriceCache itemCache;
+    private final Path directory;
+    private final String startupFile;
+    private final int parallelism;
+    private final int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile long totalBytes;
+    private volatile String currentFile;
+    private volatile Map<String, Object> lastResult = Map.of();
+
+    private final Counter loaded;
+    private final Counter expired;
+    private final Counter outdated;
+    private final Counter invalid;
+    private final Counter bytes;
+    private final Timer duration;
+
+    public PriceImporter(ItemPriceCache itemCache,
+                         @Value("${meli.cache.import.directory:}") String directory,
+                         @Value("${meli.cache.import.on-startup:}") String startupFile,
+                         @Value("${meli.cache.import.parallelism:4}") int parallelism,
+                         @Value("${meli.cache.import.batch-size:8192}") int batchSize,
+                         MeterRegistry meterRegistry) {
+        this.itemCache = itemCache;
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory).toAbsolutePath().normalize();
+        this.startupFile = startupFile;
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = Math.max(1, batchSize);
+
+        this.loaded = rows(meterRegistry, "loaded");
+        this.expired = rows(meterRegistry, "expired");
+        this.outdated = rows(meterRegistry, "outdated");
+        this.invalid = rows(meterRegistry, "invalid");
+        this.bytes = Counter.builder("meli.cache.import.bytes")
+                .description("Bytes leídos de archivos de precios")
+                .register(meterRegistry);
+        this.duration = Timer.builder("meli.cache.import.duration")
+                .description("Duración de cada carga masiva de precios")
+                .register(meterRegistry);
+        Gauge.builder("meli.cache.import.progress", this, importer -> importer.progress())
+                .description("Fracción leída del archivo que se está cargando")
+                .register(meterRegistry);
+    }
+
+    private static Counter rows(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("meli.cache.import.rows")
+                .description("Filas procesadas en cargas masivas de precios")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void importOnStartup() {
+        if (startupFile == null || startupFile.isBlank()) {
+            return;
+        }
+        start(Path.of(startupFile.trim())).whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Falló la carga inicial de precios " + startupFile + ": " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Carga en segundo plano un archivo de meli.cache.import.directory. Falla con
+     * IllegalArgumentException si el archivo no es válido y con IllegalStateException si
+     * ya hay una carga en curso.
+     */
+    public CompletableFuture<Map<String, Object>> importFromDirectory(String fileName) {
+        if (directory == null) {
+            throw new IllegalArgumentException("La carga de precios por HTTP no está habilitada (meli.cache.import.directory)");
+        }
+        Path file = directory.resolve(fileName).toAbsolutePath().normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Archivo de precios inválido: " + fileName);
+        }
+        return start(file);
+    }
+
+    public Map<String, Object> statusSnapshot() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("file", currentFile);
+        status.put("bytesRead", bytesRead.get());
+        status.put("totalBytes", totalBytes);
+        status.put("progress", progress());
+        status.put("lastResult", lastResult);
+        return status;
+    }
+
+    private CompletableFuture<Map<String, Object>> start(Path file) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una carga de precios en curso: " + currentFile);
+        }
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            Map<String, Object> summary = null;
+            Throwable failure = null;
+            try {
+                summary = importFile(file);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            // Se libera antes de completar, así quien espera el resultado puede lanzar otra carga
+            running.set(false);
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(summary);
+            }
+        }, "meli-import");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Carga el archivo en el cache y devuelve el resumen. Bloquea hasta terminar.
+     */
+    Map<String, Object> importFile(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        boolean ndjson = name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json");
+        long start = System.nanoTime();
+        currentFile = file.toString();
+        bytesRead.set(0);
+        totalBytes = Files.size(file);
+        System.out.println("Cargando precios desde " + file + " (" + totalBytes + " bytes)");
+
+        RowLoader loader = new RowLoader();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            boolean firstLine = true;
+            int read;
+            while ((read = channel.read(buffer)) >= 0 || buffer.position() > 0) {
+                if (read > 0) {
+                    bytesRead.addAndGet(read);
+                    bytes.increment(read);
+                }
+                byte[] data = buffer.array();
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (data[i] == '\n') {
+                        firstLine = parseLine(data, lineStart, i, ndjson, firstLine, loader);
+                        lineStart = i + 1;
+                    }
+                }
+                if (read < 0) {
+                    // Última línea sin salto de línea final
+                    if (lineStart < limit) {
+                        parseLine(data, lineStart, limit, ndjson, firstLine, loader);
+                    }
+                    break;
+                }
+                if (lineStart == 0 && limit == buffer.capacity()) {
+                    // Una línea más larga que el buffer: se agranda
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.position(lineStart);
+                    buffer.limit(limit);
+                    buffer.compact();
+                }
+            }
+        } finally {
+            loader.finish();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.toString());
+        result.put("loaded", loader.loadedRows.get());
+        result.put("expired", loader.expiredRows.get());
+        result.put("outdated", loader.outdatedRows.get());
+        result.put("invalid", loader.invalidRows);
+        result.put("bytes", bytesRead.get());
+        result.put("millis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        lastResult = result;
+        System.out.println("Carga de precios terminada: " + result);
+        return result;
+    }
+
+    private double progress() {
+        long total = totalBytes;
+        return total > 0 ? Math.min(1.0, (double) bytesRead.get() / total) : 0.0;
+    }
+
+    /**
+     * Parsea una línea (sin el salto final). Devuelve si la próxima sigue siendo la primera,
+     * para saltear el encabezado del CSV.
+     */
+    private boolean parseLine(byte[] data, int from, int to, boolean ndjson, boolean firstLine, RowLoader loader) {
+        if (to > from && data[to - 1] == '\r') {
+            to--;
+        }
+        if (to <= from) {
+            return firstLine;
+        }
+        int[] fields = loader.fields;
+        boolean found = ndjson ? jsonFields(data, from, to, fields) : csvFields(data, from, to, fields);
+        if (!found) {
+            loader.invalid();
+            return false;
+        }
+        String itemId = new String(data, fields[0], fields[1] - fields[0], StandardCharsets.US_ASCII);
+        if (!ItemIdValidator.isValid(itemId)) {
+            // Encabezado del CSV (item_id,price,timestamp): no es una fila inválida
+            if (!(firstLine && !ndjson)) {
+                loader.invalid();
+            }
+            return false;
+        }
+        BigDecimal price = parsePrice(data, fields[2], fields[3]);
+        long timestamp = fields[4] < fields[5] ? parseLong(data, fields[4], fields[5]) : System.currentTimeMillis();
+        if (price == null || timestamp < 0) {
+            loader.invalid();
+            return false;
+        }
+        if (timestamp < MAX_EPOCH_SECONDS) {
+            timestamp *= 1000;
+        }
+        loader.add(itemId, price, timestamp);
+        return false;
+    }
+
+    /**
+     * Posiciones [inicio, fin) de id, precio y timestamp (opcional) en una línea CSV.
+     */
+    static boolean csvFields(byte[] data, int from, int to, int[] fields) {
+        int field = 0;
+        int start = from;
+        fields[4] = fields[5] = 0;
+        for (int i = from; i <= to && field < 3; i++) {
+            if (i == to || data[i] == ',') {
+                int s = start;
+                int e = i;
+                while (s < e && (data[s] == ' ' || data[s] == '"')) {
+                    s++;
+                }
+                while (e > s && (data[e - 1] == ' ' || data[e - 1] == '"')) {
+                    e--;
+                }
+                fields[field * 2] = s;
+                fields[field * 2 + 1] = e;
+                field++;
+                start = i + 1;
+            }
+        }
+        return field >= 2 && fields[1] > fields[0];
+    }
+
+    /**
+     * Posiciones de "item_id", "price" y "timestamp" en un objeto JSON de una línea.
+     */
+    static boolean jsonFields(byte[] data, int from, int to, int[] fields) {
+        fields[4] = fields[5] = 0;
+        if (!jsonValue(data, from, to, ID_KEY, fields, 0) || !jsonValue(data, from, to, PRICE_KEY, fields, 2)) {
+            return false;
+        }
+        // El timestamp es opcional: sin él se toma el momento de la carga
+        jsonValue(data, from, to, TIMESTAMP_KEY, fields, 4);
+        return fields[1] > fields[0];
+    }
+
+    private static boolean jsonValue(byte[] data, int from, int to, byte[] key, int[] fields, int slot) {
+        int keyAt = indexOf(data, from, to, key);
+        if (keyAt < 0) {
+            return false;
+        }
+        int i = keyAt + key.length;
+        while (i < to && (data[i] == ' ' || data[i] == ':')) {
+            i++;
+        }
+        if (i >= to) {
+            return false;
+        }
+        int start;
+        int end;
+        if (data[i] == '"') {
+            start = i + 1;
+            end = start;
+            while (end < to && data[end] != '"') {
+                end++;
+            }
+        } else {
+            start = i;
+            end = start;
+            while (end < to && data[end] != ',' && data[end] != '}' && data[end] != ' ') {
+                end++;
+            }
+        }
+        fields[slot] = start;
+        fields[slot + 1] = end;
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] key) {
+        outer:
+        for (int i = from; i <= to - key.length; i++) {
+            for (int j = 0; j < key.length; j++) {
+                if (data[i + j] != key[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Precio decimal positivo armado desde los dígitos, o null si no es un número válido.
+     */
+    static BigDecimal parsePrice(byte[] data, int from, int to) {
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (++digits > 18) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return null;
+            }
+        }
+        // Un precio 0 es lo que se usa para items sin precio: no vale la pena cachearlo
+        if (digits == 0 || unscaled == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(unscaled, Math.max(scale, 0));
+    }
+
+    static long parseLong(byte[] data, int from, int to) {
+        if (to - from > 18 || to <= from) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Junta las filas en batches y los inserta en el cache en paralelo, con un tope de
+     * batches pendientes para no cargar el archivo entero en memoria.
+     */
+    private class RowLoader {
+        final int[] fields = new int[6];
+        final AtomicInteger loadedRows = new AtomicInteger();
+        final AtomicInteger outdatedRows = new AtomicInteger();
+        final AtomicInteger expiredRows = new AtomicInteger();
+        int invalidRows;
+
+        private final ExecutorService executor;
+        private final Semaphore pendingBatches = new Semaphore(parallelism * 2);
+        private final long nowMillis = System.currentTimeMillis();
+        private final long nowNanos = System.nanoTime();
+        // Filtro grueso antes de armar la entrada; el TTL de cada item lo decide el cache al guardarla
+        private final long maxTtlMillis = TimeUnit.NANOSECONDS.toMillis(itemCache.getMaxTtlNanos());
+        private CachedItem[] batch = new CachedItem[batchSize];
+        private int batchCount;
+
+        RowLoader() {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "meli-import-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void add(String itemId, BigDecimal price, long fetchedAtMillis) {
+            long ageMillis = Math.max(0, nowMillis - fetchedAtMillis);
+            if (ageMillis >= maxTtlMillis) {
+                expiredRows.incrementAndGet();
+                expired.increment();
+                return;
+            }
+            batch[batchCount++] = new CachedItem(new Item(itemId, price),
+                                                 nowNanos - TimeUnit.MILLISECONDS.toNanos(ageMillis));
+            if (batchCount == batch.length) {
+                flush();
+            }
+        }
+
+        void invalid() {
+            invalidRows++;
+            invalid.increment();
+        }
+
+        void finish() {
+            flush();
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("Carga de precios interrumpida", e));
+            }
+        }
+
+        private void flush() {
+            if (batchCount == 0) {
+                return;
+            }
+            CachedItem[] full = batch;
+            int count = batchCount;
+            batch = new CachedItem[batchSize];
+            batchCount = 0;
+            pendingBatches.acquireUninterruptibly();
+            executor.execute(() -> {
+                try {
+                    int stored = 0;
+                    int tooOld = 0;
+                    for (int i = 0; i < count; i++) {
+                        // El archivo puede ser más viejo que lo que ya trajo la API
+                        ItemPriceCache.PutResult result = itemCache.putIfNewer(full[i]);
+                        if (result == ItemPriceCache.PutResult.STORED) {
+                            stored++;
+                        } else if (result == ItemPriceCache.PutResult.EXPIRED) {
+                            tooOld++;
+                        }
+                    }
+                    loadedRows.addAndGet(stored);
+                    loaded.increment(stored);
+                    expiredRows.addAndGet(tooOld);
+                    expired.increment(tooOld);
+                    outdatedRows.addAndGet(count - stored - tooOld);
+                    outdated.increment(count - stored - tooOld);
+                } finally {
+                    pendingBatches.release();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mercadolibre.coupon.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Subset-sum disperso: mantiene ordenadas solo las sumas alcanzables (en centavos)
+ * en lugar de una fila densa de tamaño presupuesto + 1.
+ *
+ * Cada item se agrega fusionando la lista actual con una copia desplazada por su precio,
+ * descartando lo que supera el presupuesto. Para reconstruir la solución se guarda, por
+ * cada suma, el índice del item que la alcanzó primero: la suma previa siempre fue creada
+ * por un item anterior, así que la cadena de back-pointers nunca repite items.
+ *
+ * No es thread-safe; cada resolución usa su propia instancia.
+ */
+final class ReachableSums {
+
+    private final long budget;
+    private final int maxStates;
+
+    private long[] sums;
+    private int[] creators;
+    private long[] nextSums;
+    private int[] nextCreators;
+    private int size;
+
+    private final List<String> ids = new ArrayList<>();
+    private long[] prices = new long[16];
+    private boolean overflow;
+
+    ReachableSums(long budget, int maxStates) {
+        this.budget = budget;
+        this.maxStates = maxStates;
+        int initial = Math.max(16, Math.min(maxStates, 1024));
+        this.sums = new long[initial];
+        this.creators = new int[initial];
+        this.nextSums = new long[initial];
+        this.nextCreators = new int[initial];
+        this.sums[0] = 0;
+        this.creators[0] = -1;
+        this.size = 1;
+    }
+
+    /**
+     * Agrega un item al conjunto de sumas alcanzables.
+     *
+     * @return false si la cantidad de sumas superó el límite; a partir de ahí la instancia
+     *         queda inutilizable y hay que caer a otra estrategia.
+     */
+    boolean add(String id, long priceCents) {
+        if (overflow) {
+            return false;
+        }
+        int itemIndex = ids.size();
+        ids.add(id);
+        if (itemIndex == prices.length) {
+            prices = Arrays.copyOf(prices, itemIndex * 2);
+        }
+        prices[itemIndex] = priceCents;
+
+        if (priceCents <= 0 || priceCents > budget) {
+            return true;
+        }
+
+        // Cantidad de sumas desplazadas que siguen dentro del presupuesto
+        int shifted = upperBound(budget - priceCents);
+        ensureNextCapacity(size + shifted);
+
+        int i = 0;
+        int j = 0;
+        int out = 0;
+        while (i < size || j < shifted) {
+            long a = i < size ? sums[i] : Long.MAX_VALUE;
+            long b = j < shifted ? sums[j] + priceCents : Long.MAX_VALUE;
+            if (a <= b) {
+                // En empate se conserva el creador original de la suma
+                nextSums[out] = a;
+                nextCreators[out] = creators[i];
+                i++;
+                if (a == b) {
+                    j++;
+                }
+            } else {
+                nextSums[out] = b;
+                nextCreators[out] = itemIndex;
+                j++;
+            }
+            out++;
+            if (out > maxStates) {
+                overflow = true;
+                return false;
+            }
+        }
+
+        long[] tmpSums = sums;
+        sums = nextSums;
+        nextSums = tmpSums;
+        int[] tmpCreators = creators;
+        creators = nextCreators;
+        nextCreators = tmpCreators;
+        size = out;
+        return true;
+    }
+
+    boolean isOverflow() {
+        return overflow;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Mejor suma alcanzable sin superar el presupuesto.
+     */
+    long best() {
+        return sums[size - 1];
+    }
+
+    /**
+     * Las k mayores sumas alcanzables (mayores a cero), en orden descendente.
+     */
+    long[] topSums(int k) {
+        int count = Math.min(k, size - 1);
+        long[] result = new long[Math.max(count, 0)];
+        for (int n = 0; n < result.length; n++) {
+            result[n] = sums[size - 1 - n];
+        }
+        return result;
+    }
+
+    /**
+     * Reconstruye los ids que forman una suma alcanzable siguiendo los back-pointers.
+     */
+    List<String> reconstruct(long sum) {
+        List<String> result = new ArrayList<>();
+        long remaining = sum;
+        while (remaining > 0) {
+            int idx = Arrays.binarySearch(sums, 0, size, remaining);
+            if (idx < 0) {
+                throw new IllegalStateException("Suma no alcanzable: " + sum);
+            }
+            int itemIndex = creators[idx];
+            result.add(ids.get(itemIndex));
+            remaining -= prices[itemIndex];
+        }
+        return result;
+    }
+
+    /**
+     * Cantidad de sumas <= limit (las sumas están ordenadas).
+     */
+    private int upperBound(long limit) {
+        int idx = Arrays.binarySearch(sums, 0, size, limit);
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+
+    private void ensureNextCapacity(int required) {
+        int capacity = Math.min(required, maxStates + 1);
+        if (nextSums.length < capacity) {
+            int newLength = Math.min(Math.max(capacity, nextSums.length * 2), maxStates + 1);
+            nextSums = new long[newLength];
+            nextCreators = new int[newLength];
+        }
+    }
+}
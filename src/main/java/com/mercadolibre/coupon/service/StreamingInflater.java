@@ -0,0 +1,226 @@
+package com.mercadolibre.coupon.service;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Descompresión incremental de un cuerpo HTTP (Content-Encoding gzip o deflate) a medida
+ * que llegan los fragmentos: cada fragmento se infla en un buffer fijo y se pasa enseguida
+ * al consumidor (el parser del multiget), sin juntar el cuerpo comprimido ni el inflado.
+ * Con "identity" los bytes pasan tal cual, así las métricas cubren ambos casos.
+ *
+ * Usa memoria nativa (Inflater): hay que llamar a close aunque la respuesta falle.
+ * No es thread-safe; se usa una instancia por respuesta.
+ */
+class StreamingInflater implements AutoCloseable {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final String IDENTITY = "identity";
+
+    private static final int OUTPUT_BUFFER_BYTES = 16 * 1024;
+    private static final int GZIP_HEADER_BYTES = 10;
+    private static final int GZIP_TRAILER_BYTES = 8;
+    // Flags del encabezado gzip (RFC 1952)
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /**
+     * Recibe los bytes ya descomprimidos.
+     */
+    interface Sink {
+        void accept(byte[] data, int offset, int length) throws IOException;
+    }
+
+    private final String encoding;
+    private final Inflater inflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] output;
+
+    // Encabezado y trailer gzip: pueden llegar partidos entre fragmentos
+    private byte[] header = new byte[0];
+    private boolean headerDone;
+    private byte[] trailer = new byte[0];
+
+    private long compressedBytes;
+    private long inflatedBytes;
+    private long inflateNanos;
+
+    private StreamingInflater(String encoding) {
+        this.encoding = encoding;
+        this.inflater = IDENTITY.equals(encoding) ? null : new Inflater(GZIP.equals(encoding));
+        this.output = inflater != null ? new byte[OUTPUT_BUFFER_BYTES] : null;
+        this.headerDone = !GZIP.equals(encoding);
+    }
+
+    /**
+     * Devuelve el encoding soportado ("gzip", "deflate" o "identity") o null si no se puede
+     * descomprimir (p. ej. br).
+     */
+    static String normalize(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case GZIP, "x-gzip" -> GZIP;
+            case DEFLATE -> DEFLATE;
+            case IDENTITY -> IDENTITY;
+            default -> null;
+        };
+    }
+
+    static StreamingInflater forEncoding(String encoding) {
+        return new StreamingInflater(encoding);
+    }
+
+    void feed(byte[] data, int offset, int length, Sink sink) throws IOException {
+        compressedBytes += length;
+        if (inflater == null) {
+            inflatedBytes += length;
+            sink.accept(data, offset, length);
+            return;
+        }
+        if (!headerDone) {
+            header = append(header, data, offset, length);
+            int headerLength = gzipHeaderLength(header);
+            if (headerLength < 0) {
+                return;
+            }
+            headerDone = true;
+            byte[] rest = header;
+            header = null;
+            inflate(rest, headerLength, rest.length - headerLength, sink);
+            return;
+        }
+        inflate(data, offset, length, sink);
+    }
+
+    /**
+     * Verifica que el cuerpo comprimido haya terminado completo (y el CRC, si es gzip).
+     */
+    void finish() throws IOException {
+        if (inflater == null) {
+            return;
+        }
+        if (!inflater.finished()) {
+            throw new IOException("Respuesta " + encoding + " incompleta");
+        }
+        if (GZIP.equals(encoding)) {
+            if (trailer.length < GZIP_TRAILER_BYTES) {
+                throw new IOException("Respuesta gzip sin trailer completo");
+            }
+            long expectedCrc = readIntLe(trailer, 0) & 0xFFFFFFFFL;
+            long expectedSize = readIntLe(trailer, 4) & 0xFFFFFFFFL;
+            if (expectedCrc != crc.getValue() || expectedSize != (inflatedBytes & 0xFFFFFFFFL)) {
+                throw new IOException("Respuesta gzip corrupta (CRC o tamaño)");
+            }
+        }
+    }
+
+    String getEncoding() {
+        return encoding;
+    }
+
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    long getInflatedBytes() {
+        return inflatedBytes;
+    }
+
+    long getInflateNanos() {
+        return inflateNanos;
+    }
+
+    @Override
+    public void close() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    private void inflate(byte[] data, int offset, int length, Sink sink) throws IOException {
+        if (inflater.finished()) {
+            trailer = append(trailer, data, offset, length);
+            return;
+        }
+        inflater.setInput(data, offset, length);
+        try {
+            while (!inflater.finished() && !inflater.needsInput()) {
+                long start = System.nanoTime();
+                int inflated = inflater.inflate(output);
+                inflateNanos += System.nanoTime() - start;
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    throw new IOException("Respuesta " + encoding + " con diccionario: no soportada");
+                }
+                if (inflated > 0) {
+                    inflatedBytes += inflated;
+                    if (GZIP.equals(encoding)) {
+                        crc.update(output, 0, inflated);
+                    }
+                    sink.accept(output, 0, inflated);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Respuesta " + encoding + " inválida: " + e.getMessage(), e);
+        }
+        if (inflater.finished() && inflater.getRemaining() > 0) {
+            int remaining = inflater.getRemaining();
+            trailer = append(trailer, data, offset + length - remaining, remaining);
+        }
+    }
+
+    /**
+     * Largo del encabezado gzip, o -1 si todavía no llegó completo.
+     */
+    private static int gzipHeaderLength(byte[] header) throws IOException {
+        if (header.length < GZIP_HEADER_BYTES) {
+            return -1;
+        }
+        if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || header[2] != 8) {
+            throw new IOException("Respuesta gzip inválida: encabezado desconocido");
+        }
+        int flags = header[3] & 0xFF;
+        int position = GZIP_HEADER_BYTES;
+        if ((flags & FEXTRA) != 0) {
+            if (header.length < position + 2) {
+                return -1;
+            }
+            position += 2 + ((header[position] & 0xFF) | (header[position + 1] & 0xFF) << 8);
+        }
+        for (int flag : new int[]{FNAME, FCOMMENT}) {
+            if ((flags & flag) != 0) {
+                while (position < header.length && header[position] != 0) {
+                    position++;
+                }
+                if (position >= header.length) {
+                    return -1;
+                }
+                position++;
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        return position <= header.length ? position : -1;
+    }
+
+    private static byte[] append(byte[] current, byte[] data, int offset, int length) {
+        byte[] joined = new byte[current.length + length];
+        System.arraycopy(current, 0, joined, 0, current.length);
+        System.arraycopy(data, offset, joined, current.length, length);
+        return joined;
+    }
+
+    private static int readIntLe(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+                | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+}
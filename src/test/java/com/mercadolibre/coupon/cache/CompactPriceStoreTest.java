@@ -0,0 +1,91 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Almacén Compacto de Precios")
+class CompactPriceStoreTest {
+
+    private static CachedItem entry(String id, String price, long fetchedAtNanos) {
+        return new CachedItem(new Item(id, new BigDecimal(price)), fetchedAtNanos);
+    }
+
+    @Test
+    @DisplayName("Debe codificar ids de MercadoLibre en un long y rechazar los que no entran")
+    void encodeId_RoundTrips() {
+        // Then
+        for (String id : new String[]{"MLA1", "MLA123456789", "MCO999999999999", "MLB0"}) {
+            assertThat(CompactPriceStore.decodeId(CompactPriceStore.encodeId(id))).isEqualTo(id);
+        }
+        assertThat(CompactPriceStore.encodeId("MLA123")).isNotEqualTo(CompactPriceStore.encodeId("MLB123"));
+        assertThat(CompactPriceStore.encodeId("MLA0123")).isEqualTo(CompactPriceStore.NO_KEY);
+        assertThat(CompactPriceStore.encodeId("MLA12AB")).isEqualTo(CompactPriceStore.NO_KEY);
+        assertThat(CompactPriceStore.encodeId("MLA9999999999999999")).isEqualTo(CompactPriceStore.NO_KEY);
+        assertThat(CompactPriceStore.encodeId("mla1")).isEqualTo(CompactPriceStore.NO_KEY);
+    }
+
+    @Test
+    @DisplayName("Debe guardar, actualizar y borrar muchos precios sin perder ninguno")
+    void putGetRemove_ManyEntries() {
+        // Given
+        CompactPriceStore store = new CompactPriceStore(1_000_000, TimeUnit.HOURS.toNanos(1));
+        long now = System.nanoTime();
+
+        // When - Crece desde 16 slots por segmento; después se borra la mitad
+        for (int i = 1; i <= 50_000; i++) {
+            store.put("MLA" + i, entry("MLA" + i, i + ".25", now), TimeUnit.MINUTES.toNanos(10));
+        }
+        store.put("MLA7", entry("MLA7", "70", now), TimeUnit.MINUTES.toNanos(20));
+        for (int i = 2; i <= 50_000; i += 2) {
+            store.remove("MLA" + i);
+        }
+
+        // Then
+        assertThat(store.size()).isEqualTo(25_000);
+        for (int i = 1; i <= 50_000; i++) {
+            CachedItem found = store.get("MLA" + i);
+            if (i % 2 == 0) {
+                assertThat(found).isNull();
+            } else if (i != 7) {
+                assertThat(found.getItem().getPrice()).isEqualByComparingTo(i + ".25");
+            }
+        }
+        CachedItem updated = store.get("MLA7");
+        assertThat(updated.getItem().getId()).isEqualTo("MLA7");
+        assertThat(updated.getItem().getPrice()).isEqualByComparingTo("70");
+        assertThat(updated.getFetchedAtNanos()).isEqualTo(now);
+        assertThat(updated.getTtlNanos()).isEqualTo(TimeUnit.MINUTES.toNanos(20));
+        assertThat(store.put("MLA1", entry("MLA1", "1.001", now), 0)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Debe respetar el tope descartando primero los vencidos y después los más viejos")
+    void put_EvictsWhenFull() {
+        // Given - Un segmento por cada 64 entradas: tope de 1 por segmento
+        CompactPriceStore store = new CompactPriceStore(64, TimeUnit.HOURS.toNanos(1));
+        long now = System.nanoTime();
+        long expired = now - TimeUnit.HOURS.toNanos(2);
+
+        // When
+        for (int i = 1; i <= 1000; i++) {
+            store.put("MLA" + i, entry("MLA" + i, "10", i <= 500 ? expired : now + i), 0);
+        }
+
+        // Then - Quedan a lo sumo 64 y ninguno vencido
+        assertThat(store.size()).isLessThanOrEqualTo(64);
+        int found = 0;
+        for (int i = 1; i <= 1000; i++) {
+            if (store.get("MLA" + i) != null) {
+                assertThat(i).isGreaterThan(500);
+                found++;
+            }
+        }
+        assertThat(found).isEqualTo(store.size()).isPositive();
+    }
+}
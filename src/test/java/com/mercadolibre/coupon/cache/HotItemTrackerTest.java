@@ -0,0 +1,196 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.cache.HotItemTracker.HotItem;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("Tests del Detector de Items Calientes")
+class HotItemTrackerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HotItemTracker tracker;
+
+    @AfterEach
+    void tearDown() {
+        if (tracker != null) {
+            tracker.shutdown();
+        }
+    }
+
+    private HotItemTracker tracker(ItemPriceCache cache, int capacity, int topK) {
+        // Intervalos largos: los tests recalculan a mano
+        return new HotItemTracker(cache, true, capacity, topK, 3, Duration.ofHours(1), Duration.ofHours(1), meterRegistry);
+    }
+
+    private ItemPriceCache cache(long maxWeightBytes) {
+        return new ItemPriceCache(maxWeightBytes, Duration.ofMinutes(10), Duration.ZERO, 1000, Duration.ofHours(1),
+            meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Debe encontrar los items más pedidos entre muchos ids que aparecen una sola vez")
+    void top_FindsHeavyHitters() {
+        // Given - 3 items calientes mezclados con 10.000 ids distintos y una tabla de 50
+        tracker = tracker(cache(1024 * 1024), 50, 3);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            List<String> request = new ArrayList<>(List.of("MLA" + (100_000 + i)));
+            if (i % 4 == 0) {
+                request.add("MLA1");
+            }
+            if (i % 5 == 0) {
+                request.add("MLA2");
+            }
+            if (i % 10 == 0) {
+                request.add("MLA3");
+            }
+            tracker.recordAll(request);
+        }
+        tracker.updateHotItems();
+
+        // Then - Space-Saving nunca subestima: el conteo es al menos el real
+        List<HotItem> top = tracker.top(3);
+        assertThat(top).extracting(HotItem::getId).containsExactly("MLA1", "MLA2", "MLA3");
+        assertThat(top.get(0).getCount()).isGreaterThanOrEqualTo(2_500);
+        assertThat(top.get(0).getCount() - top.get(0).getError()).isLessThanOrEqualTo(2_500);
+        assertThat(tracker.getHotItems()).containsExactlyInAnyOrder("MLA1", "MLA2", "MLA3");
+    }
+
+    @Test
+    @DisplayName("Los items calientes no deben desalojarse aunque el cache se llene")
+    void pinnedItems_SurviveEviction() {
+        // Given - Espacio para unas 10 entradas y un item caliente en caché
+        int entryBytes = ItemPriceCache.estimateBytes("MLA1000", new Item("MLA1000", BigDecimal.ONE));
+        ItemPriceCache cache = cache(entryBytes * 10L);
+        tracker = tracker(cache, 100, 1);
+        cache.put(new Item("MLA1", new BigDecimal("100")));
+        tracker.recordAll(List.of("MLA1", "MLA1", "MLA1"));
+        tracker.updateHotItems();
+
+        // When - Se llena el cache con items fríos
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(new Item("MLA" + i, BigDecimal.valueOf(i)));
+            cache.get("MLA" + i);
+        }
+
+        // Then
+        await().atMost(Duration.ofSeconds(5))
+            .untilAsserted(() -> assertThat(cache.estimatedSize()).isLessThanOrEqualTo(11));
+        assertThat(cache.isPinned("MLA1")).isTrue();
+        assertThat(cache.get("MLA1").getPrice()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    @DisplayName("Debe avisar a los interesados y seguir al tráfico reciente tras el decaimiento")
+    void decay_FollowsRecentTraffic() {
+        // Given
+        tracker = tracker(cache(1024 * 1024), 10, 1);
+        AtomicReference<Set<String>> notified = new AtomicReference<>();
+        tracker.addListener(notified::set);
+        for (int i = 0; i < 100; i++) {
+            tracker.recordAll(List.of("MLA1"));
+        }
+        tracker.updateHotItems();
+        assertThat(notified.get()).containsExactly("MLA1");
+
+        // When - Después de varios decaimientos domina otro item
+        for (int i = 0; i < 5; i++) {
+            tracker.decay();
+        }
+        for (int i = 0; i < 10; i++) {
+            tracker.recordAll(List.of("MLA2"));
+        }
+        tracker.updateHotItems();
+
+        // Then
+        assertThat(notified.get()).containsExactly("MLA2");
+        assertThat(tracker.top(2).stream().map(HotItem::getId).collect(Collectors.toList()))
+            .containsExactly("MLA2", "MLA1");
+    }
+
+    @Test
+    @DisplayName("Un id pedido pocas veces no debe quedar caliente ni seguir en el sketch tras decaer")
+    void decay_DropsRarelyRequestedIds() {
+        // Given - Hay lugar en el top para los dos, pero MLA2 se pidió una sola vez
+        ItemPriceCache cache = cache(1024 * 1024);
+        tracker = tracker(cache, 10, 2);
+        for (int i = 0; i < 8; i++) {
+            tracker.recordAll(List.of("MLA1"));
+        }
+        tracker.recordAll(List.of("MLA2"));
+
+        // When
+        tracker.updateHotItems();
+
+        // Then
+        assertThat(tracker.getHotItems()).containsExactly("MLA1");
+        assertThat(cache.isPinned("MLA2")).isFalse();
+
+        // When - Sin más pedidos, los conteos llegan a 0
+        for (int i = 0; i < 4; i++) {
+            tracker.decay();
+        }
+        tracker.updateHotItems();
+
+        // Then
+        assertThat(tracker.top(10)).isEmpty();
+        assertThat(tracker.getHotItems()).isEmpty();
+        assertThat(cache.isPinned("MLA1")).isFalse();
+
+        // When - Un id nuevo ocupa un slot libre
+        tracker.recordAll(List.of("MLA3", "MLA3", "MLA3"));
+        tracker.updateHotItems();
+
+        // Then
+        assertThat(tracker.getHotItems()).containsExactly("MLA3");
+    }
+
+    @Test
+    @DisplayName("Debe contar los ids de muchos hilos a la vez sin perder los más pedidos")
+    void recordAll_ConcurrentThreads() throws Exception {
+        // Given
+        tracker = tracker(cache(1024 * 1024), 100, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When - 8 hilos piden MLA1 junto con ids que aparecen una sola vez
+        try {
+            List<CompletableFuture<Void>> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                threads.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        tracker.recordAll(List.of("MLA1", "MLA" + (1_000_000 * (thread + 1) + i)));
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(threads.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then - Solo pueden faltar los ids que no entraron en un buffer lleno
+        HotItem top = tracker.top(1).get(0);
+        double dropped = meterRegistry.get("meli.items.hot.dropped").counter().count();
+        assertThat(top.getId()).isEqualTo("MLA1");
+        assertThat(top.getCount()).isLessThanOrEqualTo(80_000).isGreaterThanOrEqualTo((long) (80_000 - dropped));
+    }
+}
@@ -0,0 +1,185 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("Tests del Cache de Precios de Items")
+class ItemPriceCacheTest {
+
+    @Test
+    @DisplayName("Debe devolver el item guardado y contar hits y misses")
+    void putAndGet_RecordsStats() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000, Duration.ofHours(1), registry);
+        cache.put(new Item("MLA1", new BigDecimal("100.50")));
+
+        // When
+        Item hit = cache.get("MLA1");
+        Item miss = cache.get("MLA2");
+
+        // Then
+        assertThat(hit.getPrice()).isEqualByComparingTo("100.50");
+        assertThat(miss).isNull();
+        Map<String, Object> stats = cache.statsSnapshot();
+        assertThat(stats).containsEntry("hitCount", 1L).containsEntry("missCount", 1L);
+        assertThat(registry.find("cache.gets").tag("cache", "meli.items").meters()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Debe respetar el tope de memoria estimada desalojando entradas")
+    void maximumWeight_EvictsEntries() {
+        // Given - Espacio para unas 10 entradas
+        int entryBytes = ItemPriceCache.estimateBytes("MLA1000", new Item("MLA1000", BigDecimal.ONE));
+        ItemPriceCache cache = new ItemPriceCache(entryBytes * 10L, Duration.ofMinutes(10), Duration.ZERO, 1000, Duration.ofHours(1), new SimpleMeterRegistry());
+
+        // When
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(new Item("MLA" + i, BigDecimal.valueOf(i)));
+        }
+
+        // Then
+        await().atMost(Duration.ofSeconds(5))
+            .untilAsserted(() -> assertThat(cache.estimatedSize()).isLessThanOrEqualTo(10));
+        assertThat((Long) cache.statsSnapshot().get("weightedSizeBytes")).isLessThanOrEqualTo(entryBytes * 10L);
+    }
+
+    @Test
+    @DisplayName("Debe expirar las entradas pasado el TTL")
+    void expireAfterWrite_RemovesStalePrices() {
+        // Given
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMillis(50), Duration.ZERO, 1000, Duration.ofHours(1), new SimpleMeterRegistry());
+        cache.put(new Item("MLA1", new BigDecimal("10")));
+
+        // Then
+        await().atMost(Duration.ofSeconds(2)).until(() -> cache.get("MLA1") == null);
+    }
+
+    @Test
+    @DisplayName("Debe seguir sirviendo la entrada pasado el TTL blando, marcada para refrescar")
+    void refreshAfterWrite_MarksStaleButKeepsServing() {
+        // Given
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ofMillis(20),
+            1000, Duration.ofHours(1), new SimpleMeterRegistry());
+        cache.put(new Item("MLA1", new BigDecimal("10")));
+        assertThat(cache.isStale(cache.getEntry("MLA1"))).isFalse();
+
+        // Then
+        await().atMost(Duration.ofSeconds(2)).until(() -> cache.isStale(cache.getEntry("MLA1")));
+        assertThat(cache.get("MLA1").getPrice()).isEqualByComparingTo("10");
+
+        // When - Un refresh vuelve a dejar la entrada fresca
+        cache.put(new Item("MLA1", new BigDecimal("12")));
+
+        // Then
+        assertThat(cache.isStale(cache.getEntry("MLA1"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Debe conservar el último precio conocido de una entrada vencida")
+    void lastKnown_SurvivesExpiry() {
+        // Given
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMillis(50), Duration.ZERO,
+            1000, Duration.ofHours(1), new SimpleMeterRegistry());
+        cache.put(new Item("MLA1", new BigDecimal("10")));
+
+        // When
+        await().atMost(Duration.ofSeconds(2)).until(() -> cache.get("MLA1") == null);
+
+        // Then
+        assertThat(cache.getLastKnown("MLA1").getPrice()).isEqualByComparingTo("10");
+        assertThat(cache.getLastKnown("MLA2")).isNull();
+
+        // When - Un item que dejó de existir no se ofrece más como respaldo
+        cache.invalidate("MLA1");
+
+        // Then
+        assertThat(cache.getLastKnown("MLA1")).isNull();
+    }
+
+    @Test
+    @DisplayName("Con TTL adaptativo, un precio estable debe ganar TTL y uno que cambia perderlo")
+    void adaptiveTtl_FollowsPriceChanges() {
+        // Given - TTL configurado de 10 minutos, entre 1 minuto y 1 hora, con reloj simulado
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicLong clock = new AtomicLong();
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ofMinutes(2), 1000,
+            Duration.ofHours(1), true, Duration.ofMinutes(1), Duration.ofHours(1), registry, clock::get);
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        cache.put(new Item("MLA1", new BigDecimal("100")));
+
+        // When - Se vuelven a consultar cada vez que vence su TTL: MLA1 siempre igual, MLA2 con otro precio
+        clock.set(10 * minute);
+        cache.put(new Item("MLA1", new BigDecimal("100.00")));
+        clock.set(21 * minute);
+        cache.put(new Item("MLA2", new BigDecimal("200")));
+        clock.set(30 * minute);
+        cache.put(new Item("MLA1", new BigDecimal("100")));
+        cache.put(new Item("MLA2", new BigDecimal("150")));
+
+        // Then - El TTL blando acompaña al duro en la misma proporción
+        CachedItem stable = cache.getEntry("MLA1");
+        CachedItem volatileItem = cache.getEntry("MLA2");
+        assertThat(cache.ttlNanos(stable)).isEqualTo(TimeUnit.MINUTES.toNanos(40));
+        assertThat(cache.softTtlNanos(stable)).isEqualTo(TimeUnit.MINUTES.toNanos(8));
+        assertThat(cache.ttlNanos(volatileItem)).isEqualTo(TimeUnit.MINUTES.toNanos(5));
+        assertThat(registry.get("meli.items.price.checks").tag("result", "changed").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("meli.items.ttl.refreshes.saved").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Con TTL adaptativo, cada entrada debe vencer según su propio TTL")
+    void adaptiveTtl_ExpiresPerEntry() {
+        // Given - Un item que cambió de precio baja al TTL mínimo; otro sin historia usa el configurado
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMillis(400), Duration.ZERO, 1000,
+            Duration.ofHours(1), true, Duration.ofMillis(100), Duration.ofSeconds(10), new SimpleMeterRegistry());
+        cache.put(new Item("MLA1", new BigDecimal("10")));
+        cache.put(new Item("MLA1", new BigDecimal("12")));
+        cache.put(new Item("MLA2", new BigDecimal("20")));
+
+        // When
+        await().atMost(Duration.ofSeconds(2)).until(() -> cache.get("MLA1") == null);
+
+        // Then
+        assertThat(cache.get("MLA2")).isNotNull();
+        assertThat(cache.getLastKnown("MLA1").getPrice()).isEqualByComparingTo("12");
+    }
+
+    @Test
+    @DisplayName("putIfNewer no debe pisar un precio obtenido después ni contarlo como cambio")
+    void putIfNewer_KeepsFresherEntry() {
+        // Given - La API trajo el precio hace un minuto; el export es de hace cinco
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ItemPriceCache cache = new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ofMinutes(2), 1000,
+            Duration.ofHours(1), true, Duration.ofMinutes(1), Duration.ofHours(1), registry);
+        long now = System.nanoTime();
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        cache.put(new CachedItem(new Item("MLA1", new BigDecimal("120")), now - minute));
+
+        // When
+        ItemPriceCache.PutResult older = cache.putIfNewer(new CachedItem(new Item("MLA1", new BigDecimal("100")), now - 5 * minute));
+        ItemPriceCache.PutResult newer = cache.putIfNewer(new CachedItem(new Item("MLA2", new BigDecimal("200")), now - 5 * minute));
+        ItemPriceCache.PutResult expired = cache.putIfNewer(new CachedItem(new Item("MLA3", new BigDecimal("300")), now - 15 * minute));
+
+        // Then
+        assertThat(older).isEqualTo(ItemPriceCache.PutResult.OUTDATED);
+        assertThat(newer).isEqualTo(ItemPriceCache.PutResult.STORED);
+        assertThat(expired).isEqualTo(ItemPriceCache.PutResult.EXPIRED);
+        assertThat(cache.get("MLA3")).isNull();
+        assertThat(cache.get("MLA1").getPrice()).isEqualByComparingTo("120");
+        assertThat(cache.ttlNanos(cache.getEntry("MLA1"))).isEqualTo(TimeUnit.MINUTES.toNanos(10));
+        assertThat(cache.get("MLA2").getPrice()).isEqualByComparingTo("200");
+        assertThat(registry.get("meli.items.price.checks").tag("result", "changed").counter().count()).isZero();
+    }
+}
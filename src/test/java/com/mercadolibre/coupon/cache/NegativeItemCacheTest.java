@@ -0,0 +1,74 @@
+package com.mercadolibre.coupon.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Cache Negativo de Items")
+class NegativeItemCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Debe recordar los ids marcados como inexistentes y contar los hits")
+    void markMissing_IsKnownMissing() {
+        // Given
+        NegativeItemCache cache = new NegativeItemCache(Duration.ofMinutes(1), 100, false, 0, 0.01, meterRegistry);
+
+        // When
+        cache.markMissing("MLA404");
+
+        // Then
+        assertThat(cache.isKnownMissing("MLA404")).isTrue();
+        assertThat(cache.isKnownMissing("MLA1")).isFalse();
+        Map<String, Object> stats = cache.statsSnapshot();
+        assertThat(stats.get("hitCount")).isEqualTo(1L);
+        assertThat(stats.get("missCount")).isEqualTo(1L);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "meli.items.negative").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe seguir descartando por Bloom filter un id ya vencido del cache")
+    void bloomFilter_OutlivesTtl() {
+        // Given
+        NegativeItemCache cache = new NegativeItemCache(Duration.ofMinutes(1), 100, true, 1000, 0.01, meterRegistry);
+        cache.markMissing("MLA404");
+
+        // When - Se olvida del cache (como si hubiera vencido el TTL)
+        cache.invalidate("MLA404");
+
+        // Then
+        assertThat(cache.isKnownMissing("MLA404")).isTrue();
+        assertThat(meterRegistry.get("meli.items.negative.bloom.hits").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("El Bloom filter no debe dar falsos negativos y debe respetar la tasa de falsos positivos")
+    void bloomFilter_FalsePositiveRate() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("MLA" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 10_000; i < 20_000; i++) {
+            if (filter.mightContain("MLA" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("MLA" + i)).isTrue();
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,131 @@
+package com.mercadolibre.coupon.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Anillo de Caches entre Instancias")
+class PeerCacheClientTest {
+
+    private static final String SELF = "http://localhost:1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockWebServer peer;
+    private String peerUrl;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        peer = new MockWebServer();
+        peer.start();
+        peerUrl = peer.url("/").toString();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        peer.shutdown();
+    }
+
+    private PeerCacheClient client(Path peersFile, Duration timeout) {
+        return new PeerCacheClient(true, SELF, List.of(), peersFile.toString(), Duration.ofSeconds(30), timeout,
+            128, WebClient.builder(), meterRegistry);
+    }
+
+    private List<String> idsOwnedBy(PeerCacheClient client, String owner, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < count; i++) {
+            String id = "MLA" + i;
+            if (client.ownerOf(id).equals(owner)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Debe pedir en una sola llamada a la instancia dueña sus ids y traer la antigüedad")
+    void getAll_AsksOwnerInOneBatch() throws Exception {
+        // Given - El peer se descubre desde un archivo
+        Path peersFile = Files.writeString(tempDir.resolve("peers.txt"), "# instancias\n" + peerUrl + "\n");
+        PeerCacheClient client = client(peersFile, Duration.ofSeconds(2));
+        String normalizedPeer = peerUrl.substring(0, peerUrl.length() - 1);
+        List<String> remote = idsOwnedBy(client, normalizedPeer, 2);
+        List<String> local = idsOwnedBy(client, SELF, 1);
+        peer.enqueue(new MockResponse()
+            .setBody("[{\"id\":\"" + remote.get(0) + "\",\"price\":150.5,\"ageMillis\":60000}]")
+            .addHeader("Content-Type", "application/json"));
+
+        // When
+        List<String> ids = new ArrayList<>(remote);
+        ids.addAll(local);
+        Map<String, CachedItem> found = client.getAll(ids).get(5, TimeUnit.SECONDS);
+
+        // Then - Los ids propios no viajan; el que el peer no resolvió queda afuera
+        RecordedRequest request = peer.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(peer.getRequestCount()).isEqualTo(1);
+        assertThat(request.getPath()).startsWith("/coupon/cache/peer/items?ids=")
+            .contains(remote.get(0)).contains(remote.get(1)).doesNotContain(local.get(0));
+        assertThat(found).containsOnlyKeys(remote.get(0));
+        assertThat(found.get(remote.get(0)).getItem().getPrice()).isEqualByComparingTo("150.5");
+        assertThat(found.get(remote.get(0)).ageNanos()).isGreaterThanOrEqualTo(TimeUnit.SECONDS.toNanos(60));
+        assertThat(meterRegistry.get("meli.items.peer.hits").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("meli.items.peer.misses").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe seguir sin el peer si no responde a tiempo")
+    void getAll_PeerTimeout() throws Exception {
+        // Given
+        Path peersFile = Files.writeString(tempDir.resolve("peers.txt"), peerUrl);
+        PeerCacheClient client = client(peersFile, Duration.ofMillis(100));
+        List<String> remote = idsOwnedBy(client, peerUrl.substring(0, peerUrl.length() - 1), 1);
+        peer.enqueue(new MockResponse().setBody("[]").setHeadersDelay(2, TimeUnit.SECONDS));
+
+        // When
+        Map<String, CachedItem> found = client.getAll(remote).get(2, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(found).isEmpty();
+        assertThat(meterRegistry.get("meli.items.peer.errors").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Al sumar una instancia solo deben cambiar de dueña los ids que pasan a ella")
+    void peerRing_ConsistentHashing() {
+        // Given
+        PeerRing three = new PeerRing(List.of("http://a", "http://b", "http://c"), 128);
+        PeerRing four = new PeerRing(List.of("http://a", "http://b", "http://c", "http://d"), 128);
+        List<String> ids = IntStream.range(0, 10_000).mapToObj(i -> "MLA" + i).toList();
+
+        // When
+        long moved = ids.stream().filter(id -> !three.ownerOf(id).equals(four.ownerOf(id))).count();
+        long movedElsewhere = ids.stream()
+            .filter(id -> !three.ownerOf(id).equals(four.ownerOf(id)) && !four.ownerOf(id).equals("http://d"))
+            .count();
+
+        // Then - Cerca de 1/4 de los ids, todos hacia la instancia nueva
+        assertThat(moved).isBetween(1_500L, 3_500L);
+        assertThat(movedElsewhere).isZero();
+    }
+}
@@ -0,0 +1,135 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Snapshot en Disco del Cache de Precios")
+class PriceSnapshotStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path tempDir;
+
+    private ItemPriceCache newCache() {
+        return new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000, Duration.ofHours(1),
+            meterRegistry);
+    }
+
+    private ItemPriceCache adaptiveCache() {
+        return new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000, Duration.ofHours(1),
+            true, Duration.ofMinutes(1), Duration.ofHours(1), meterRegistry);
+    }
+
+    private PriceSnapshotStore store(ItemPriceCache cache, Path file) {
+        return new PriceSnapshotStore(cache, true, file.toString(), Duration.ofSeconds(30), 2.0, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Una instancia nueva debe arrancar con los precios y su antigüedad, sin los vencidos")
+    void load_RestoresFreshEntries() throws Exception {
+        // Given - Un precio reciente y otro consultado hace más que el TTL duro
+        Path file = tempDir.resolve("snapshot.bin");
+        ItemPriceCache cache = newCache();
+        cache.put(new Item("MLA1", new BigDecimal("100.50")));
+        cache.put(new CachedItem(new Item("MLA2", new BigDecimal("200")),
+            System.nanoTime() - TimeUnit.MINUTES.toNanos(30)));
+        store(cache, file).snapshot();
+
+        // When
+        ItemPriceCache restarted = newCache();
+        int loaded = store(restarted, file).load();
+
+        // Then
+        assertThat(loaded).isEqualTo(1);
+        assertThat(restarted.get("MLA1").getPrice()).isEqualByComparingTo("100.50");
+        assertThat(restarted.getEntry("MLA1").ageNanos()).isLessThan(TimeUnit.MINUTES.toNanos(1));
+        assertThat(restarted.get("MLA2")).isNull();
+    }
+
+    @Test
+    @DisplayName("Con TTL adaptativo, debe restaurar cada precio con su propio TTL")
+    void load_KeepsPerEntryTtl() throws Exception {
+        // Given - Un precio estable con TTL de 40 minutos consultado hace 20 (más que el TTL configurado)
+        Path file = tempDir.resolve("snapshot.bin");
+        ItemPriceCache cache = adaptiveCache();
+        long fetchedAt = System.nanoTime() - TimeUnit.MINUTES.toNanos(20);
+        cache.put(new CachedItem(new Item("MLA1", new BigDecimal("100")), fetchedAt, TimeUnit.MINUTES.toNanos(40)));
+        cache.put(new CachedItem(new Item("MLA2", new BigDecimal("200")), fetchedAt));
+        store(cache, file).snapshot();
+
+        // When
+        ItemPriceCache restarted = adaptiveCache();
+        int loaded = store(restarted, file).load();
+
+        // Then - MLA2 tenía el TTL configurado y ya venció
+        assertThat(loaded).isEqualTo(1);
+        assertThat(restarted.ttlNanos(restarted.getEntry("MLA1"))).isEqualTo(TimeUnit.MINUTES.toNanos(40));
+        assertThat(restarted.get("MLA2")).isNull();
+    }
+
+    @Test
+    @DisplayName("Debe agregar solo los cambios al archivo, incluidas las bajas")
+    void snapshot_AppendsChanges() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        ItemPriceCache cache = newCache();
+        PriceSnapshotStore store = store(cache, file);
+        cache.put(new Item("MLA1", new BigDecimal("10")));
+        cache.put(new Item("MLA2", new BigDecimal("20")));
+        store.snapshot();
+        long firstSize = Files.size(file);
+
+        // When - Sin cambios no se escribe nada; después cambia un precio y se da de baja otro
+        store.snapshot();
+        long unchangedSize = Files.size(file);
+        cache.put(new Item("MLA1", new BigDecimal("11")));
+        cache.invalidate("MLA2");
+        store.snapshot();
+
+        // Then - Un registro de precio (25 bytes) y una baja (5 bytes), sin reescribir el id
+        assertThat(unchangedSize).isEqualTo(firstSize);
+        assertThat(Files.size(file)).isEqualTo(firstSize + 25 + 5);
+        ItemPriceCache restarted = newCache();
+        assertThat(store(restarted, file).load()).isEqualTo(1);
+        assertThat(restarted.get("MLA1").getPrice()).isEqualByComparingTo("11");
+        assertThat(restarted.get("MLA2")).isNull();
+    }
+
+    @Test
+    @DisplayName("Debe ignorar un registro final incompleto")
+    void load_IgnoresTruncatedTail() throws Exception {
+        // Given - Una escritura cortada a mitad del último registro
+        Path file = tempDir.resolve("snapshot.bin");
+        ItemPriceCache cache = newCache();
+        PriceSnapshotStore store = store(cache, file);
+        cache.put(new Item("MLA1", new BigDecimal("10")));
+        store.snapshot();
+        cache.put(new Item("MLA1", new BigDecimal("12")));
+        store.snapshot();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        // When
+        ItemPriceCache restarted = newCache();
+        int loaded = store(restarted, file).load();
+
+        // Then - Vale el último registro completo
+        assertThat(loaded).isEqualTo(1);
+        assertThat(restarted.get("MLA1").getPrice()).isEqualByComparingTo("10");
+    }
+}
@@ -0,0 +1,211 @@
+package com.mercadolibre.coupon.cache;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("Tests del Cache Compartido de Precios")
+class SharedPriceCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeRespServer server;
+    private SharedPriceCache cache;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (cache != null) {
+            cache.shutdown();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private SharedPriceCache cache(int port) {
+        return new SharedPriceCache(true, "localhost", port, "", Duration.ofMillis(500), 2, "test:",
+            Duration.ofMinutes(10), Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Debe publicar precios y encontrarlos desde otra instancia con un MGET")
+    void putAll_GetAll() throws Exception {
+        // Given
+        server = new FakeRespServer();
+        cache = cache(server.port());
+
+        // When
+        cache.putAll(List.of(new Item("MLA1", new BigDecimal("100.50")), new Item("MLA2", new BigDecimal("7"))));
+        await().atMost(Duration.ofSeconds(2)).until(() -> server.values.size() == 2);
+        Map<String, CachedItem> found = cache.getAll(List.of("MLA1", "MLA2", "MLA3")).get(2, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(server.values).containsKeys("test:MLA1", "test:MLA2");
+        assertThat(found).containsOnlyKeys("MLA1", "MLA2");
+        assertThat(found.get("MLA1").getItem().getPrice()).isEqualByComparingTo("100.50");
+        assertThat(found.get("MLA2").getItem().getPrice()).isEqualByComparingTo("7");
+        assertThat(meterRegistry.get("meli.items.l2.hits").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("meli.items.l2.misses").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe seguir como miss y dejar de intentar si el servidor no está disponible")
+    void getAll_FailsOpen() throws Exception {
+        // Given - Un puerto sin nadie escuchando
+        int port;
+        try (ServerSocket unused = new ServerSocket(0)) {
+            port = unused.getLocalPort();
+        }
+        cache = cache(port);
+
+        // When
+        Map<String, CachedItem> first = cache.getAll(List.of("MLA1")).get(2, TimeUnit.SECONDS);
+        Map<String, CachedItem> second = cache.getAll(List.of("MLA1")).get(2, TimeUnit.SECONDS);
+
+        // Then - La segunda consulta ni se intenta hasta el retry-interval
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(meterRegistry.get("meli.items.l2.errors").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("meli.items.l2.skipped").counter().count()).isEqualTo(1.0);
+        assertThat(cache.statsSnapshot().get("available")).isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("Debe conservar el precio y la antigüedad al codificar la entrada")
+    void encode_Decode() {
+        // Given
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        byte[] value = SharedPriceCache.encode(new BigDecimal("1234.99"), nowMillis - 60_000);
+
+        // When
+        CachedItem entry = SharedPriceCache.decode("MLA1", value, nowMillis, nowNanos);
+
+        // Then
+        assertThat(value).hasSizeLessThan(20);
+        assertThat(entry.getItem().getId()).isEqualTo("MLA1");
+        assertThat(entry.getItem().getPrice()).isEqualTo(new BigDecimal("1234.99"));
+        assertThat(nowNanos - entry.getFetchedAtNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(60));
+        assertThat(SharedPriceCache.decode("MLA1", new byte[]{9, 0, 0}, nowMillis, nowNanos)).isNull();
+    }
+
+    /**
+     * Servidor mínimo con protocolo Redis: solo MGET y SET, suficiente para el cache compartido.
+     */
+    private static class FakeRespServer implements AutoCloseable {
+        final Map<String, byte[]> values = new ConcurrentHashMap<>();
+        private final ServerSocket serverSocket;
+
+        FakeRespServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread acceptor = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        Thread handler = new Thread(() -> serve(socket));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException closed) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    List<byte[]> command = readCommand(in);
+                    if (command == null) {
+                        return;
+                    }
+                    String name = new String(command.get(0), StandardCharsets.UTF_8);
+                    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                    if (name.equals("MGET")) {
+                        reply.write(("*" + (command.size() - 1) + "\r\n").getBytes(StandardCharsets.UTF_8));
+                        for (byte[] key : command.subList(1, command.size())) {
+                            byte[] value = values.get(new String(key, StandardCharsets.UTF_8));
+                            if (value == null) {
+                                reply.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+                            } else {
+                                reply.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+                                reply.write(value);
+                                reply.write("\r\n".getBytes(StandardCharsets.UTF_8));
+                            }
+                        }
+                    } else if (name.equals("SET")) {
+                        values.put(new String(command.get(1), StandardCharsets.UTF_8), command.get(2));
+                        reply.write("+OK\r\n".getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        reply.write("-ERR unknown command\r\n".getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.write(reply.toByteArray());
+                    out.flush();
+                }
+            } catch (IOException closed) {
+                // El cliente cerró la conexión
+            }
+        }
+
+        private static List<byte[]> readCommand(InputStream in) throws IOException {
+            String header = readLine(in);
+            if (header == null) {
+                return null;
+            }
+            int count = Integer.parseInt(header.substring(1));
+            List<byte[]> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = Integer.parseInt(readLine(in).substring(1));
+                args.add(in.readNBytes(length));
+                readLine(in);
+            }
+            return args;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c < 0) {
+                    return null;
+                }
+                line.append((char) c);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.mercadolibre.coupon.config;
+
+import io.micrometer.core.instrument.Metrics;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Cliente HTTP de MercadoLibre")
+class MeliHttpClientConfigTest {
+
+    private final MeliHttpClientConfig config = new MeliHttpClientConfig();
+    private MockWebServer mockWebServer;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        connectionProvider = config.meliConnectionProvider(4, 10, Duration.ofSeconds(1),
+            Duration.ofSeconds(30), Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionProvider.dispose();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Debe consultar a través del pool y publicar sus métricas")
+    void meliWebClient_UsesPooledConnections() throws Exception {
+        // Given
+        WebClient webClient = config.meliWebClient(WebClient.builder(), connectionProvider,
+            mockWebServer.url("/").toString(), Duration.ofSeconds(1), Duration.ofSeconds(5),
+            Duration.ofSeconds(60), false, 1024);
+        mockWebServer.enqueue(new MockResponse().setBody("[]"));
+        mockWebServer.enqueue(new MockResponse().setBody("[]"));
+
+        // When - Dos llamadas seguidas
+        String first = webClient.get().uri("/items?ids=MLA1").retrieve().bodyToMono(String.class).block();
+        String second = webClient.get().uri("/items?ids=MLA2").retrieve().bodyToMono(String.class).block();
+
+        // Then
+        assertThat(first).isEqualTo("[]");
+        assertThat(second).isEqualTo("[]");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(Metrics.globalRegistry.find("reactor.netty.connection.provider.idle.connections")
+            .tag("name", "meli").gauges()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Debe agrupar los ids de la URI en el tag de métricas")
+    void uriTag_CollapsesItemIds() {
+        assertThat(MeliHttpClientConfig.uriTag("/items/MLA123")).isEqualTo("/items/{itemId}");
+        assertThat(MeliHttpClientConfig.uriTag("/items?ids=MLA1,MLA2&attributes=id,price")).isEqualTo("/items");
+    }
+}
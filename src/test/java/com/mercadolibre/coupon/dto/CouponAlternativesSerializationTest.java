@@ -0,0 +1,46 @@
+package com.mercadolibre.coupon.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sin contexto de Spring: alcanza con el ObjectMapper y las anotaciones de los DTOs
+@DisplayName("Tests de Serialización de Alternativas")
+class CouponAlternativesSerializationTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Debe omitir las alternativas si no se pidieron y serializarlas como la respuesta principal")
+    void couponResponse_AlternativesSerialization() throws Exception {
+        // Given - Sin alternativas pedidas el campo no aparece en el JSON
+        CouponResponse response = new CouponResponse(Arrays.asList("MLA1"), new BigDecimal("100"));
+        assertThat(objectMapper.writeValueAsString(response)).doesNotContain("alternatives");
+
+        // When - Con alternativas se serializan con el mismo formato que la respuesta principal
+        response.setAlternatives(List.of(new CouponAlternative(Arrays.asList("MLA2"), new BigDecimal("90"))));
+        String json = objectMapper.writeValueAsString(response);
+
+        // Then
+        assertThat(json).contains("\"alternatives\":[{\"total\":90,\"item_ids\":[\"MLA2\"]}]");
+    }
+
+    @Test
+    @DisplayName("Debe leer la cantidad de alternativas pedidas")
+    void couponRequest_AlternativesDeserialization() throws Exception {
+        // Given
+        String json = "{\"item_ids\":[\"MLA1\"],\"amount\":100,\"alternatives\":3}";
+
+        // When
+        CouponRequest request = objectMapper.readValue(json, CouponRequest.class);
+
+        // Then
+        assertThat(request.getAlternatives()).isEqualTo(3);
+    }
+}
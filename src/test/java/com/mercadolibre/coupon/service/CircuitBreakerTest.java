@@ -0,0 +1,121 @@
+package com.mercadolibre.coupon.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Circuit Breaker")
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(50).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Ventana de 10 llamadas, mínimo 5, abre con 50% de fallas o 80% de lentas
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 5, 50, 80, Duration.ofSeconds(2),
+        Duration.ofSeconds(10), 2, meterRegistry, clock::get);
+
+    private void call(boolean success, long duration) {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        if (success) {
+            breaker.onSuccess(duration);
+        } else {
+            breaker.onError(duration);
+        }
+    }
+
+    @Test
+    @DisplayName("Debe abrirse al superar la tasa de fallas y rechazar sin llamar")
+    void failureRate_OpensCircuit() {
+        // Given - 3 bien, 2 fallas: 40%, sigue cerrado
+        call(true, FAST);
+        call(true, FAST);
+        call(true, FAST);
+        call(false, FAST);
+        call(false, FAST);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // When - Una falla más: 50%
+        call(false, FAST);
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(meterRegistry.get("meli.circuit.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe abrirse si la mayoría de las llamadas son lentas aunque respondan bien")
+    void slowCallRate_OpensCircuit() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            call(true, SLOW);
+        }
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Debe cerrarse si las llamadas de prueba salen bien y reabrirse si alguna falla")
+    void halfOpen_ProbesRecovery() {
+        // Given - Circuito abierto
+        for (int i = 0; i < 5; i++) {
+            call(false, FAST);
+        }
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        // When - Pasa el tiempo de espera: una prueba falla
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        call(false, FAST);
+
+        // Then - Vuelve a abrirse
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // When - Pasa otra vez el tiempo: solo se permiten 2 pruebas y ambas salen bien
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("meli.circuit.opened").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Debe calcular las tasas solo sobre las últimas N llamadas")
+    void slidingWindow_OnlyCountsRecentCalls() {
+        // Given - Ventana llena: F S F S S S S S S S (20%)
+        call(false, FAST);
+        call(true, FAST);
+        call(false, FAST);
+        for (int i = 0; i < 7; i++) {
+            call(true, FAST);
+        }
+
+        // When - 4 fallas desplazan F S F S: quedan 4 fallas de 10
+        for (int i = 0; i < 4; i++) {
+            call(false, FAST);
+        }
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // When - Una más: 5 de 10 en la ventana (sobre el total serían 7 de 15, bajo el umbral)
+        call(false, FAST);
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -7,8 +7,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.IntStream;
 
@@ -315,6 +317,165 @@ class CouponOptimizationServiceTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Debe encontrar el óptimo exacto con presupuesto millonario y pocas sumas alcanzables")
+    void findOptimalItems_LargeBudgetSparse() {
+        // Given - Presupuesto muy por encima del límite del DP denso, precios "redondos"
+        List<Item> lumpyItems = Arrays.asList(
+            new Item("MLA1", new BigDecimal("3000000.00")),
+            new Item("MLA2", new BigDecimal("2600000.00")),
+            new Item("MLA3", new BigDecimal("2400000.00")),
+            new Item("MLA4", new BigDecimal("1700000.00")),
+            new Item("MLA5", new BigDecimal("900000.00"))
+        );
+        BigDecimal maxAmount = new BigDecimal("6900000.00");
+
+        // When
+        List<String> result = optimizationService.findOptimalItems(lumpyItems, maxAmount);
+
+        // Then - El greedy por precio se queda en 6.500.000 (MLA1 + MLA2 + MLA5);
+        // el óptimo exacto es 2.600.000 + 2.400.000 + 1.700.000 = 6.700.000
+        assertThat(result).containsExactlyInAnyOrder("MLA2", "MLA3", "MLA4");
+        assertThat(calculateTotalCost(lumpyItems, result)).isEqualByComparingTo(new BigDecimal("6700000.00"));
+    }
+
+    @Test
+    @DisplayName("Debe resolver exacto muchos items caros con presupuesto enorme")
+    void findOptimalItems_ManyItemsLargeBudgetSparse() {
+        // Given - 80 items con precios múltiplos de 10.000 y uno con centavos
+        List<Item> manyItems = new ArrayList<>(IntStream.range(0, 80)
+            .mapToObj(i -> new Item("MLA" + i, new BigDecimal((i % 7 + 1) * 10000)))
+            .toList());
+        manyItems.add(new Item("MLA_ODD", new BigDecimal("1234.56")));
+        BigDecimal maxAmount = new BigDecimal("151234.56");
+
+        // When
+        long startTime = System.currentTimeMillis();
+        List<String> result = optimizationService.findOptimalItems(manyItems, maxAmount);
+        long executionTime = System.currentTimeMillis() - startTime;
+
+        // Then - Solo se llega al presupuesto exacto usando el item con centavos
+        assertThat(result).contains("MLA_ODD");
+        assertThat(result).doesNotHaveDuplicates();
+        assertThat(calculateTotalCost(manyItems, result)).isEqualByComparingTo(maxAmount);
+        assertThat(executionTime).isLessThan(2000);
+    }
+
+    @Test
+    @DisplayName("Debe devolver la óptima y alternativas distintas en una sola resolución")
+    void findOptimalSolutions_TopKAlternatives() {
+        // Given
+        BigDecimal maxAmount = new BigDecimal("350.00");
+
+        // When
+        List<List<String>> solutions = optimizationService.findOptimalSolutions(testItems, maxAmount, 4);
+
+        // Then - La primera es la óptima (MLA2 + MLA3 = 350.00)
+        assertThat(solutions).hasSize(4);
+        assertThat(solutions.get(0)).containsExactlyInAnyOrder("MLA2", "MLA3");
+        assertThat(solutions).doesNotHaveDuplicates();
+
+        // Las alternativas respetan el presupuesto y vienen de mayor a menor total
+        BigDecimal previous = maxAmount;
+        for (List<String> solution : solutions) {
+            BigDecimal total = calculateTotalCost(testItems, solution);
+            assertThat(total).isLessThanOrEqualTo(previous);
+            previous = total;
+        }
+        assertThat(calculateTotalCost(testItems, solutions.get(1))).isEqualByComparingTo("330.00");
+    }
+
+    @Test
+    @DisplayName("Debe devolver menos alternativas si no hay suficientes combinaciones")
+    void findOptimalSolutions_FewerThanRequested() {
+        // Given
+        List<Item> singleItem = Arrays.asList(new Item("MLA1", new BigDecimal("100.00")));
+
+        // When
+        List<List<String>> solutions = optimizationService.findOptimalSolutions(singleItem, new BigDecimal("150.00"), 5);
+
+        // Then
+        assertThat(solutions).containsExactly(List.of("MLA1"));
+    }
+
+    @Test
+    @DisplayName("Debe resolver a medida que llegan los precios con el mismo resultado que en lote")
+    void findOptimalSolutionsAsArriving_MatchesBatch() {
+        // Given - Los precios llegan de a uno y desordenados, como los chunks de la API
+        List<Item> arrivalOrder = new ArrayList<>(testItems);
+        Collections.reverse(arrivalOrder);
+        BigDecimal maxAmount = new BigDecimal("350.00");
+
+        // When
+        CouponOptimizationService.PipelinedSolution solved = optimizationService
+            .findOptimalSolutionsAsArriving(Flux.fromIterable(arrivalOrder).delayElements(Duration.ofMillis(5)),
+                                            arrivalOrder.size(), maxAmount, 3)
+            .block(Duration.ofSeconds(5));
+        List<List<String>> batch = optimizationService.findOptimalSolutions(testItems, maxAmount, 3);
+
+        // Then
+        assertThat(solved.getItems()).hasSize(5);
+        assertThat(solved.getSolutions()).hasSameSizeAs(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            assertThat(calculateTotalCost(testItems, solved.getSolutions().get(i)))
+                .isEqualByComparingTo(calculateTotalCost(testItems, batch.get(i)));
+        }
+        assertThat(solved.getSolutions().get(0)).containsExactlyInAnyOrder("MLA2", "MLA3");
+    }
+
+    @Test
+    @DisplayName("Debe caer al DP al final si las sumas alcanzables superan el límite del disperso")
+    void findOptimalSolutionsAsArriving_FallsBackWhenDense() {
+        // Given - Muchos precios chicos: las sumas alcanzables cubren casi todo el presupuesto
+        Random random = new Random(42);
+        List<Item> items = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            items.add(new Item("MLA" + i, BigDecimal.valueOf(100 + random.nextInt(90_000), 2)));
+        }
+        BigDecimal maxAmount = new BigDecimal("5000.37");
+
+        // When
+        CouponOptimizationService.PipelinedSolution solved = optimizationService
+            .findOptimalSolutionsAsArriving(Flux.fromIterable(items), items.size(), maxAmount, 1)
+            .block(Duration.ofSeconds(10));
+
+        // Then
+        List<String> batch = optimizationService.findOptimalItems(items, maxAmount);
+        assertThat(solved.getItems()).hasSize(200);
+        assertThat(calculateTotalCost(items, solved.getSolutions().get(0)))
+            .isEqualByComparingTo(calculateTotalCost(items, batch))
+            .isLessThanOrEqualTo(maxAmount);
+    }
+
+    @Test
+    @DisplayName("Debe resolver con el disperso como el batch aunque la mayoría de los items venga sin precio")
+    void findOptimalSolutionsAsArriving_SizesLimitByValidItems() {
+        // Given - De 5000 ids solo 18 tienen precio (potencias de 2): 2^18 sumas alcanzables,
+        // más que el límite para 5000 items pero dentro del límite para 18
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 18; i++) {
+            items.add(new Item("MLA" + (i + 1), BigDecimal.valueOf(64L << i, 2)));
+        }
+        for (int i = 19; i <= 5000; i++) {
+            items.add(new Item("MLA" + i, BigDecimal.ZERO));
+        }
+        BigDecimal maxAmount = new BigDecimal("128000.64");
+
+        // When
+        CouponOptimizationService.PipelinedSolution solved = optimizationService
+            .findOptimalSolutionsAsArriving(Flux.fromIterable(items), items.size(), maxAmount, 3)
+            .block(Duration.ofSeconds(10));
+        List<List<String>> batch = optimizationService.findOptimalSolutions(items, maxAmount, 3);
+
+        // Then - Las tres mejores sumas exactas, igual que el batch
+        assertThat(solved.getSolutions()).hasSize(3);
+        assertThat(calculateTotalCost(items, solved.getSolutions().get(0))).isEqualByComparingTo(maxAmount);
+        for (int i = 0; i < batch.size(); i++) {
+            assertThat(calculateTotalCost(items, solved.getSolutions().get(i)))
+                .isEqualByComparingTo(calculateTotalCost(items, batch.get(i)));
+        }
+    }
+
     /**
      * Método auxiliar para calcular el costo total de los items seleccionados
      */
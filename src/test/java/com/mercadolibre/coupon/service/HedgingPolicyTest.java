@@ -0,0 +1,102 @@
+package com.mercadolibre.coupon.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Tests del Hedging de Llamadas")
+class HedgingPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private HedgingPolicy policy(double budgetRatio) {
+        return new HedgingPolicy(true, 0.95, Duration.ofMillis(30), Duration.ofMillis(1), budgetRatio, 10,
+            meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Debe enviar una copia si la original se demora y quedarse con la primera respuesta")
+    void execute_HedgeWins() throws Exception {
+        // Given - La original tarda 5s, la copia responde enseguida
+        HedgingPolicy policy = policy(1.0);
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        // When
+        CompletableFuture<String> result = policy.execute(() -> calls.getAndIncrement() == 0
+            ? Mono.delay(Duration.ofSeconds(5)).map(t -> "original").doOnCancel(() -> primaryCancelled.set(true))
+            : Mono.just("copia"));
+
+        // Then
+        assertThat(result.get(2, TimeUnit.SECONDS)).isEqualTo("copia");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(primaryCancelled.get()).isTrue();
+        assertThat(meterRegistry.get("meli.items.hedge.sent").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("meli.items.hedge.won").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("No debe enviar copias sin presupuesto")
+    void execute_NoBudget() throws Exception {
+        // Given
+        HedgingPolicy policy = policy(0.0);
+
+        // When
+        CompletableFuture<String> result = policy.execute(() -> {
+            calls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(200)).map(t -> "original");
+        });
+
+        // Then
+        assertThat(result.get(2, TimeUnit.SECONDS)).isEqualTo("original");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("meli.items.hedge.denied").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe fallar enseguida si la original falla antes de la demora, sin enviar copia")
+    void execute_FastFailureIsNotHedged() {
+        // Given
+        HedgingPolicy policy = policy(1.0);
+
+        // When
+        CompletableFuture<String> result = policy.execute(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new IllegalStateException("503"));
+        });
+
+        // Then
+        assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("meli.items.hedge.sent").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("La demora debe seguir al percentil de las latencias observadas")
+    void execute_DelayTracksObservedPercentile() throws Exception {
+        // Given
+        HedgingPolicy policy = policy(0.05);
+        assertThat(policy.getDelayNanos()).isEqualTo(Duration.ofMillis(30).toNanos());
+
+        // When - 64 respuestas inmediatas
+        for (int i = 0; i < 64; i++) {
+            policy.execute(() -> Mono.just("ok")).get();
+        }
+
+        // Then
+        assertThat(policy.getDelayNanos()).isLessThan(Duration.ofMillis(30).toNanos());
+    }
+}
@@ -0,0 +1,205 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Dispatcher de Multigets Agrupados")
+class ItemBatchDispatcherTest {
+
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ItemBatchDispatcher dispatcher;
+
+    // Fetcher simulado: precio = largo del id, registra cada llamada
+    private final Function<List<String>, CompletableFuture<Map<String, Item>>> fetcher = ids -> {
+        calls.add(List.copyOf(ids));
+        return CompletableFuture.completedFuture(ids.stream()
+            .collect(Collectors.toMap(id -> id, id -> new Item(id, BigDecimal.valueOf(id.length())))));
+    };
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Debe juntar en un multiget los ids de solicitudes concurrentes")
+    void submit_CoalescesConcurrentRequests() throws Exception {
+        // Given
+        dispatcher = new ItemBatchDispatcher("test", fetcher, 20, Duration.ofMillis(200), 4, meterRegistry);
+        CompletableFuture<Item> first = new CompletableFuture<>();
+        CompletableFuture<Item> second = new CompletableFuture<>();
+        CompletableFuture<Item> third = new CompletableFuture<>();
+
+        // When - Tres solicitudes dentro de la misma ventana
+        dispatcher.submit(Map.of("MLA1", first));
+        dispatcher.submit(Map.of("MLA22", second));
+        dispatcher.submit(Map.of("MLA333", third));
+
+        // Then
+        assertThat(third.get(2, TimeUnit.SECONDS).getPrice()).isEqualByComparingTo("6");
+        assertThat(first.get().getPrice()).isEqualByComparingTo("4");
+        assertThat(calls).hasSize(1);
+        assertThat(calls.get(0)).containsExactly("MLA1", "MLA22", "MLA333");
+        assertThat(meterRegistry.get("meli.items.batch.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Debe despachar sin esperar al llegar al tope de ids por llamada")
+    void submit_FlushesWhenBatchIsFull() throws Exception {
+        // Given - Ventana larga: si se esperara, el test vencería
+        dispatcher = new ItemBatchDispatcher("test", fetcher, 2, Duration.ofSeconds(30), 4, meterRegistry);
+        CompletableFuture<Item> first = new CompletableFuture<>();
+        CompletableFuture<Item> second = new CompletableFuture<>();
+
+        // When
+        dispatcher.submit(Map.of("MLA1", first));
+        dispatcher.submit(Map.of("MLA2", second));
+
+        // Then
+        assertThat(second.get(1, TimeUnit.SECONDS)).isNotNull();
+        assertThat(calls).containsExactly(List.of("MLA1", "MLA2"));
+    }
+
+    @Test
+    @DisplayName("Debe completar con precio 0 si el multiget falla")
+    void submit_FetchFailureCompletesWithZero() throws Exception {
+        // Given
+        dispatcher = new ItemBatchDispatcher("test",
+            ids -> CompletableFuture.failedFuture(new RuntimeException("503")),
+            20, Duration.ofMillis(10), 4, meterRegistry);
+        CompletableFuture<Item> future = new CompletableFuture<>();
+
+        // When
+        dispatcher.submit(Map.of("MLA1", future));
+
+        // Then
+        Item item = future.get(2, TimeUnit.SECONDS);
+        assertThat(item.getId()).isEqualTo("MLA1");
+        assertThat(item.getPrice()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(item.isUnresolved()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Debe consultar los chunks de un carrito grande con un tope de llamadas simultáneas")
+    void submit_LimitsConcurrentChunks() throws Exception {
+        // Given - El fetcher no responde hasta que el test lo libera
+        List<CompletableFuture<Map<String, Item>>> responses = new CopyOnWriteArrayList<>();
+        AtomicInteger maxActive = new AtomicInteger();
+        dispatcher = new ItemBatchDispatcher("test", ids -> {
+            calls.add(List.copyOf(ids));
+            maxActive.accumulateAndGet(dispatcher.activeFetchCount(), Math::max);
+            CompletableFuture<Map<String, Item>> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        }, 2, Duration.ofMillis(10), 2, meterRegistry);
+        Map<String, CompletableFuture<Item>> cart = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            cart.put("MLA" + i, new CompletableFuture<>());
+        }
+
+        // When - 10 ids en chunks de 2: solo 2 multigets en curso, 3 en cola
+        dispatcher.submit(cart);
+
+        // Then
+        assertThat(calls).hasSize(2);
+        assertThat(dispatcher.queuedBatchCount()).isEqualTo(3);
+
+        // When - Responde el primero: el siguiente chunk sale y sus items ya están completos
+        List<String> firstChunk = calls.get(0);
+        responses.get(0).complete(Map.of(firstChunk.get(0), new Item(firstChunk.get(0), BigDecimal.TEN)));
+        assertThat(cart.get(firstChunk.get(0)).get().getPrice()).isEqualByComparingTo("10");
+        assertThat(cart.get(firstChunk.get(1)).get().getPrice()).isEqualByComparingTo("0");
+        assertThat(calls).hasSize(3);
+
+        // When - Se liberan todos los demás
+        for (int i = 1; i < 5; i++) {
+            responses.get(i).complete(Map.of());
+        }
+
+        // Then
+        assertThat(calls).hasSize(5);
+        assertThat(new ArrayList<>(cart.values())).allMatch(CompletableFuture::isDone);
+        assertThat(maxActive.get()).isLessThanOrEqualTo(2);
+        assertThat(dispatcher.activeFetchCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Debe vaciar una cola larga de batches que responden al instante sin anidar llamadas")
+    void submit_DrainsQueueWithoutRecursion() throws Exception {
+        // Given - El primer multiget queda pendiente mientras se encolan muchos chunks;
+        // los demás responden en el mismo hilo (como un cache de otra instancia)
+        CompletableFuture<Map<String, Item>> firstResponse = new CompletableFuture<>();
+        dispatcher = new ItemBatchDispatcher("test", ids -> {
+            if (calls.isEmpty()) {
+                calls.add(List.copyOf(ids));
+                return firstResponse;
+            }
+            return fetcher.apply(ids);
+        }, 1, Duration.ofMillis(10), 1, 50_000, ids -> Map.of(), meterRegistry);
+        CompletableFuture<Item> first = new CompletableFuture<>();
+        dispatcher.submit(Map.of("MLA0", first));
+        Map<String, CompletableFuture<Item>> cart = new HashMap<>();
+        for (int i = 1; i <= 20_000; i++) {
+            cart.put("MLA" + i, new CompletableFuture<>());
+        }
+        dispatcher.submit(cart);
+        assertThat(dispatcher.queuedBatchCount()).isEqualTo(20_000);
+
+        // When
+        firstResponse.complete(Map.of());
+
+        // Then
+        assertThat(new ArrayList<>(cart.values())).allMatch(future -> future.isDone() && !future.isCompletedExceptionally());
+        assertThat(calls).hasSize(20_001);
+        assertThat(dispatcher.activeFetchCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Debe completar con el precio de respaldo los batches que no entran en la cola")
+    void submit_RejectsBatchesWhenQueueIsFull() throws Exception {
+        // Given - Un multiget en curso que no responde y lugar para un solo batch en cola
+        CompletableFuture<Map<String, Item>> pendingResponse = new CompletableFuture<>();
+        dispatcher = new ItemBatchDispatcher("test", ids -> {
+            calls.add(List.copyOf(ids));
+            return pendingResponse;
+        }, 1, Duration.ofMillis(10), 1, 1,
+            ids -> Map.of("MLA3", new Item("MLA3", BigDecimal.TEN, true)), meterRegistry);
+        Map<String, CompletableFuture<Item>> cart = new LinkedHashMap<>();
+        for (int i = 1; i <= 4; i++) {
+            cart.put("MLA" + i, new CompletableFuture<>());
+        }
+
+        // When - MLA1 sale, MLA2 espera en cola, MLA3 y MLA4 se rechazan
+        dispatcher.submit(cart);
+
+        // Then - El rechazado con último precio conocido lo usa; el otro queda unresolved
+        assertThat(calls).containsExactly(List.of("MLA1"));
+        assertThat(dispatcher.queuedBatchCount()).isEqualTo(1);
+        assertThat(cart.get("MLA3").get(1, TimeUnit.SECONDS).isStale()).isTrue();
+        assertThat(cart.get("MLA3").get().getPrice()).isEqualByComparingTo("10");
+        assertThat(cart.get("MLA4").get(1, TimeUnit.SECONDS).isUnresolved()).isTrue();
+        assertThat(cart.get("MLA1")).isNotDone();
+        assertThat(cart.get("MLA2")).isNotDone();
+        assertThat(meterRegistry.get("meli.items.batch.rejected").counter().count()).isEqualTo(2.0);
+    }
+}
@@ -0,0 +1,28 @@
+package com.mercadolibre.coupon.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Validador de Ids de Items")
+class ItemIdValidatorTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"MLA1", "MLA811601010", "MLB123456789", "MCO99", "MLM1234567890123", "MLA_TEST"})
+    @DisplayName("Debe aceptar ids con prefijo de sitio y código")
+    void isValid_ValidIds(String itemId) {
+        assertThat(ItemIdValidator.isValid(itemId)).isTrue();
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"MLA", "mla123", "XYZ123", "MLA12a3", "MLA 123", "MLA-123", "MLA1234567890123456789012345",
+        "../items"})
+    @DisplayName("Debe rechazar ids con formato inválido")
+    void isValid_InvalidIds(String itemId) {
+        assertThat(ItemIdValidator.isValid(itemId)).isFalse();
+    }
+}
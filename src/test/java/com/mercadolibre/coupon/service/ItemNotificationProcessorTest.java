@@ -0,0 +1,110 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.cache.HotItemTracker;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.cache.NegativeItemCache;
+import com.mercadolibre.coupon.dto.MeliNotification;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Tests del Procesamiento de Notificaciones de Items")
+class ItemNotificationProcessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ItemPriceCache itemCache;
+    private NegativeItemCache negativeCache;
+    private MeliItemService meliItemService;
+    private ItemNotificationProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        itemCache = new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000, Duration.ofHours(1),
+            meterRegistry);
+        negativeCache = new NegativeItemCache(Duration.ofMinutes(1), 1000, false, 0, 0.01, meterRegistry);
+        HotItemTracker hotItems = new HotItemTracker(itemCache, false, 100, 10, 10, Duration.ofSeconds(10),
+            Duration.ofMinutes(5), meterRegistry);
+        meliItemService = mock(MeliItemService.class);
+        // Intervalo largo: los tests vacían la cola a mano
+        processor = new ItemNotificationProcessor(itemCache, negativeCache, hotItems, meliItemService, true, "",
+            3, 200, 4, Duration.ofHours(1), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Debe encolar una sola vez los items repetidos y descartar lo que no es un item")
+    void accept_DeduplicatesAndFilters() {
+        // When
+        boolean first = processor.accept(new MeliNotification("/items/MLA1", "items"));
+        boolean repeated = processor.accept(new MeliNotification("/items/MLA1/prices", "items_prices"));
+        boolean order = processor.accept(new MeliNotification("/orders/123", "orders_v2"));
+        boolean invalid = processor.accept(new MeliNotification("/items/abc", "items"));
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(repeated).isTrue();
+        assertThat(order).isFalse();
+        assertThat(invalid).isFalse();
+        assertThat(processor.pendingCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("meli.notifications").tag("result", "duplicate").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe refrescar los items en caché e invalidar los que no se pudieron refrescar")
+    void drain_RefreshesCachedItems() {
+        // Given - MLA1 y MLA2 en caché; MLA3 no; la API solo devuelve MLA1
+        itemCache.put(new Item("MLA1", new BigDecimal("100")));
+        itemCache.put(new Item("MLA2", new BigDecimal("200")));
+        negativeCache.markMissing("MLA3");
+        when(meliItemService.refreshItems(anyList())).thenAnswer(invocation -> {
+            itemCache.put(new Item("MLA1", new BigDecimal("90")));
+            return CompletableFuture.completedFuture(Map.of("MLA1", new Item("MLA1", new BigDecimal("90"))));
+        });
+        processor.accept(new MeliNotification("/items/MLA1", "items"));
+        processor.accept(new MeliNotification("/items/MLA2", "items"));
+        processor.accept(new MeliNotification("/items/MLA3", "items"));
+
+        // When
+        processor.drain();
+
+        // Then
+        verify(meliItemService).refreshItems(List.of("MLA1", "MLA2"));
+        assertThat(itemCache.get("MLA1").getPrice()).isEqualByComparingTo("90");
+        assertThat(itemCache.get("MLA2")).isNull();
+        assertThat(negativeCache.isKnownMissing("MLA3")).isFalse();
+        assertThat(processor.pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Debe descartar notificaciones con la cola llena sin consultar la API")
+    void accept_DropsWhenFull() {
+        // Given - Ninguno en caché: solo se invalidan
+        for (int i = 1; i <= 5; i++) {
+            processor.accept(new MeliNotification("/items/MLA" + i, "items"));
+        }
+
+        // When
+        processor.drain();
+
+        // Then
+        assertThat(meterRegistry.get("meli.notifications").tag("result", "dropped").counter().count())
+            .isEqualTo(2.0);
+        assertThat(processor.pendingCount()).isZero();
+        verify(meliItemService, never()).refreshItems(anyList());
+    }
+}
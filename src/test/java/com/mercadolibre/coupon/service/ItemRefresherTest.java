@@ -0,0 +1,104 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Tests del Refresco Anticipado de Precios")
+class ItemRefresherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Map<String, CompletableFuture<Item>>> submitted = new CopyOnWriteArrayList<>();
+
+    private CachedItem staleEntry(String itemId) {
+        return new CachedItem(new Item(itemId, BigDecimal.TEN), System.nanoTime() - 5_000_000_000L);
+    }
+
+    @Test
+    @DisplayName("Debe refrescar una sola vez un item aunque lleguen varios hits vencidos")
+    void onStaleHit_DeduplicatesRefreshes() {
+        // Given
+        ItemRefresher refresher = new ItemRefresher(submitted::add, 1_000_000_000L, 10, meterRegistry);
+        CachedItem entry = staleEntry("MLA1");
+
+        // When
+        refresher.onStaleHit("MLA1", entry);
+        refresher.onStaleHit("MLA1", entry);
+
+        // Then
+        assertThat(submitted).hasSize(1);
+        assertThat(meterRegistry.get("meli.items.stale.served").timer().count()).isEqualTo(2);
+
+        // When - Termina el refresco: un nuevo hit vencido vuelve a pedirlo
+        submitted.get(0).get("MLA1").complete(new Item("MLA1", BigDecimal.ONE));
+        refresher.onStaleHit("MLA1", entry);
+
+        // Then
+        assertThat(submitted).hasSize(2);
+        assertThat(meterRegistry.get("meli.items.refresh.lag").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Debe descartar refrescos por encima del tope de refrescos en curso")
+    void onStaleHit_BoundedInFlight() {
+        // Given
+        ItemRefresher refresher = new ItemRefresher(submitted::add, 1_000_000_000L, 2, meterRegistry);
+
+        // When
+        refresher.onStaleHit("MLA1", staleEntry("MLA1"));
+        refresher.onStaleHit("MLA2", staleEntry("MLA2"));
+        refresher.onStaleHit("MLA3", staleEntry("MLA3"));
+
+        // Then
+        assertThat(submitted).hasSize(2);
+        assertThat(meterRegistry.get("meli.items.refresh.dropped").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("meli.items.refresh.in-flight").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Debe hacer crecer el TTL adaptativo de un item estable refrescado por TTL blando")
+    void onStaleHit_AdaptiveTtlGrowsOnSoftRefreshes() {
+        // Given - TTL de 10m con refresco a los 2m, con reloj simulado; cada refresco trae el mismo precio
+        AtomicLong clock = new AtomicLong();
+        ItemPriceCache cache = new ItemPriceCache(1 << 20, Duration.ofMinutes(10), Duration.ofMinutes(2),
+            1_000, Duration.ofHours(1), true, Duration.ofMinutes(1), Duration.ofHours(1), meterRegistry, clock::get);
+        ItemRefresher refresher = new ItemRefresher(requests -> requests.forEach((id, future) -> {
+            Item fresh = new Item(id, BigDecimal.TEN);
+            cache.put(fresh);
+            future.complete(fresh);
+        }), cache::softTtlNanos, 10, meterRegistry);
+        cache.put(new Item("MLA1", BigDecimal.TEN));
+        clock.addAndGet(Duration.ofMinutes(3).toNanos());
+        assertThat(cache.isStale(cache.getEntry("MLA1"))).isTrue();
+
+        // When
+        refresher.onStaleHit("MLA1", cache.getEntry("MLA1"));
+
+        // Then - El precio se mantuvo todo el intervalo de refresco: el TTL se duplica
+        CachedItem refreshed = cache.getEntry("MLA1");
+        assertThat(cache.ttlNanos(refreshed)).isEqualTo(Duration.ofMinutes(20).toNanos());
+        assertThat(cache.softTtlNanos(refreshed)).isEqualTo(Duration.ofMinutes(4).toNanos());
+
+        // When - El siguiente refresco llega al vencer el nuevo TTL blando
+        clock.addAndGet(Duration.ofMinutes(4).toNanos());
+        refresher.onStaleHit("MLA1", refreshed);
+
+        // Then
+        CachedItem again = cache.getEntry("MLA1");
+        assertThat(cache.ttlNanos(again)).isEqualTo(Duration.ofMinutes(40).toNanos());
+        assertThat(cache.softTtlNanos(again)).isEqualTo(Duration.ofMinutes(8).toNanos());
+    }
+}
@@ -1,26 +1,48 @@
 package com.mercadolibre.coupon.service;
 
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.cache.HotItemTracker;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.cache.NegativeItemCache;
+import com.mercadolibre.coupon.cache.PeerCacheClient;
+import com.mercadolibre.coupon.cache.SharedPriceCache;
+import com.mercadolibre.coupon.dto.AccessTokenResponse;
 import com.mercadolibre.coupon.dto.MeliItemResponse;
 import com.mercadolibre.coupon.model.Item;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("Tests del Servicio de Items de MercadoLibre")
@@ -28,7 +50,10 @@ class MeliItemServiceTest {
 
     private MockWebServer mockWebServer;
     private MeliItemService meliItemService;
-    
+    private MeliTokenManager tokenManager;
+    private SimpleMeterRegistry meterRegistry;
+    private NegativeItemCache negativeCache;
+    private final String dummyAccessToken = "TEST_ACCESS_TOKEN_FOR_MOCKING";
 
     @BeforeEach
     void setUp() throws IOException {
@@ -36,28 +61,49 @@ class MeliItemServiceTest {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
         
+        // Crea el servicio apuntando el WebClient al servidor simulado, con un token vigente
+        meterRegistry = new SimpleMeterRegistry();
+        tokenManager = new MeliTokenManager(null, Duration.ofMinutes(10), Duration.ofSeconds(30), meterRegistry);
+        AccessTokenResponse token = new AccessTokenResponse();
+        token.setAccessToken(dummyAccessToken);
+        token.setExpiresIn(21600L);
+        tokenManager.setToken(token);
+        negativeCache = new NegativeItemCache(Duration.ofMinutes(1), 1000, false, 0, 0.01, meterRegistry);
+        meliItemService = newService(new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000,
+            Duration.ofHours(1), meterRegistry));
+    }
+
+    private MeliItemService newService(ItemPriceCache itemCache) {
+        // Cada llamada suma un reintento al presupuesto, así los tests de reintentos no dependen del tráfico previo
+        return newService(itemCache, 1.0, Duration.ofSeconds(3));
+    }
+
+    private MeliItemService newService(ItemPriceCache itemCache, double retryBudgetRatio, Duration interactiveDeadline) {
         String baseUrl = mockWebServer.url("/").toString();
         WebClient.Builder webClientBuilder = WebClient.builder();
-        
-        String dummyAccessToken = "TEST_ACCESS_TOKEN_FOR_MOCKING";
-        
-        // Crea el servicio usando reflexión para inyectar la URL del servidor simulado
-        meliItemService = new MeliItemService(webClientBuilder) {
-            {
-                java.lang.reflect.Field webClientField;
-                try {
-                    webClientField = MeliItemService.class.getDeclaredField("webClient");
-                    webClientField.setAccessible(true);
-                    webClientField.set(this, webClientBuilder.baseUrl(baseUrl).build());
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        };
+        // Como en MeliHttpClientConfig: sin compress, los multigets comprimidos los descomprime el servicio
+        WebClient webClient = WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create()))
+            .build();
+        return new MeliItemService(webClient, itemCache, negativeCache,
+            new SharedPriceCache(false, "localhost", 6379, "", Duration.ofMillis(50), 1, "coupon:item:",
+                Duration.ofMinutes(10), Duration.ofSeconds(5), meterRegistry),
+            new PeerCacheClient(false, "http://localhost:8080", List.of(), "", Duration.ofSeconds(30),
+                Duration.ofMillis(200), 128, webClientBuilder, meterRegistry),
+            new HotItemTracker(itemCache, false, 1000, 100, 10, Duration.ofSeconds(10), Duration.ofMinutes(5), meterRegistry),
+            new CircuitBreaker(100, 20, 50, 80, Duration.ofSeconds(2), Duration.ofSeconds(10), 5, meterRegistry),
+            new HedgingPolicy(true, 0.95, Duration.ofMillis(250), Duration.ofMillis(20), 0.05, 10, meterRegistry),
+            new OutboundRateLimiter(1000, 100, 1000, Duration.ofSeconds(2), 2, Duration.ofMillis(100), retryBudgetRatio,
+                meterRegistry),
+            tokenManager, meterRegistry, 20, Duration.ofMillis(5), 8, 128, 256, true, 2, Duration.ofMillis(10),
+            interactiveDeadline);
     }
 
     @AfterEach
     public void tearDown() throws IOException {
+        meliItemService.shutdown();
+        tokenManager.shutdown();
         if (mockWebServer != null) {
             try {
                 // Cancel any pending requests first
@@ -113,8 +159,10 @@ class MeliItemServiceTest {
 
         // Verificar la llamada HTTP realizada
         RecordedRequest recordedRequest = mockWebServer.takeRequest();
-        assertThat(recordedRequest.getPath()).isEqualTo("/items/" + itemId);
+        assertThat(recordedRequest.getRequestUrl().encodedPath()).isEqualTo("/items/" + itemId);
+        assertThat(recordedRequest.getRequestUrl().queryParameter("attributes")).isEqualTo(MeliItemService.ITEM_ATTRIBUTES);
         assertThat(recordedRequest.getMethod()).isEqualTo("GET");
+        assertThat(recordedRequest.getHeader("Authorization")).isEqualTo("Bearer " + dummyAccessToken);
     }
 
     @Test
@@ -123,61 +171,60 @@ class MeliItemServiceTest {
         // ARRANGE: Múltiples items con estructura real de MercadoLibre
         List<String> itemIds = Arrays.asList("MLA1", "MLA2", "MLA3");
         
-        // Respuesta para primer item - precio entero
-        mockWebServer.enqueue(new MockResponse()
-            .setBody("""
-                {
-                    "id": "MLA1",
-                    "site_id": "MLA",
-                    "title": "Producto 1",
-                    "seller_id": 123456,
-                    "category_id": "MLA401685",
-                    "price": 100,
-                    "base_price": 100,
-                    "currency_id": "ARS",
-                    "initial_quantity": 5,
-                    "available_quantity": 5,
-                    "date_created": "2023-01-01T10:00:00.000Z"
-                }
-                """)
-            .addHeader("Content-Type", "application/json"));
-            
-        // Respuesta para segundo item - precio con decimales
+        // Una sola respuesta multiget: precio entero, con decimales y alto
         mockWebServer.enqueue(new MockResponse()
             .setBody("""
-                {
-                    "id": "MLA2",
-                    "site_id": "MLA", 
-                    "title": "Producto 2",
-                    "seller_id": 654321,
-                    "category_id": "MLA401685",
-                    "price": 250.75,
-                    "base_price": 250.75,
-                    "currency_id": "ARS",
-                    "initial_quantity": 10,
-                    "available_quantity": 8,
-                    "date_created": "2023-01-02T15:30:00.000Z"
-                }
-                """)
-            .addHeader("Content-Type", "application/json"));
-            
-        // Respuesta para tercer item - precio alto
-        mockWebServer.enqueue(new MockResponse()
-            .setBody("""
-                {
-                    "id": "MLA3",
-                    "site_id": "MLA",
-                    "title": "Producto Premium",
-                    "seller_id": 789012,
-                    "category_id": "MLA401685",
-                    "price": 15000,
-                    "base_price": 18000,
-                    "original_price": 20000,
-                    "currency_id": "ARS",
-                    "initial_quantity": 1,
-                    "available_quantity": 1,
-                    "date_created": "2023-01-03T09:15:00.000Z"
-                }
+                [
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA1",
+                            "site_id": "MLA",
+                            "title": "Producto 1",
+                            "seller_id": 123456,
+                            "category_id": "MLA401685",
+                            "price": 100,
+                            "base_price": 100,
+                            "currency_id": "ARS",
+                            "initial_quantity": 5,
+                            "available_quantity": 5,
+                            "date_created": "2023-01-01T10:00:00.000Z"
+                        }
+                    },
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA2",
+                            "site_id": "MLA",
+                            "title": "Producto 2",
+                            "seller_id": 654321,
+                            "category_id": "MLA401685",
+                            "price": 250.75,
+                            "base_price": 250.75,
+                            "currency_id": "ARS",
+                            "initial_quantity": 10,
+                            "available_quantity": 8,
+                            "date_created": "2023-01-02T15:30:00.000Z"
+                        }
+                    },
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA3",
+                            "site_id": "MLA",
+                            "title": "Producto Premium",
+                            "seller_id": 789012,
+                            "category_id": "MLA401685",
+                            "price": 15000,
+                            "base_price": 18000,
+                            "original_price": 20000,
+                            "currency_id": "ARS",
+                            "initial_quantity": 1,
+                            "available_quantity": 1,
+                            "date_created": "2023-01-03T09:15:00.000Z"
+                        }
+                    }
+                ]
                 """)
             .addHeader("Content-Type", "application/json"));
 
@@ -200,7 +247,11 @@ class MeliItemServiceTest {
                 new BigDecimal("15000")     // Precio alto
             );
 
-        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+        // Los tres ids viajan en una única llamada multiget
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        RecordedRequest recordedRequest = mockWebServer.takeRequest();
+        assertThat(recordedRequest.getRequestUrl().encodedPath()).isEqualTo("/items");
+        assertThat(recordedRequest.getRequestUrl().queryParameter("ids")).isEqualTo("MLA1,MLA2,MLA3");
     }
 
     @Test
@@ -342,29 +393,31 @@ class MeliItemServiceTest {
         // ARRANGE: Items con diferentes monedas (USD, ARS)
         List<String> itemIds = Arrays.asList("MLA_ARS", "MLA_USD");
         
-        // Item en pesos argentinos
-        mockWebServer.enqueue(new MockResponse()
-            .setBody("""
-                {
-                    "id": "MLA_ARS",
-                    "site_id": "MLA",
-                    "title": "Producto en Pesos",
-                    "price": 10000,
-                    "currency_id": "ARS"
-                }
-                """)
-            .addHeader("Content-Type", "application/json"));
-            
-        // Item en dólares (si está disponible en MLA)
+        // Item en pesos argentinos y en dólares (si está disponible en MLA), en el mismo multiget
         mockWebServer.enqueue(new MockResponse()
             .setBody("""
-                {
-                    "id": "MLA_USD",
-                    "site_id": "MLA",
-                    "title": "Producto en Dólares",
-                    "price": 100,
-                    "currency_id": "USD"
-                }
+                [
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA_ARS",
+                            "site_id": "MLA",
+                            "title": "Producto en Pesos",
+                            "price": 10000,
+                            "currency_id": "ARS"
+                        }
+                    },
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA_USD",
+                            "site_id": "MLA",
+                            "title": "Producto en Dólares",
+                            "price": 100,
+                            "currency_id": "USD"
+                        }
+                    }
+                ]
                 """)
             .addHeader("Content-Type", "application/json"));
 
@@ -390,34 +443,41 @@ class MeliItemServiceTest {
         // ARRANGE: Mix de items válidos, con error 404, y con precio 0
         List<String> itemIds = Arrays.asList("MLA_VALID", "MLA_404", "MLA_ZERO_PRICE");
         
-        // Item válido con precio normal
+        // Item válido, error 404 para el inexistente y precio 0 (promocional o error)
         mockWebServer.enqueue(new MockResponse()
             .setBody("""
-                {
-                    "id": "MLA_VALID",
-                    "site_id": "MLA",
-                    "title": "Producto Válido",
-                    "price": 500,
-                    "currency_id": "ARS",
-                    "available_quantity": 10
-                }
-                """)
-            .addHeader("Content-Type", "application/json"));
-            
-        // Error 404 para item inexistente
-        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
-        
-        // Item con precio 0 (podría ser promocional o error)
-        mockWebServer.enqueue(new MockResponse()
-            .setBody("""
-                {
-                    "id": "MLA_ZERO_PRICE",
-                    "site_id": "MLA",
-                    "title": "Producto Gratis",
-                    "price": 0,
-                    "currency_id": "ARS",
-                    "available_quantity": 1
-                }
+                [
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA_VALID",
+                            "site_id": "MLA",
+                            "title": "Producto Válido",
+                            "price": 500,
+                            "currency_id": "ARS",
+                            "available_quantity": 10
+                        }
+                    },
+                    {
+                        "code": 404,
+                        "body": {
+                            "message": "Item with id MLA_404 not found",
+                            "error": "not_found",
+                            "status": 404
+                        }
+                    },
+                    {
+                        "code": 200,
+                        "body": {
+                            "id": "MLA_ZERO_PRICE",
+                            "site_id": "MLA",
+                            "title": "Producto Gratis",
+                            "price": 0,
+                            "currency_id": "ARS",
+                            "available_quantity": 1
+                        }
+                    }
+                ]
                 """)
             .addHeader("Content-Type", "application/json"));
 
@@ -425,13 +485,245 @@ class MeliItemServiceTest {
         CompletableFuture<List<Item>> future = meliItemService.getItemsPrices(itemIds);
         List<Item> results = future.get(10, TimeUnit.SECONDS);
 
-        // ASSERT: Solo debe retornar items con precio > 0
-        assertThat(results).hasSize(1); // Solo el item válido
-        assertThat(results.get(0).getId()).isEqualTo("MLA_VALID");
-        assertThat(results.get(0).getPrice()).isEqualTo(new BigDecimal("500"));
-        
-        // Verificar que se filtraron correctamente los items con precio 0 o error
-        assertThat(results)
-            .allMatch(item -> item.getPrice().compareTo(BigDecimal.ZERO) > 0);
+        // ASSERT: Se devuelve un item por id; el inexistente y el de precio 0 vuelven con
+        // precio 0 (el controller los filtra) y no quedan como unresolved
+        assertThat(results).hasSize(3);
+        List<Item> withPrice = results.stream()
+            .filter(item -> item.getPrice().compareTo(BigDecimal.ZERO) > 0)
+            .toList();
+        assertThat(withPrice).hasSize(1); // Solo el item válido
+        assertThat(withPrice.get(0).getId()).isEqualTo("MLA_VALID");
+        assertThat(withPrice.get(0).getPrice()).isEqualTo(new BigDecimal("500"));
+        assertThat(results).noneMatch(Item::isUnresolved);
+    }
+
+    /**
+     * Responde cada multiget según los ids pedidos; guarda los ids de cada llamada.
+     */
+    private List<String> dispatchMultigets(Function<List<String>, MockResponse> responder) {
+        List<String> requestedIds = new CopyOnWriteArrayList<>();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String ids = request.getRequestUrl().queryParameter("ids");
+                requestedIds.add(ids);
+                return responder.apply(Arrays.asList(ids.split(",")));
+            }
+        });
+        return requestedIds;
+    }
+
+    private static MockResponse multigetResponse(List<String> elements) {
+        return new MockResponse()
+            .setBody("[" + String.join(",", elements) + "]")
+            .addHeader("Content-Type", "application/json");
+    }
+
+    // Precio de prueba derivado del id: MLA7 cuesta 70
+    private static String okElement(String itemId) {
+        return "{\"code\":200,\"body\":{\"id\":\"" + itemId + "\",\"price\":" + priceOf(itemId) + "}}";
+    }
+
+    private static BigDecimal priceOf(String itemId) {
+        return new BigDecimal(itemId.substring(3)).multiply(BigDecimal.TEN);
+    }
+
+    @Test
+    @DisplayName("Debe reintentar solo el id cuyo elemento del multiget vino con 500, sin marcarlo inexistente")
+    void getItemsPrices_ElementServerError_RetriesOnlyFailedId() throws Exception {
+        // Given - La primera llamada trae MLA2 con error 500; el reintento lo trae bien
+        List<String> requestedIds = dispatchMultigets(ids -> multigetResponse(ids.stream()
+            .map(id -> id.equals("MLA2") && ids.size() > 1
+                ? "{\"code\":500,\"body\":{\"message\":\"Internal server error\",\"status\":500}}"
+                : okElement(id))
+            .toList()));
+
+        // When
+        List<Item> results = meliItemService.getItemsPrices(List.of("MLA1", "MLA2", "MLA3")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(results).extracting(Item::getPrice)
+            .containsExactly(new BigDecimal("10"), new BigDecimal("20"), new BigDecimal("30"));
+        assertThat(results).noneMatch(Item::isUnresolved);
+        assertThat(requestedIds).containsExactly("MLA1,MLA2,MLA3", "MLA2");
+        assertThat(negativeCache.isKnownMissing("MLA2")).isFalse();
+        assertThat(meterRegistry.get("meli.items.retries").tag("reason", "item").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe usar el último precio conocido o marcar unresolved si el multiget entero responde 503")
+    void getItemsPrices_WholeCallUnavailable_FallsBack() throws Exception {
+        // Given - MLA1 tiene un precio vencido; MLA2 nunca se consultó
+        meliItemService.shutdown();
+        ItemPriceCache itemCache = new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000,
+            Duration.ofHours(1), true, Duration.ofMinutes(1), Duration.ofHours(1), meterRegistry);
+        itemCache.put(new CachedItem(new Item("MLA1", new BigDecimal("99")),
+            System.nanoTime() - Duration.ofMinutes(11).toNanos()));
+        meliItemService = newService(itemCache);
+        List<String> requestedIds = dispatchMultigets(ids -> new MockResponse().setResponseCode(503));
+
+        // When
+        List<Item> results = meliItemService.getItemsPrices(List.of("MLA1", "MLA2")).get(5, TimeUnit.SECONDS);
+
+        // Then - Se reintentó la llamada entera y después se usaron los precios de respaldo
+        assertThat(requestedIds).containsExactly("MLA1,MLA2", "MLA1,MLA2", "MLA1,MLA2");
+        assertThat(results.get(0).getPrice()).isEqualTo(new BigDecimal("99"));
+        assertThat(results.get(0).isStale()).isTrue();
+        assertThat(results.get(1).getPrice()).isEqualTo(BigDecimal.ZERO);
+        assertThat(results.get(1).isUnresolved()).isTrue();
+        assertThat(negativeCache.isKnownMissing("MLA1")).isFalse();
+        assertThat(negativeCache.isKnownMissing("MLA2")).isFalse();
+        assertThat(meterRegistry.get("meli.items.unresolved").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("No debe volver a reintentar un 503 con Retry-After que ya reintentó el rate limiter")
+    void getItemsPrices_ThrottledUnavailable_NotRetriedTwice() throws Exception {
+        // Given - La API pide esperar un segundo en cada respuesta
+        List<String> requestedIds = dispatchMultigets(ids -> new MockResponse().setResponseCode(503)
+            .addHeader("Retry-After", "1"));
+
+        // When
+        List<Item> results = meliItemService.getItemsPrices(List.of("MLA1")).get(10, TimeUnit.SECONDS);
+
+        // Then - La original y el único reintento que el presupuesto le dio al rate limiter
+        assertThat(requestedIds).containsExactly("MLA1", "MLA1");
+        assertThat(results.get(0).isUnresolved()).isTrue();
+        assertThat(meterRegistry.get("meli.items.retries").tag("reason", "batch").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("No debe reintentar un multiget fallido sin presupuesto de reintentos")
+    void getItemsPrices_NoRetryBudget_FallsBack() throws Exception {
+        // Given - Un rate limiter sin presupuesto de reintentos
+        meliItemService.shutdown();
+        meliItemService = newService(new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000,
+            Duration.ofHours(1), meterRegistry), 0, Duration.ofSeconds(3));
+        List<String> requestedIds = dispatchMultigets(ids -> new MockResponse().setResponseCode(500));
+
+        // When
+        List<Item> results = meliItemService.getItemsPrices(List.of("MLA1")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(requestedIds).containsExactly("MLA1");
+        assertThat(results.get(0).isUnresolved()).isTrue();
+        assertThat(meterRegistry.get("meli.http.ratelimit.retries.denied").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Los reintentos de un request de usuario no deben pasar del plazo")
+    void getItemsPrices_InteractiveRetries_BoundedByDeadline() throws Exception {
+        // Given - Cada respuesta tarda 400ms y falla; el plazo para reintentar es de 600ms
+        meliItemService.shutdown();
+        meliItemService = newService(new ItemPriceCache(1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000,
+            Duration.ofHours(1), meterRegistry), 1.0, Duration.ofMillis(600));
+        List<String> requestedIds = dispatchMultigets(ids -> new MockResponse().setResponseCode(500)
+            .setHeadersDelay(400, TimeUnit.MILLISECONDS));
+
+        // When
+        long start = System.nanoTime();
+        List<Item> results = meliItemService.getItemsPrices(List.of("MLA1")).get(5, TimeUnit.SECONDS);
+
+        // Then - Se respondió al vencer el plazo, sin esperar el reintento en vuelo ni hacer un segundo
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(750));
+        assertThat(results.get(0).isUnresolved()).isTrue();
+        assertThat(requestedIds).containsExactly("MLA1", "MLA1");
+    }
+
+    @Test
+    @DisplayName("La consulta de otra instancia debe resolverse con el caché local y la API")
+    void getItemsPricesLocally_CacheThenApi() throws Exception {
+        // Given - MLA1 está en caché; MLA2 no; el tercero tiene formato inválido
+        List<String> requestedIds = dispatchMultigets(ids -> multigetResponse(ids.stream()
+            .map(MeliItemServiceTest::okElement).toList()));
+        meliItemService.getItemsPrices(List.of("MLA1")).get(5, TimeUnit.SECONDS);
+        requestedIds.clear();
+
+        // When
+        List<Item> results = meliItemService.getItemsPricesLocally(List.of("MLA1", "MLA2", "bad id"))
+            .get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(results).extracting(Item::getPrice)
+            .containsExactly(new BigDecimal("10"), new BigDecimal("20"), BigDecimal.ZERO);
+        assertThat(requestedIds).containsExactly("MLA2");
+    }
+
+    @Test
+    @DisplayName("Debe consultar una sola vez un item pedido por solicitudes simultáneas")
+    void getItemsPrices_ConcurrentRequests_SingleFlight() throws Exception {
+        // Given - La respuesta tarda lo suficiente para que la segunda solicitud la encuentre en vuelo
+        List<String> requestedIds = dispatchMultigets(ids -> multigetResponse(ids.stream()
+            .map(MeliItemServiceTest::okElement).toList()).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        // When
+        CompletableFuture<List<Item>> first = meliItemService.getItemsPrices(List.of("MLA5"));
+        CompletableFuture<List<Item>> second = meliItemService.getItemsPrices(List.of("MLA5"));
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).extracting(Item::getPrice).containsExactly(new BigDecimal("50"));
+        assertThat(second.get(5, TimeUnit.SECONDS)).extracting(Item::getPrice).containsExactly(new BigDecimal("50"));
+        assertThat(requestedIds).containsExactly("MLA5");
+    }
+
+    @Test
+    @DisplayName("Debe partir un carrito grande en multigets de hasta 20 ids")
+    void getItemsPrices_LargeCart_SplitsIntoBatches() throws Exception {
+        // Given
+        List<String> itemIds = IntStream.rangeClosed(1, 45).mapToObj(i -> "MLA" + i).toList();
+        List<String> requestedIds = dispatchMultigets(ids -> multigetResponse(ids.stream()
+            .map(MeliItemServiceTest::okElement).toList()));
+
+        // When
+        List<Item> results = meliItemService.getItemsPrices(itemIds).get(5, TimeUnit.SECONDS);
+
+        // Then - Cada id se consultó una sola vez, en tres llamadas
+        assertThat(results).extracting(Item::getPrice)
+            .containsExactlyElementsOf(itemIds.stream().map(MeliItemServiceTest::priceOf).toList());
+        assertThat(requestedIds).hasSize(3);
+        List<String> batchedIds = new ArrayList<>();
+        requestedIds.forEach(ids -> batchedIds.addAll(Arrays.asList(ids.split(","))));
+        assertThat(batchedIds).hasSize(45).containsExactlyInAnyOrderElementsOf(itemIds);
+        assertThat(requestedIds).allMatch(ids -> ids.split(",").length <= MeliItemService.MULTIGET_MAX_IDS);
+    }
+
+    @Test
+    @DisplayName("Debe pedir el multiget comprimido y descomprimir la respuesta gzip")
+    void getItemsPrices_GzipResponse_Inflated() throws Exception {
+        // Given - El servidor comprime solo si el cliente lo pidió
+        List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                acceptEncodings.add(String.valueOf(request.getHeader("Accept-Encoding")));
+                String body = "[" + Arrays.stream(request.getRequestUrl().queryParameter("ids").split(","))
+                    .map(MeliItemServiceTest::okElement)
+                    .collect(Collectors.joining(",")) + "]";
+                return new MockResponse()
+                    .setBody(gzip(body))
+                    .addHeader("Content-Type", "application/json")
+                    .addHeader("Content-Encoding", "gzip");
+            }
+        });
+
+        // When
+        List<Item> results = meliItemService.getItemsPrices(List.of("MLA1", "MLA2")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(acceptEncodings).singleElement().asString().contains("gzip");
+        assertThat(results).extracting(Item::getPrice).containsExactly(new BigDecimal("10"), new BigDecimal("20"));
+        // Los bytes se cuentan al cerrar el inflater, después de emitir el resultado
+        await().atMost(Duration.ofSeconds(1)).until(() ->
+            meterRegistry.get("meli.items.multiget.bytes").tag("encoding", "gzip").counter().count() > 0);
+    }
+
+    private static Buffer gzip(String body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Buffer().write(bytes.toByteArray());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.dto.AccessTokenResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Tests del Manejo del Access Token")
+class MeliTokenManagerTest {
+
+    private MeliAuthService meliAuthService;
+    private MeliTokenManager tokenManager;
+
+    @BeforeEach
+    void setUp() {
+        meliAuthService = mock(MeliAuthService.class);
+        tokenManager = new MeliTokenManager(meliAuthService, Duration.ofMinutes(10), Duration.ofSeconds(30),
+            new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenManager.shutdown();
+    }
+
+    private static AccessTokenResponse token(String accessToken, String refreshToken, long expiresIn) {
+        AccessTokenResponse token = new AccessTokenResponse();
+        token.setAccessToken(accessToken);
+        token.setRefreshToken(refreshToken);
+        token.setExpiresIn(expiresIn);
+        return token;
+    }
+
+    @Test
+    @DisplayName("Debe renovar el token antes de que venza, sin esperar un 401")
+    void setToken_RefreshesAhead() {
+        // Given - Token corto: se renueva a la mitad de su vida
+        when(meliAuthService.refreshAccessToken("R1")).thenReturn(token("A2", "R2", 21600));
+
+        // When
+        tokenManager.setToken(token("A1", "R1", 2));
+
+        // Then
+        assertThat(tokenManager.getAuthorizationHeader()).isEqualTo("Bearer A1");
+        await().atMost(Duration.ofSeconds(5))
+            .until(() -> "Bearer A2".equals(tokenManager.getAuthorizationHeader()));
+        assertThat(tokenManager.getToken().getRefreshToken()).isEqualTo("R2");
+        assertThat(tokenManager.hasValidToken()).isTrue();
+        verify(meliAuthService, times(1)).refreshAccessToken(anyString());
+    }
+
+    @Test
+    @DisplayName("Debe renovar una sola vez ante muchos 401 simultáneos")
+    void refreshAfterUnauthorized_SingleFlight() throws Exception {
+        // Given - El refresco tarda hasta que todos los 401 llegaron
+        CountDownLatch release = new CountDownLatch(1);
+        when(meliAuthService.refreshAccessToken("R1")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return token("A2", null, 21600);
+        });
+        tokenManager.setToken(token("A1", "R1", 21600));
+
+        // When
+        List<CompletableFuture<String>> retries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            retries.add(tokenManager.refreshAfterUnauthorized("Bearer A1"));
+        }
+        release.countDown();
+
+        // Then - Todos reintentan con el token nuevo; un 401 tardío con el viejo no vuelve a refrescar
+        for (CompletableFuture<String> retry : retries) {
+            assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo("Bearer A2");
+        }
+        assertThat(tokenManager.refreshAfterUnauthorized("Bearer A1").get(1, TimeUnit.SECONDS)).isEqualTo("Bearer A2");
+        assertThat(tokenManager.getToken().getRefreshToken()).isEqualTo("R1");
+        verify(meliAuthService, times(1)).refreshAccessToken(anyString());
+    }
+
+    @Test
+    @DisplayName("Debe no insistir con cada 401 si el refresco falló")
+    void refreshAfterUnauthorized_FailureBacksOff() throws Exception {
+        // Given
+        when(meliAuthService.refreshAccessToken("R1")).thenThrow(new IllegalStateException("invalid_grant"));
+        tokenManager.setToken(token("A1", "R1", 21600));
+
+        // When
+        String first = tokenManager.refreshAfterUnauthorized("Bearer A1").get(5, TimeUnit.SECONDS);
+        String second = tokenManager.refreshAfterUnauthorized("Bearer A1").get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(first).isNull();
+        assertThat(second).isNull();
+        assertThat(tokenManager.getAuthorizationHeader()).isEqualTo("Bearer A1");
+        verify(meliAuthService, times(1)).refreshAccessToken(anyString());
+    }
+}
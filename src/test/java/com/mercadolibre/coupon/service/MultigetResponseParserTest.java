@@ -0,0 +1,98 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Tests del Parser Incremental de Multiget")
+class MultigetResponseParserTest {
+
+    private static final String RESPONSE = """
+        [
+          {"code": 200, "body": {"id": "MLA1", "title": "Celular", "price": 1500.50,
+                                 "pictures": [{"id": "P1", "price": 1}], "attributes": {"price": 2}}},
+          {"code": 404, "body": {"message": "Item with id MLA2 not found", "error": "not_found"}},
+          {"body": {"price": 300, "id": "MLA3"}, "code": 200},
+          {"code": 200, "body": {"id": "MLA4", "price": 0}},
+          {"code": 200, "body": {"id": "MLA5", "price": null}}
+        ]
+        """;
+
+    @Test
+    @DisplayName("Debe extraer solo id y precio de los items con código 200")
+    void parse_ExtractsIdAndPrice() throws Exception {
+        // Given
+        MultigetResponseParser parser = new MultigetResponseParser();
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+        // When
+        parser.feed(bytes, 0, bytes.length);
+        Map<String, Item> items = parser.finish();
+
+        // Then - Los precios anidados en pictures/attributes no pisan el del body
+        assertThat(items).containsOnlyKeys("MLA1", "MLA3");
+        assertThat(items.get("MLA1").getPrice()).isEqualByComparingTo("1500.50");
+        assertThat(items.get("MLA3").getPrice()).isEqualByComparingTo("300");
+        assertThat(parser.getMissingCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Debe dar el mismo resultado recibiendo la respuesta byte a byte")
+    void parse_ByteByByte() throws Exception {
+        // Given
+        MultigetResponseParser parser = new MultigetResponseParser();
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+        // When - Cada byte llega en un fragmento distinto (tokens partidos entre fragmentos)
+        for (int i = 0; i < bytes.length; i++) {
+            parser.feed(bytes, i, 1);
+        }
+        Map<String, Item> items = parser.finish();
+
+        // Then
+        assertThat(items).containsOnlyKeys("MLA1", "MLA3");
+        assertThat(items.get("MLA1").getPrice()).isEqualByComparingTo("1500.50");
+    }
+
+    @Test
+    @DisplayName("Debe distinguir los errores transitorios de los items inexistentes")
+    void parse_TracksTransientFailures() throws Exception {
+        // Given
+        MultigetResponseParser parser = new MultigetResponseParser();
+        byte[] bytes = ("[{\"code\": 200, \"body\": {\"id\": \"MLA1\", \"price\": 10}},"
+            + "{\"code\": 404, \"body\": {\"message\": \"not found\"}},"
+            + "{\"code\": 500, \"body\": {\"id\": \"MLA3\", \"message\": \"internal error\"}},"
+            + "{\"code\": 429, \"body\": {\"message\": \"too many requests\"}}]").getBytes(StandardCharsets.UTF_8);
+
+        // When
+        parser.feed(bytes, 0, bytes.length);
+        Map<String, Item> items = parser.finish();
+
+        // Then - El 429 no trae id: no se puede saber a cuál de los faltantes corresponde
+        assertThat(items).containsOnlyKeys("MLA1");
+        assertThat(parser.getMissingCount()).isEqualTo(3);
+        assertThat(parser.getTransientFailureCount()).isEqualTo(2);
+        assertThat(parser.getTransientFailureIds()).containsExactly("MLA3");
+    }
+
+    @Test
+    @DisplayName("Debe fallar si la respuesta está truncada")
+    void parse_TruncatedResponse() throws Exception {
+        // Given
+        MultigetResponseParser parser = new MultigetResponseParser();
+        byte[] bytes = "[{\"code\": 200, \"body\": {\"id\": \"MLA1\"".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        parser.feed(bytes, 0, bytes.length);
+
+        // Then
+        assertThatThrownBy(parser::finish).isInstanceOf(IOException.class);
+    }
+}
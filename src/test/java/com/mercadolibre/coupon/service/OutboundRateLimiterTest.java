@@ -0,0 +1,137 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.service.OutboundRateLimiter.Priority;
+import com.mercadolibre.coupon.service.OutboundRateLimiter.RateLimitedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("Tests del Rate Limiter de Llamadas a MercadoLibre")
+class OutboundRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private OutboundRateLimiter limiter(double permitsPerSecond, int burst, int maxQueue) {
+        return new OutboundRateLimiter(permitsPerSecond, burst, maxQueue, Duration.ofSeconds(5), 2,
+            Duration.ofMillis(10), 1.0, meterRegistry);
+    }
+
+    private static WebClientResponseException error(int status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return WebClientResponseException.create(status, "error", headers, new byte[0], StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Debe dar los tokens primero a las llamadas interactivas")
+    void acquire_InteractiveFirst() {
+        // Given - El único token del burst ya se usó
+        OutboundRateLimiter limiter = limiter(10, 1, 100);
+        limiter.acquire(Priority.INTERACTIVE).block();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // When - Llega primero un refresco y después un request de usuario
+        limiter.acquire(Priority.BACKGROUND).subscribe(null, null, () -> order.add("background"));
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> order.add("interactive"));
+
+        // Then
+        await().atMost(Duration.ofSeconds(2)).until(() -> order.size() == 2);
+        assertThat(order).containsExactly("interactive", "background");
+    }
+
+    @Test
+    @DisplayName("Debe respetar Retry-After y reintentar tras un 429")
+    void execute_RetriesAfter429() {
+        // Given
+        OutboundRateLimiter limiter = limiter(1000, 100, 100);
+        long start = System.nanoTime();
+
+        // When - El primer intento recibe 429 con Retry-After de 1 segundo
+        String result = limiter.execute(Priority.INTERACTIVE, () -> calls.getAndIncrement() == 0
+            ? Mono.<String>error(error(429, "1"))
+            : Mono.just("ok")).block(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(900));
+        assertThat(meterRegistry.get("meli.http.ratelimit.throttled").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("meli.http.ratelimit.retries").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("No debe reintentar errores que no son de throttling")
+    void execute_NoRetryOnClientError() {
+        // Given
+        OutboundRateLimiter limiter = limiter(1000, 100, 100);
+
+        // When / Then
+        assertThatThrownBy(() -> limiter.execute(Priority.INTERACTIVE, () -> {
+                calls.incrementAndGet();
+                return Mono.<String>error(error(400, null));
+            }).block(Duration.ofSeconds(5)))
+            .isInstanceOf(WebClientResponseException.BadRequest.class);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Debe rechazar al instante cuando la cola de espera está llena")
+    void acquire_QueueFull() {
+        // Given - Sin tokens y con la única posición de la cola ocupada
+        OutboundRateLimiter limiter = limiter(0.1, 1, 1);
+        limiter.acquire(Priority.INTERACTIVE).block();
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, error -> { });
+
+        // When / Then
+        assertThatThrownBy(() -> limiter.acquire(Priority.INTERACTIVE).block(Duration.ofSeconds(1)))
+            .isInstanceOf(RateLimitedException.class);
+        assertThat(limiter.queuedCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("meli.http.ratelimit.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe devolver el token de una espera cancelada después de que se lo asignaron")
+    void acquire_CancelledAfterClaim_RefundsToken() {
+        // Given - Un 429 pausa las salidas; mientras tanto esperan dos llamadas y se juntan 2 tokens
+        OutboundRateLimiter limiter = new OutboundRateLimiter(2, 2, 100, Duration.ofSeconds(5), 0,
+            Duration.ofMillis(10), 1.0, meterRegistry);
+        limiter.execute(Priority.INTERACTIVE, () -> Mono.<String>error(error(429, "1")))
+            .onErrorResume(error -> Mono.empty())
+            .block(Duration.ofSeconds(1));
+        AtomicReference<Disposable> second = new AtomicReference<>();
+        AtomicBoolean firstGranted = new AtomicBoolean();
+
+        // When - Al recibir su token, la primera cancela a la segunda, que ya tiene el suyo asignado
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> {
+            firstGranted.set(true);
+            second.get().dispose();
+        });
+        second.set(limiter.acquire(Priority.INTERACTIVE).subscribe());
+        await().atMost(Duration.ofSeconds(3)).untilTrue(firstGranted);
+
+        // Then - El token de la cancelada vuelve al bucket y su espera no se mide
+        AtomicBoolean nextGranted = new AtomicBoolean();
+        limiter.acquire(Priority.INTERACTIVE).subscribe(null, null, () -> nextGranted.set(true));
+        assertThat(nextGranted).isTrue();
+        assertThat(meterRegistry.get("meli.http.ratelimit.wait").timer().count()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,163 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.cache.CachedItem;
+import com.mercadolibre.coupon.cache.ItemPriceCache;
+import com.mercadolibre.coupon.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Tests de la Carga Masiva de Precios")
+class PriceImporterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ItemPriceCache itemCache;
+    private PriceImporter importer;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        itemCache = new ItemPriceCache(64L * 1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000,
+            Duration.ofHours(1), meterRegistry);
+        importer = new PriceImporter(itemCache, tempDir.toString(), "", 4, 1000, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Debe cargar un CSV salteando encabezado, filas inválidas y precios vencidos")
+    void importFile_Csv() throws Exception {
+        // Given
+        long now = System.currentTimeMillis();
+        Path file = Files.writeString(tempDir.resolve("prices.csv"),
+            "item_id,price,timestamp\r\n"
+                + "MLA1,100.50," + now + "\r\n"
+                + "\"MLA2\",200," + (now / 1000) + "\r\n"
+                + "MLA3,300\r\n"
+                + "MLA4,abc," + now + "\r\n"
+                + "XXX5,10," + now + "\r\n"
+                + "MLA6,60," + (now - TimeUnit.HOURS.toMillis(1)) + "\r\n"
+                + "\r\n"
+                + "MLA7,70.1," + now);
+
+        // When
+        Map<String, Object> result = importer.importFile(file);
+
+        // Then
+        assertThat(result).containsEntry("loaded", 4).containsEntry("invalid", 2).containsEntry("expired", 1);
+        assertThat(itemCache.get("MLA1").getPrice()).isEqualByComparingTo("100.50");
+        assertThat(itemCache.get("MLA2").getPrice()).isEqualByComparingTo("200");
+        assertThat(itemCache.get("MLA3").getPrice()).isEqualByComparingTo("300");
+        assertThat(itemCache.get("MLA7").getPrice()).isEqualByComparingTo("70.1");
+        assertThat(itemCache.get("MLA6")).isNull();
+        assertThat(meterRegistry.get("meli.cache.import.rows").tag("result", "loaded").counter().count())
+            .isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("Con TTL adaptativo, debe descartar cada fila según el TTL que le tocaría a su item")
+    void importFile_AdaptiveTtl() throws Exception {
+        // Given - MLA1 tiene un TTL de 40 minutos; MLA2 no tiene historia (TTL configurado de 10)
+        ItemPriceCache adaptiveCache = new ItemPriceCache(64L * 1024 * 1024, Duration.ofMinutes(10), Duration.ZERO, 1000,
+            Duration.ofHours(1), true, Duration.ofMinutes(1), Duration.ofHours(1), meterRegistry);
+        PriceImporter adaptiveImporter = new PriceImporter(adaptiveCache, tempDir.toString(), "", 4, 1000, meterRegistry);
+        adaptiveCache.put(new CachedItem(new Item("MLA1", new BigDecimal("100")),
+            System.nanoTime() - TimeUnit.MINUTES.toNanos(30), TimeUnit.MINUTES.toNanos(40)));
+        long fifteenMinutesAgo = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(15);
+        Path file = Files.writeString(tempDir.resolve("prices.csv"),
+            "MLA1,100," + fifteenMinutesAgo + "\n"
+                + "MLA2,200," + fifteenMinutesAgo + "\n");
+
+        // When
+        Map<String, Object> result = adaptiveImporter.importFile(file);
+
+        // Then
+        assertThat(result).containsEntry("loaded", 1).containsEntry("expired", 1);
+        assertThat(adaptiveCache.get("MLA1")).isNotNull();
+        assertThat(adaptiveCache.get("MLA2")).isNull();
+    }
+
+    @Test
+    @DisplayName("Debe cargar un NDJSON conservando la antigüedad de cada precio")
+    void importFile_Ndjson() throws Exception {
+        // Given
+        long fiveMinutesAgo = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5);
+        Path file = Files.writeString(tempDir.resolve("prices.ndjson"),
+            "{\"item_id\":\"MLA1\",\"price\":99.99,\"timestamp\":" + fiveMinutesAgo + "}\n"
+                + "{\"price\": 10, \"item_id\": \"MLB2\"}\n"
+                + "{\"item_id\":\"MLA3\"}\n");
+
+        // When
+        Map<String, Object> result = importer.importFile(file);
+
+        // Then
+        assertThat(result).containsEntry("loaded", 2).containsEntry("invalid", 1);
+        assertThat(itemCache.get("MLA1").getPrice()).isEqualByComparingTo("99.99");
+        assertThat(itemCache.getEntry("MLA1").ageNanos()).isGreaterThanOrEqualTo(TimeUnit.MINUTES.toNanos(5));
+        assertThat(itemCache.get("MLB2").getPrice()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    @DisplayName("Debe conservar los precios del cache más nuevos que los del archivo")
+    void importFile_KeepsFresherCachedPrices() throws Exception {
+        // Given - MLA1 se consultó a la API después del export; MLA2 antes
+        long tenMinutesAgo = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10);
+        itemCache.put(new Item("MLA1", new BigDecimal("150")));
+        itemCache.put(new CachedItem(new Item("MLA2", new BigDecimal("250")),
+            System.nanoTime() - TimeUnit.HOURS.toNanos(1)));
+        Path file = Files.writeString(tempDir.resolve("prices.csv"),
+            "MLA1,100," + (tenMinutesAgo + TimeUnit.MINUTES.toMillis(5)) + "\n"
+                + "MLA2,200," + (tenMinutesAgo + TimeUnit.MINUTES.toMillis(5)) + "\n");
+
+        // When
+        Map<String, Object> result = importer.importFile(file);
+
+        // Then
+        assertThat(result).containsEntry("loaded", 1).containsEntry("outdated", 1);
+        assertThat(itemCache.get("MLA1").getPrice()).isEqualByComparingTo("150");
+        assertThat(itemCache.get("MLA2").getPrice()).isEqualByComparingTo("200");
+        assertThat(meterRegistry.get("meli.cache.import.rows").tag("result", "outdated").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe cargar archivos más grandes que el buffer de lectura sin perder filas")
+    void importFromDirectory_LargeFile() throws Exception {
+        // Given - ~3 MB, varias lecturas de 1 MB con líneas cortadas entre bloques
+        Path file = tempDir.resolve("large.csv");
+        long now = System.currentTimeMillis();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < 100_000; i++) {
+                writer.write("MLA" + i + "," + (i % 1000) + "." + (i % 100) + "," + now + "\n");
+            }
+        }
+
+        // When
+        Map<String, Object> result = importer.importFromDirectory("large.csv").get(30, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(result).containsEntry("loaded", 99_900).containsEntry("invalid", 100);
+        assertThat(itemCache.get("MLA99999").getPrice()).isEqualByComparingTo("999.99");
+        assertThat(importer.statusSnapshot()).containsEntry("running", false).containsEntry("progress", 1.0);
+    }
+
+    @Test
+    @DisplayName("No debe aceptar archivos fuera de la carpeta de importación")
+    void importFromDirectory_RejectsOutsidePaths() {
+        assertThatThrownBy(() -> importer.importFromDirectory("../../etc/passwd"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
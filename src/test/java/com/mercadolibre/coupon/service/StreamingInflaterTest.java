@@ -0,0 +1,119 @@
+package com.mercadolibre.coupon.service;
+
+import com.mercadolibre.coupon.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Tests de la Descompresión Incremental de Respuestas")
+class StreamingInflaterTest {
+
+    private static String multigetResponse(int items) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= items; i++) {
+            json.append(i > 1 ? "," : "")
+                .append("{\"code\":200,\"body\":{\"id\":\"MLA").append(i)
+                .append("\",\"title\":\"Producto de prueba con un título largo\",\"price\":").append(i).append(".5}}");
+        }
+        return json.append("]").toString();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, Item> parse(String encoding, byte[] body, int chunkSize) throws IOException {
+        MultigetResponseParser parser = new MultigetResponseParser();
+        try (StreamingInflater inflater = StreamingInflater.forEncoding(StreamingInflater.normalize(encoding))) {
+            for (int offset = 0; offset < body.length; offset += chunkSize) {
+                byte[] chunk = Arrays.copyOfRange(body, offset, Math.min(body.length, offset + chunkSize));
+                inflater.feed(chunk, 0, chunk.length, parser::feed);
+            }
+            inflater.finish();
+            return parser.finish();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe descomprimir gzip y deflate fragmento a fragmento, incluso de a un byte")
+    void feed_InflatesInChunks() throws Exception {
+        // Given
+        byte[] json = multigetResponse(20).getBytes(StandardCharsets.UTF_8);
+        byte[] gzipped = gzip(json);
+        byte[] deflated = deflate(json);
+
+        // When
+        Map<String, Item> fromGzipBytes = parse("gzip", gzipped, 1);
+        Map<String, Item> fromGzipChunks = parse("GZIP", gzipped, 100);
+        Map<String, Item> fromDeflate = parse("deflate", deflated, 7);
+        Map<String, Item> fromIdentity = parse(null, json, 64);
+
+        // Then
+        assertThat(gzipped.length).isLessThan(json.length / 3);
+        for (Map<String, Item> items : Arrays.asList(fromGzipBytes, fromGzipChunks, fromDeflate, fromIdentity)) {
+            assertThat(items).hasSize(20);
+            assertThat(items.get("MLA20").getPrice()).isEqualByComparingTo("20.5");
+        }
+    }
+
+    @Test
+    @DisplayName("Debe contar bytes comprimidos y descomprimidos sin juntar el cuerpo")
+    void feed_TracksBytes() throws Exception {
+        // Given
+        byte[] json = multigetResponse(200).getBytes(StandardCharsets.UTF_8);
+        byte[] gzipped = gzip(json);
+        StreamingInflater inflater = StreamingInflater.forEncoding(StreamingInflater.GZIP);
+        int[] largestChunk = {0};
+
+        // When
+        inflater.feed(gzipped, 0, gzipped.length, (data, offset, length) ->
+            largestChunk[0] = Math.max(largestChunk[0], length));
+        inflater.finish();
+        inflater.close();
+
+        // Then - El inflado sale en bloques acotados, no en un único buffer del cuerpo entero
+        assertThat(inflater.getCompressedBytes()).isEqualTo(gzipped.length);
+        assertThat(inflater.getInflatedBytes()).isEqualTo(json.length);
+        assertThat(largestChunk[0]).isLessThanOrEqualTo(16 * 1024).isLessThan(json.length);
+        assertThat(inflater.getInflateNanos()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Debe rechazar respuestas cortadas, corruptas o con encoding no soportado")
+    void feed_RejectsInvalidBodies() throws Exception {
+        // Given
+        byte[] gzipped = gzip(multigetResponse(5).getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(gzipped, gzipped.length - 12);
+        byte[] badCrc = gzipped.clone();
+        badCrc[badCrc.length - 8] ^= 0x01;
+
+        // Then
+        assertThatThrownBy(() -> parse("gzip", truncated, 16)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> parse("gzip", badCrc, 16)).hasMessageContaining("CRC");
+        assertThatThrownBy(() -> parse("gzip", "no es gzip".getBytes(StandardCharsets.UTF_8), 16))
+            .isInstanceOf(IOException.class);
+        assertThat(StreamingInflater.normalize("br")).isNull();
+    }
+}